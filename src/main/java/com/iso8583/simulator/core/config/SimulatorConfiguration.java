@@ -4,6 +4,11 @@ import com.iso8583.simulator.core.enums.SimulatorMode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Configuración del simulador con soporte para alternancia Mock/Real
  */
@@ -18,6 +23,7 @@ public class SimulatorConfiguration {
     private MockConfig mockConfig = new MockConfig();
     private ConnectionConfig connectionConfig = new ConnectionConfig();
     private MonitoringConfig monitoringConfig = new MonitoringConfig();
+    private FieldGeneration fieldGeneration = new FieldGeneration();
 
     // Getters y Setters principales
     public SimulatorMode getMode() {
@@ -72,6 +78,14 @@ public class SimulatorConfiguration {
         this.monitoringConfig = monitoringConfig;
     }
 
+    public FieldGeneration getFieldGeneration() {
+        return fieldGeneration;
+    }
+
+    public void setFieldGeneration(FieldGeneration fieldGeneration) {
+        this.fieldGeneration = fieldGeneration;
+    }
+
     // Métodos de conveniencia
     public boolean isMockMode() {
         return mode.isMockEnabled();
@@ -93,6 +107,11 @@ public class SimulatorConfiguration {
         private int port = 5105;
         private int timeout = 60000;
         private boolean enabled = true;
+        private String transport = "nio"; // nio | blocking
+        private int eventLoopThreads = 1;
+        private int writeBatchSize = 64;
+        private long writeLingerMicros = 0;
+        private boolean compiledCodec = true;
         private ConnectionPool connectionPool = new ConnectionPool();
         private Retry retry = new Retry();
 
@@ -109,6 +128,21 @@ public class SimulatorConfiguration {
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
 
+        public String getTransport() { return transport; }
+        public void setTransport(String transport) { this.transport = transport; }
+
+        public int getEventLoopThreads() { return eventLoopThreads; }
+        public void setEventLoopThreads(int eventLoopThreads) { this.eventLoopThreads = eventLoopThreads; }
+
+        public int getWriteBatchSize() { return writeBatchSize; }
+        public void setWriteBatchSize(int writeBatchSize) { this.writeBatchSize = writeBatchSize; }
+
+        public long getWriteLingerMicros() { return writeLingerMicros; }
+        public void setWriteLingerMicros(long writeLingerMicros) { this.writeLingerMicros = writeLingerMicros; }
+
+        public boolean isCompiledCodec() { return compiledCodec; }
+        public void setCompiledCodec(boolean compiledCodec) { this.compiledCodec = compiledCodec; }
+
         public ConnectionPool getConnectionPool() { return connectionPool; }
         public void setConnectionPool(ConnectionPool connectionPool) { this.connectionPool = connectionPool; }
 
@@ -119,6 +153,12 @@ public class SimulatorConfiguration {
             private int initialSize = 2;
             private int maxSize = 10;
             private long maxIdleTime = 300000;
+            private String selectionStrategy = "least-outstanding"; // least-outstanding | round-robin
+            private int maxInFlightPerChannel = 256;
+            private long acquireTimeout = 5000;
+            private long healthCheckInterval = 60000;
+            private boolean validateOnCreate = false;
+            private boolean warmUp = false;
 
             public int getInitialSize() { return initialSize; }
             public void setInitialSize(int initialSize) { this.initialSize = initialSize; }
@@ -128,6 +168,24 @@ public class SimulatorConfiguration {
 
             public long getMaxIdleTime() { return maxIdleTime; }
             public void setMaxIdleTime(long maxIdleTime) { this.maxIdleTime = maxIdleTime; }
+
+            public String getSelectionStrategy() { return selectionStrategy; }
+            public void setSelectionStrategy(String selectionStrategy) { this.selectionStrategy = selectionStrategy; }
+
+            public int getMaxInFlightPerChannel() { return maxInFlightPerChannel; }
+            public void setMaxInFlightPerChannel(int maxInFlightPerChannel) { this.maxInFlightPerChannel = maxInFlightPerChannel; }
+
+            public long getAcquireTimeout() { return acquireTimeout; }
+            public void setAcquireTimeout(long acquireTimeout) { this.acquireTimeout = acquireTimeout; }
+
+            public long getHealthCheckInterval() { return healthCheckInterval; }
+            public void setHealthCheckInterval(long healthCheckInterval) { this.healthCheckInterval = healthCheckInterval; }
+
+            public boolean isValidateOnCreate() { return validateOnCreate; }
+            public void setValidateOnCreate(boolean validateOnCreate) { this.validateOnCreate = validateOnCreate; }
+
+            public boolean isWarmUp() { return warmUp; }
+            public void setWarmUp(boolean warmUp) { this.warmUp = warmUp; }
         }
 
         public static class Retry {
@@ -151,6 +209,23 @@ public class SimulatorConfiguration {
         private int maxResponseTime = 200;
         private double successRate = 0.95;
         private boolean realisticErrors = true;
+        // Perfil por defecto; si no se define, uniforme entre min y max response time
+        private String latencyProfile;
+        private Map<String, LatencyProfile> latencyProfiles = new LinkedHashMap<>();
+        // "MTI" o "MTI-processingCode" -> nombre de perfil
+        private Map<String, String> latencyRoutes = new LinkedHashMap<>();
+        // Reglas de códigos de respuesta (YAML/JSON); "classpath:" o ruta de archivo
+        private String rulesFile = "classpath:config/mock-rules.yml";
+        // Autorizador mock expuesto por TCP
+        private Server server = new Server();
+        // Saldos por cuenta para respuestas consistentes entre compras, reversos y consultas
+        private Ledger ledger = new Ledger();
+        // Retransmisiones (94) y reversos sin original (76)
+        private TransactionCache transactionCache = new TransactionCache();
+        // Fallas inyectadas (descartes, demoras, frames corruptos...) por nombre
+        private Map<String, FaultProfile> faultProfiles = new LinkedHashMap<>();
+        // Armado de respuestas por MTI del request ("default" para el resto)
+        private Map<String, ResponseTemplate> responseTemplates = new LinkedHashMap<>();
 
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
@@ -166,6 +241,253 @@ public class SimulatorConfiguration {
 
         public boolean isRealisticErrors() { return realisticErrors; }
         public void setRealisticErrors(boolean realisticErrors) { this.realisticErrors = realisticErrors; }
+
+        public String getLatencyProfile() { return latencyProfile; }
+        public void setLatencyProfile(String latencyProfile) { this.latencyProfile = latencyProfile; }
+
+        public Map<String, LatencyProfile> getLatencyProfiles() { return latencyProfiles; }
+        public void setLatencyProfiles(Map<String, LatencyProfile> latencyProfiles) { this.latencyProfiles = latencyProfiles; }
+
+        public Map<String, String> getLatencyRoutes() { return latencyRoutes; }
+        public void setLatencyRoutes(Map<String, String> latencyRoutes) { this.latencyRoutes = latencyRoutes; }
+
+        public String getRulesFile() { return rulesFile; }
+        public void setRulesFile(String rulesFile) { this.rulesFile = rulesFile; }
+
+        public Server getServer() { return server; }
+        public void setServer(Server server) { this.server = server; }
+
+        public Ledger getLedger() { return ledger; }
+        public void setLedger(Ledger ledger) { this.ledger = ledger; }
+
+        public TransactionCache getTransactionCache() { return transactionCache; }
+        public void setTransactionCache(TransactionCache transactionCache) { this.transactionCache = transactionCache; }
+
+        public Map<String, FaultProfile> getFaultProfiles() { return faultProfiles; }
+        public void setFaultProfiles(Map<String, FaultProfile> faultProfiles) { this.faultProfiles = faultProfiles; }
+
+        public Map<String, ResponseTemplate> getResponseTemplates() { return responseTemplates; }
+        public void setResponseTemplates(Map<String, ResponseTemplate> responseTemplates) { this.responseTemplates = responseTemplates; }
+
+        /**
+         * Campos de la respuesta: copiados del request, constantes y generados al responder.
+         * Los códigos de respuesta, autorización y saldos los sigue decidiendo el mock.
+         */
+        public static class ResponseTemplate {
+            private String responseMti;                                     // Vacío = MTI del request + 10
+            private List<Integer> copy = new ArrayList<>();
+            private Map<Integer, String> constants = new LinkedHashMap<>();
+            // campo -> transmission-date-time | local-time | local-date
+            private Map<Integer, String> generated = new LinkedHashMap<>();
+
+            public String getResponseMti() { return responseMti; }
+            public void setResponseMti(String responseMti) { this.responseMti = responseMti; }
+
+            public List<Integer> getCopy() { return copy; }
+            public void setCopy(List<Integer> copy) { this.copy = copy; }
+
+            public Map<Integer, String> getConstants() { return constants; }
+            public void setConstants(Map<Integer, String> constants) { this.constants = constants; }
+
+            public Map<Integer, String> getGenerated() { return generated; }
+            public void setGenerated(Map<Integer, String> generated) { this.generated = generated; }
+        }
+
+        /**
+         * Fallas a inyectar, cada una con su tasa (0.0 - 1.0, suma <= 1) sobre los requests del alcance.
+         * drop, late y reorder aplican también en proceso; el resto sólo en el autorizador mock TCP.
+         */
+        public static class FaultProfile {
+            private boolean enabled = true;
+            private List<String> mtis = new ArrayList<>();      // vacío = todos
+            private List<String> terminals = new ArrayList<>(); // vacío = todos
+            private double drop;         // sin respuesta
+            private double late;         // respuesta después del timeout del cliente
+            private double reorder;      // demora aleatoria extra: las respuestas salen en otro orden
+            private double unsolicited;  // 0800 no solicitado antes de la respuesta
+            private double truncate;     // frame cortado a la mitad
+            private double garble;       // frame con MTI y bitmap corruptos
+            private double disconnect;   // cierre del socket sin responder
+            private long lateDelayMs;    // 0 = timeout del switch + 5 s
+            private long reorderWindowMs = 500;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public List<String> getMtis() { return mtis; }
+            public void setMtis(List<String> mtis) { this.mtis = mtis; }
+
+            public List<String> getTerminals() { return terminals; }
+            public void setTerminals(List<String> terminals) { this.terminals = terminals; }
+
+            public double getDrop() { return drop; }
+            public void setDrop(double drop) { this.drop = drop; }
+
+            public double getLate() { return late; }
+            public void setLate(double late) { this.late = late; }
+
+            public double getReorder() { return reorder; }
+            public void setReorder(double reorder) { this.reorder = reorder; }
+
+            public double getUnsolicited() { return unsolicited; }
+            public void setUnsolicited(double unsolicited) { this.unsolicited = unsolicited; }
+
+            public double getTruncate() { return truncate; }
+            public void setTruncate(double truncate) { this.truncate = truncate; }
+
+            public double getGarble() { return garble; }
+            public void setGarble(double garble) { this.garble = garble; }
+
+            public double getDisconnect() { return disconnect; }
+            public void setDisconnect(double disconnect) { this.disconnect = disconnect; }
+
+            public long getLateDelayMs() { return lateDelayMs; }
+            public void setLateDelayMs(long lateDelayMs) { this.lateDelayMs = lateDelayMs; }
+
+            public long getReorderWindowMs() { return reorderWindowMs; }
+            public void setReorderWindowMs(long reorderWindowMs) { this.reorderWindowMs = reorderWindowMs; }
+        }
+
+        /**
+         * Ventana de transacciones recientes, clave (campo 11, 37, 41, 7)
+         */
+        public static class TransactionCache {
+            private boolean enabled = false;
+            private long ttlSeconds = 300;
+            private int maxEntries = 2097152; // Tope aunque no hayan vencido; ~41 bytes por entrada
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public long getTtlSeconds() { return ttlSeconds; }
+            public void setTtlSeconds(long ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+
+            public int getMaxEntries() { return maxEntries; }
+            public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+        }
+
+        /**
+         * Libro de cuentas en memoria del modo mock; montos en unidades mínimas (centavos), como el campo 4
+         */
+        public static class Ledger {
+            private boolean enabled = false;
+            private long openingBalance = 1000000; // 10,000.00
+            private boolean autoCreate = true;      // false = cuentas desconocidas responden 14
+            private String currency = "068";
+            private String snapshotFile = "";       // vacío = sin persistencia
+            private boolean loadOnStartup = true;
+            private boolean snapshotOnShutdown = true;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public long getOpeningBalance() { return openingBalance; }
+            public void setOpeningBalance(long openingBalance) { this.openingBalance = openingBalance; }
+
+            public boolean isAutoCreate() { return autoCreate; }
+            public void setAutoCreate(boolean autoCreate) { this.autoCreate = autoCreate; }
+
+            public String getCurrency() { return currency; }
+            public void setCurrency(String currency) { this.currency = currency; }
+
+            public String getSnapshotFile() { return snapshotFile; }
+            public void setSnapshotFile(String snapshotFile) { this.snapshotFile = snapshotFile; }
+
+            public boolean isLoadOnStartup() { return loadOnStartup; }
+            public void setLoadOnStartup(boolean loadOnStartup) { this.loadOnStartup = loadOnStartup; }
+
+            public boolean isSnapshotOnShutdown() { return snapshotOnShutdown; }
+            public void setSnapshotOnShutdown(boolean snapshotOnShutdown) { this.snapshotOnShutdown = snapshotOnShutdown; }
+        }
+
+        /**
+         * Servidor TCP que responde con las reglas del mock; mismo framing y packager que el switch
+         */
+        public static class Server {
+            private boolean enabled = false;
+            private String bindAddress = "0.0.0.0";
+            private int port = 5105;
+            private int backlog = 1024;
+            private int eventLoopThreads = 0; // 0 = un event loop por procesador
+            private int writeBatchSize = 64;
+            private boolean compiledCodec = true;
+
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+            public String getBindAddress() { return bindAddress; }
+            public void setBindAddress(String bindAddress) { this.bindAddress = bindAddress; }
+
+            public int getPort() { return port; }
+            public void setPort(int port) { this.port = port; }
+
+            public int getBacklog() { return backlog; }
+            public void setBacklog(int backlog) { this.backlog = backlog; }
+
+            public int getEventLoopThreads() { return eventLoopThreads; }
+            public void setEventLoopThreads(int eventLoopThreads) { this.eventLoopThreads = eventLoopThreads; }
+
+            public int getWriteBatchSize() { return writeBatchSize; }
+            public void setWriteBatchSize(int writeBatchSize) { this.writeBatchSize = writeBatchSize; }
+
+            public boolean isCompiledCodec() { return compiledCodec; }
+            public void setCompiledCodec(boolean compiledCodec) { this.compiledCodec = compiledCodec; }
+        }
+
+        /**
+         * Distribución de latencia del autorizador simulado, en milisegundos.
+         * type: fixed | uniform | normal | lognormal | pareto | histogram
+         */
+        public static class LatencyProfile {
+            private String type = "uniform";
+            private long value;          // fixed
+            private long min;            // uniform
+            private long max;            // uniform
+            private double mean;         // normal
+            private double stddev;       // normal
+            private double median;       // lognormal
+            private double sigma;        // lognormal
+            private double scale;        // pareto: latencia mínima
+            private double shape = 1.5;  // pareto: menor = cola más pesada
+            private Map<String, Long> histogram = new LinkedHashMap<>(); // límite superior del bucket (ms) -> cantidad
+            private long cap = 60000;    // tope para colas largas
+
+            public String getType() { return type; }
+            public void setType(String type) { this.type = type; }
+
+            public long getValue() { return value; }
+            public void setValue(long value) { this.value = value; }
+
+            public long getMin() { return min; }
+            public void setMin(long min) { this.min = min; }
+
+            public long getMax() { return max; }
+            public void setMax(long max) { this.max = max; }
+
+            public double getMean() { return mean; }
+            public void setMean(double mean) { this.mean = mean; }
+
+            public double getStddev() { return stddev; }
+            public void setStddev(double stddev) { this.stddev = stddev; }
+
+            public double getMedian() { return median; }
+            public void setMedian(double median) { this.median = median; }
+
+            public double getSigma() { return sigma; }
+            public void setSigma(double sigma) { this.sigma = sigma; }
+
+            public double getScale() { return scale; }
+            public void setScale(double scale) { this.scale = scale; }
+
+            public double getShape() { return shape; }
+            public void setShape(double shape) { this.shape = shape; }
+
+            public Map<String, Long> getHistogram() { return histogram; }
+            public void setHistogram(Map<String, Long> histogram) { this.histogram = histogram; }
+
+            public long getCap() { return cap; }
+            public void setCap(long cap) { this.cap = cap; }
+        }
     }
 
     /**
@@ -203,4 +525,47 @@ public class SimulatorConfiguration {
         public boolean isPerformanceTracking() { return performanceTracking; }
         public void setPerformanceTracking(boolean performanceTracking) { this.performanceTracking = performanceTracking; }
     }
-}
\ No newline at end of file
+
+    /**
+     * Configuración de generación de campos
+     */
+    public static class FieldGeneration {
+        private TraceNumber traceNumber = new TraceNumber();
+
+        public TraceNumber getTraceNumber() { return traceNumber; }
+        public void setTraceNumber(TraceNumber traceNumber) { this.traceNumber = traceNumber; }
+
+        /**
+         * Secuencias de STAN (campo 11) y RRN (campo 37) compartidas por todos los generadores
+         */
+        public static class TraceNumber {
+            private int start = 1;
+            private int max = 999999;
+            private boolean resetDaily = false;
+            // Valores reservados por thread de una sola vez; 0 o 1 = sin bloques
+            private int blockSize = 0;
+            // Archivo mapeado en memoria con la posición de cada secuencia; vacío = no persistir
+            private String stateFile = "";
+            // Valores cubiertos por cada escritura al archivo
+            private int reserveSize = 1000;
+
+            public int getStart() { return start; }
+            public void setStart(int start) { this.start = start; }
+
+            public int getMax() { return max; }
+            public void setMax(int max) { this.max = max; }
+
+            public boolean isResetDaily() { return resetDaily; }
+            public void setResetDaily(boolean resetDaily) { this.resetDaily = resetDaily; }
+
+            public int getBlockSize() { return blockSize; }
+            public void setBlockSize(int blockSize) { this.blockSize = blockSize; }
+
+            public String getStateFile() { return stateFile; }
+            public void setStateFile(String stateFile) { this.stateFile = stateFile; }
+
+            public int getReserveSize() { return reserveSize; }
+            public void setReserveSize(int reserveSize) { this.reserveSize = reserveSize; }
+        }
+    }
+}
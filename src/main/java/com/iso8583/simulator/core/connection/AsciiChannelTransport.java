@@ -0,0 +1,241 @@
+package com.iso8583.simulator.core.connection;
+
+import com.iso8583.simulator.core.message.Iso87AsciiCodec;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.iso.channel.ASCIIChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transporte bloqueante sobre ASCIIChannel de jPOS: un thread listener y un writer por socket.
+ * El writer vacía la cola en lotes de hasta {@code maxBatch} mensajes, los empaqueta en un
+ * único buffer y los escribe en el socket con un solo write + flush por lote.
+ */
+final class AsciiChannelTransport implements IsoTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsciiChannelTransport.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final ASCIIChannel channel;
+    private final ISOPackager packager;
+    private final Iso87AsciiCodec codec;
+    private final int socketTimeout;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final BlockingQueue<Outbound> outbound = new LinkedBlockingQueue<>();
+    private final AtomicBoolean open = new AtomicBoolean(false);
+    private Thread listenerThread;
+    private Thread writerThread;
+    private Handler handler;
+
+    AsciiChannelTransport(String name, String host, int port, ISOPackager packager, Iso87AsciiCodec codec,
+                          int socketTimeout, int maxBatch, long lingerMicros) {
+        this.name = name;
+        this.channel = new ASCIIChannel(host, port, packager);
+        this.packager = packager;
+        this.codec = codec;
+        this.socketTimeout = socketTimeout;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.lingerNanos = Math.max(0, lingerMicros) * 1000;
+    }
+
+    @Override
+    public void open(Handler handler) throws IOException {
+        this.handler = handler;
+        channel.setTimeout(socketTimeout);
+        channel.connect();
+        if (!channel.isConnected()) {
+            throw new IOException("No se pudo establecer la conexión ASCIIChannel");
+        }
+        open.set(true);
+
+        listenerThread = new Thread(this::listen, "ISO8583-ResponseListener-" + name);
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+
+        writerThread = new Thread(this::writeLoop, "ISO8583-Writer-" + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void send(Outbound message) {
+        if (!open.get()) {
+            message.failed(new IOException("Canal cerrado"));
+            return;
+        }
+        outbound.add(message);
+    }
+
+    /**
+     * Loop del writer: toma un lote (esperando hasta el linger si está incompleto) y lo escribe
+     */
+    private void writeLoop() {
+        List<Outbound> batch = new ArrayList<>(maxBatch);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        while (open.get()) {
+            try {
+                batch.add(outbound.take());
+                outbound.drainTo(batch, maxBatch - 1);
+                if (lingerNanos > 0) {
+                    long deadline = System.nanoTime() + lingerNanos;
+                    long remaining;
+                    while (batch.size() < maxBatch && (remaining = deadline - System.nanoTime()) > 0) {
+                        Outbound next = outbound.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        outbound.drainTo(batch, maxBatch - batch.size());
+                    }
+                }
+                writeBatch(batch, buffer);
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                closeOnError(e);
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        Outbound pending;
+        while ((pending = outbound.poll()) != null) {
+            pending.failed(new IOException("Conexión cerrada"));
+        }
+    }
+
+    /**
+     * Ejecutado sólo por el writer: un write por buffer lleno y un flush por lote
+     */
+    private void writeBatch(List<Outbound> batch, ByteBuffer buffer) throws IOException {
+        Socket socket = channel.getSocket();
+        if (socket == null) {
+            throw new IOException("Canal cerrado");
+        }
+        OutputStream out = socket.getOutputStream();
+
+        buffer.clear();
+        for (Outbound message : batch) {
+            if (message.isCancelled()) {
+                continue; // Expiró mientras esperaba en la cola
+            }
+            if (AsciiFraming.encode(message, packager, codec, buffer) == AsciiFraming.NO_ROOM) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+                AsciiFraming.encode(message, packager, codec, buffer);
+            }
+        }
+        if (buffer.position() > 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            out.flush();
+        }
+    }
+
+    /**
+     * Loop del listener: bloquea en receive() hasta que llega un mensaje o vence el timeout del socket
+     */
+    private void listen() {
+        logger.info("🔄 Response Listener iniciado para canal {}", name);
+
+        while (open.get()) {
+            try {
+                ISOMsg response = channel.receive();
+                if (response != null) {
+                    handler.onMessage(response);
+                }
+            } catch (SocketTimeoutException e) {
+                // Timeout normal del socket - continuar sin logging
+                logger.debug("⏰ Socket timeout normal en canal {}", name);
+            } catch (IOException e) {
+                if (open.get()) {
+                    logger.warn("⚠️ Canal {} perdió la conexión: {}", name, e.getMessage());
+                    closeOnError(e);
+                }
+                break;
+            } catch (ISOException e) {
+                if (open.get()) {
+                    // Mensaje que no se pudo desempaquetar: el socket sigue siendo válido
+                    logger.warn("⚠️ ISO Error en canal {}: {}", name, e.getMessage());
+                }
+            } catch (Exception e) {
+                if (open.get()) {
+                    if (!(e.getCause() instanceof SocketTimeoutException)) {
+                        logger.error("❌ Error inesperado en canal {}: {}", name, e.getMessage());
+                    }
+                    if (!channel.isConnected()) {
+                        closeOnError(e);
+                        break;
+                    }
+                }
+            }
+        }
+
+        logger.info("🛑 Response Listener del canal {} detenido", name);
+    }
+
+    private void closeOnError(Exception cause) {
+        if (open.get()) {
+            close();
+            handler.onClosed(cause);
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return open.get() && channel.isConnected();
+    }
+
+    @Override
+    public void close() {
+        if (!open.compareAndSet(true, false)) {
+            return;
+        }
+        try {
+            if (channel.isConnected()) {
+                channel.disconnect();
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Error desconectando canal {}: {}", name, e.getMessage());
+        }
+        if (listenerThread != null && listenerThread != Thread.currentThread()) {
+            listenerThread.interrupt();
+        }
+        if (writerThread != null && writerThread != Thread.currentThread()) {
+            writerThread.interrupt();
+        }
+    }
+
+    @Override
+    public String getSocketInfo() {
+        try {
+            Socket socket = channel.getSocket();
+            if (socket != null) {
+                return String.format("Local: %s:%d, Remote: %s:%d",
+                        socket.getLocalAddress(), socket.getLocalPort(),
+                        socket.getRemoteSocketAddress(), socket.getPort());
+            }
+        } catch (Exception e) {
+            // Ignorar
+        }
+        return "Socket info no disponible";
+    }
+}
@@ -0,0 +1,137 @@
+package com.iso8583.simulator.core.connection;
+
+import com.iso8583.simulator.core.message.Iso87AsciiCodec;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Framing de ASCIIChannel: 4 dígitos ASCII con la longitud del mensaje, seguidos del mensaje
+ */
+final class AsciiFraming {
+
+    static final int HEADER_LENGTH = 4;
+    static final int MAX_MESSAGE_LENGTH = 9999;
+
+    // Resultado de encode
+    static final int FRAMED = 0;
+    static final int FAILED = 1;
+    static final int NO_ROOM = 2;
+
+    private AsciiFraming() {
+    }
+
+    /**
+     * Empaqueta el mensaje; si no se puede, lo informa por {@link IsoTransport.Outbound#failed} y devuelve null
+     */
+    static byte[] pack(IsoTransport.Outbound outbound, ISOPackager packager) {
+        byte[] body;
+        try {
+            ISOMsg msg = outbound.message();
+            msg.setPackager(packager);
+            body = msg.pack();
+        } catch (ISOException e) {
+            outbound.failed(e);
+            return null;
+        }
+        if (body.length > MAX_MESSAGE_LENGTH) {
+            outbound.failed(new ISOException("Mensaje de " + body.length + " bytes excede el header de 4 dígitos"));
+            return null;
+        }
+        return body;
+    }
+
+    /**
+     * Escribe header + mensaje en la posición del buffer: con el codec compilado directamente,
+     * sin él empaquetando con jPOS; un frame crudo se copia tal cual. Si no entra deja el buffer
+     * como estaba y devuelve NO_ROOM; si el mensaje es inválido lo informa por failed y devuelve FAILED.
+     */
+    static int encode(IsoTransport.Outbound outbound, ISOPackager packager, Iso87AsciiCodec codec,
+                      ByteBuffer buffer) {
+        byte[] raw = outbound.rawFrame();
+        if (raw != null) {
+            if (raw.length > buffer.capacity()) {
+                outbound.failed(new ISOException("Frame de " + raw.length + " bytes excede el buffer de escritura"));
+                return FAILED;
+            }
+            if (buffer.remaining() < raw.length) {
+                return NO_ROOM;
+            }
+            buffer.put(raw);
+            return FRAMED;
+        }
+        if (codec == null) {
+            byte[] body = pack(outbound, packager);
+            if (body == null) {
+                return FAILED;
+            }
+            if (buffer.remaining() < frameLength(body)) {
+                return NO_ROOM;
+            }
+            putFrame(buffer, body);
+            return FRAMED;
+        }
+
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return NO_ROOM;
+        }
+        buffer.position(start + HEADER_LENGTH);
+        try {
+            ISOMsg msg = outbound.message();
+            int length = codec.encode(msg, buffer);
+            if (length > MAX_MESSAGE_LENGTH) {
+                throw new ISOException("Mensaje de " + length + " bytes excede el header de 4 dígitos");
+            }
+            // Mismo packager que usaría jPOS, para quien lea el mensaje después
+            msg.setPackager(packager);
+            putLength(buffer, start, length);
+            return FRAMED;
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return NO_ROOM;
+        } catch (ISOException e) {
+            buffer.position(start);
+            outbound.failed(e);
+            return FAILED;
+        }
+    }
+
+    static int frameLength(byte[] body) {
+        return HEADER_LENGTH + body.length;
+    }
+
+    /**
+     * Escribe header + cuerpo; el llamador verifica antes que haya lugar
+     */
+    static void putFrame(ByteBuffer buffer, byte[] body) {
+        putLength(buffer, buffer.position(), body.length);
+        buffer.position(buffer.position() + HEADER_LENGTH);
+        buffer.put(body);
+    }
+
+    private static void putLength(ByteBuffer buffer, int offset, int length) {
+        buffer.put(offset, (byte) ('0' + length / 1000));
+        buffer.put(offset + 1, (byte) ('0' + length / 100 % 10));
+        buffer.put(offset + 2, (byte) ('0' + length / 10 % 10));
+        buffer.put(offset + 3, (byte) ('0' + length % 10));
+    }
+
+    /**
+     * Lee la longitud del header en {@code offset} sin mover la posición; -1 si no son 4 dígitos
+     */
+    static int readLength(ByteBuffer buffer, int offset) {
+        int length = 0;
+        for (int i = 0; i < HEADER_LENGTH; i++) {
+            byte digit = buffer.get(offset + i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            length = length * 10 + (digit - '0');
+        }
+        return length;
+    }
+}
@@ -1,9 +1,12 @@
 package com.iso8583.simulator.core.connection;
 
 import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import com.iso8583.simulator.core.message.CoarseClock;
+import com.iso8583.simulator.core.message.Iso87AsciiCodec;
+import com.iso8583.simulator.core.message.PackagerRegistry;
+import com.iso8583.simulator.core.message.SequenceService;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
-import org.jpos.iso.channel.ASCIIChannel;
 import org.jpos.iso.packager.GenericPackager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,14 +16,11 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.DisposableBean;
 
 import java.io.IOException;
-import java.net.Socket;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.Map;
+import java.util.List;
 
 /**
  * ConnectionManager con PSEUDO-MUX para resolver STAN MISMATCH
@@ -34,50 +34,59 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
     @Autowired
     private SimulatorConfiguration config;
 
-    private AtomicReference<ASCIIChannel> currentChannel = new AtomicReference<>();
+    @Autowired
+    private ConnectionPool connectionPool;
+
+    @Autowired
+    private PackagerRegistry packagerRegistry;
+
+    @Autowired
+    private SequenceService sequenceService;
+
     private AtomicBoolean isConnected = new AtomicBoolean(false);
     private AtomicReference<LocalDateTime> lastConnectionAttempt = new AtomicReference<>();
     private AtomicReference<String> lastError = new AtomicReference<>();
 
-    // STAN secuencial para evitar duplicados
-    private AtomicInteger stanSequence = new AtomicInteger(1);
-
     private GenericPackager packager;
     private Thread keepAliveThread;
-    private Thread responseListenerThread;
     private volatile boolean shouldKeepAlive = true;
-    private volatile boolean shouldListen = true;
+    // Reconexión en curso (null si no hay): quien encuentra el pool vacío espera esta misma,
+    // así N envíos concurrentes no abren N pools que se cierran entre sí
+    private final AtomicReference<CompletableFuture<Boolean>> reconnecting = new AtomicReference<>();
+    // Los reintentos esperan entre intentos: van en su propio thread, no en el pool común
+    private final ExecutorService reconnectExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ISO8583-Reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // *** PSEUDO-MUX IMPLEMENTATION ***
-    private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
-    private String[] outputKeys = {"3", "7", "11", "41"}; // Processing Code, DateTime, STAN, Response Code
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    // Cada canal del pool tiene su propio MUX; los OutputKeys y la rueda de timeouts se comparten
+    private final OutputKeyMatcher outputKeyMatcher = new OutputKeyMatcher();
+
+    // Cada request vence en su propio plazo sobre la rueda; ningún thread queda bloqueado esperando
+    private final HashedWheelTimer timeoutWheel =
+            new HashedWheelTimer("ISO8583-MuxTimeout", 10, TimeUnit.MILLISECONDS, 512);
+
+    private final MuxStatistics statistics = new MuxStatistics();
+
+    private NioEventLoopGroup eventLoopGroup;
 
-    /**
-     * Clase para manejar requests pendientes
-     */
-    private static class PendingRequest {
-        final ISOMsg request;
-        final CompletableFuture<ISOMsg> future;
-        final long timestamp;
-        final String matchKey;
-
-        PendingRequest(ISOMsg request, CompletableFuture<ISOMsg> future, String matchKey) {
-            this.request = request;
-            this.future = future;
-            this.timestamp = System.currentTimeMillis();
-            this.matchKey = matchKey;
-        }
-    }
 
     @Override
     public void afterPropertiesSet() throws Exception {
         try {
-            initializePackager();
+            packager = packagerRegistry.getDefault();
             logger.info("🏭 ConnectionManager con PSEUDO-MUX inicializado para {}:{}",
                     config.getSwitch().getHost(), config.getSwitch().getPort());
-            logger.info("🔧 OutputKeys para matching: [{}]", String.join(", ", outputKeys));
-            logger.info("ℹ️ Usar /api/v1/connection/connect para conectar manualmente");
+            logger.info("🔧 OutputKeys para matching: [{}]", String.join(", ", outputKeyMatcher.getOutputKeys()));
+            if (config.getSwitch().getConnectionPool().isWarmUp() && config.getSwitch().isEnabled()
+                    && !config.isMockMode()) {
+                logger.info("🔥 Pre-calentando pool de conexiones al arrancar");
+                connect();
+            } else {
+                logger.info("ℹ️ Usar /api/v1/connection/connect para conectar manualmente");
+            }
         } catch (Exception e) {
             logger.error("❌ Error inicializando ConnectionManager: {}", e.getMessage(), e);
         }
@@ -86,323 +95,199 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
     @Override
     public void destroy() throws Exception {
         shouldKeepAlive = false;
-        shouldListen = false;
 
         if (keepAliveThread != null && keepAliveThread.isAlive()) {
             keepAliveThread.interrupt();
         }
-        if (responseListenerThread != null && responseListenerThread.isAlive()) {
-            responseListenerThread.interrupt();
-        }
 
-        executorService.shutdown();
         disconnect();
-    }
-
-    /**
-     * Establece conexión con Pseudo-MUX
-     */
-    public CompletableFuture<Boolean> connect() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                logger.info("🏦 Conectando con PSEUDO-MUX al autorizador {}:{}",
-                        config.getSwitch().getHost(), config.getSwitch().getPort());
-
-                lastConnectionAttempt.set(LocalDateTime.now());
-
-                // Limpiar conexión anterior si existe
-                disconnect();
-
-                // Crear ASCIIChannel
-                ASCIIChannel channel = new ASCIIChannel(
-                        config.getSwitch().getHost(),
-                        config.getSwitch().getPort(),
-                        packager
-                );
-
-                channel.setTimeout(config.getSwitch().getTimeout());
-
-                logger.debug("🔌 Intentando conectar canal...");
-                channel.connect();
-
-                if (!channel.isConnected()) {
-                    throw new IOException("No se pudo establecer la conexión ASCIIChannel");
-                }
-
-                logger.debug("✅ Canal conectado exitosamente");
-                currentChannel.set(channel);
-                isConnected.set(true);
-                lastError.set(null);
-
-                // Iniciar listener de respuestas
-                startResponseListener();
-                startKeepAlive();
-
-                logger.info("✅ Conexión establecida con PSEUDO-MUX - Matching por OutputKeys");
-                return true;
-
-            } catch (Exception e) {
-                String errorMsg = "Error conectando al autorizador: " + e.getMessage();
-                logger.error(errorMsg, e);
-                lastError.set(errorMsg);
-                isConnected.set(false);
-
-                // Limpiar canal en caso de error
-                currentChannel.set(null);
-                return false;
+        synchronized (this) {
+            if (eventLoopGroup != null) {
+                eventLoopGroup.shutdown();
             }
-        });
+        }
+        reconnectExecutor.shutdownNow();
+        timeoutWheel.stop();
     }
 
     /**
-     * Inicia el listener de respuestas en thread separado
+     * Establece conexión con Pseudo-MUX: abre los canales iniciales del pool
      */
-    private void startResponseListener() {
-        shouldListen = true;
-        responseListenerThread = new Thread(() -> {
-            logger.info("🔄 Response Listener iniciado para PSEUDO-MUX");
-
-            while (shouldListen && isConnected.get()) {
-                try {
-                    ASCIIChannel channel = currentChannel.get();
-                    if (channel != null && channel.isConnected()) {
-                        // Recibir respuesta (puede hacer timeout normalmente)
-                        ISOMsg response = channel.receive();
-
-                        if (response != null) {
-                            logger.debug("📥 Respuesta recibida, procesando...");
-                            processResponse(response);
-                        }
-                    } else {
-                        // Canal no disponible - pausa más larga para evitar spam
-                        Thread.sleep(5000);
-                    }
-                } catch (java.net.SocketTimeoutException e) {
-                    // Timeout normal del socket - continuar sin logging
-                    logger.debug("⏰ Socket timeout normal en ResponseListener");
-                } catch (ISOException e) {
-                    if (shouldListen && isConnected.get()) {
-                        // Error real de ISO - reconectar puede ser necesario
-                        logger.warn("⚠️ ISO Error en ResponseListener: {}", e.getMessage());
-                        try {
-                            Thread.sleep(2000);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    if (shouldListen) {
-                        // Solo loggear errores realmente inesperados
-                        if (!(e.getCause() instanceof java.net.SocketTimeoutException)) {
-                            logger.error("❌ Error inesperado en ResponseListener: {}", e.getMessage());
-                        }
-                        try {
-                            Thread.sleep(3000);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }
-            }
-
-            logger.info("🛑 Response Listener detenido");
-        });
-
-        responseListenerThread.setDaemon(true);
-        responseListenerThread.setName("ISO8583-ResponseListener");
-        responseListenerThread.start();
-
-        logger.debug("✅ Response Listener thread iniciado");
+    public CompletableFuture<Boolean> connect() {
+        return CompletableFuture.supplyAsync(this::establish);
     }
 
     /**
-     * Procesa respuesta recibida y la matchea con request pendiente
+     * Conexión en el thread actual: abre y valida los canales iniciales del pool
      */
-    private void processResponse(ISOMsg response) {
+    private boolean establish() {
         try {
-            String responseMti = response.getMTI();
-            String responseStan = response.getString(11);
-            String responseCode = response.getString(39);
-
-            logger.debug("📥 Respuesta recibida - MTI: {}, STAN: {}, Code: {}",
-                    responseMti, responseStan, responseCode);
-
-            // Generar clave de matching usando OutputKeys
-            String matchKey = generateMatchKey(response);
-
-            // Buscar request pendiente que coincida
-            PendingRequest pendingRequest = findMatchingRequest(matchKey, response);
+            logger.info("🏦 Conectando con PSEUDO-MUX al autorizador {}:{}",
+                    config.getSwitch().getHost(), config.getSwitch().getPort());
 
-            if (pendingRequest != null) {
-                // Match encontrado!
-                pendingRequests.remove(pendingRequest.matchKey);
+            lastConnectionAttempt.set(LocalDateTime.now());
 
-                long responseTime = System.currentTimeMillis() - pendingRequest.timestamp;
+            // Limpiar conexión anterior si existe
+            disconnect();
 
-                logger.info("✅ MATCH ENCONTRADO - Request STAN: {}, Response STAN: {}, {}ms",
-                        pendingRequest.request.getString(11), responseStan, responseTime);
+            int opened = connectionPool.initialize(config.getSwitch().getConnectionPool(),
+                    this::openChannel, this::validateChannel, timeoutWheel);
+            if (opened == 0) {
+                throw new IOException("No se pudo establecer la conexión ASCIIChannel");
+            }
 
-                // Completar el future
-                pendingRequest.future.complete(response);
+            isConnected.set(true);
+            lastError.set(null);
+            startKeepAlive();
 
-            } else {
-                logger.warn("⚠️ NO MATCH - Response STAN: {}, Match Key: {}", responseStan, matchKey);
-                logger.debug("Requests pendientes: {}", pendingRequests.keySet());
-            }
+            logger.info("✅ Conexión establecida con PSEUDO-MUX - {} canales, matching por OutputKeys", opened);
+            return true;
 
         } catch (Exception e) {
-            logger.error("Error procesando respuesta: {}", e.getMessage(), e);
+            String errorMsg = "Error conectando al autorizador: " + e.getMessage();
+            logger.error(errorMsg, e);
+            lastError.set(errorMsg);
+            isConnected.set(false);
+
+            // Limpiar canales en caso de error
+            connectionPool.shutdown();
+            return false;
         }
     }
 
     /**
-     * Busca request pendiente que coincida con la respuesta
+     * Fábrica de canales del pool
      */
-    private PendingRequest findMatchingRequest(String responseMatchKey, ISOMsg response) {
-        // Buscar por match key exacto primero
-        PendingRequest exactMatch = pendingRequests.get(responseMatchKey);
-        if (exactMatch != null) {
-            return exactMatch;
-        }
+    private MuxChannel openChannel(int channelId) throws IOException {
+        logger.debug("🔌 Intentando conectar canal {}...", channelId);
+        MuxChannel channel = new MuxChannel(channelId, createTransport(channelId),
+                outputKeyMatcher, timeoutWheel, statistics, this::onChannelClosed);
+        channel.open();
+        return channel;
+    }
 
-        // Si no hay match exacto, buscar por STAN (fallback)
-        String responseStan = response.getString(11);
-        if (responseStan != null) {
-            for (PendingRequest pending : pendingRequests.values()) {
-                String requestStan = pending.request.getString(11);
-                if (responseStan.equals(requestStan)) {
-                    logger.debug("Match por STAN fallback: {}", responseStan);
-                    return pending;
-                }
-            }
+    private IsoTransport createTransport(int channelId) throws IOException {
+        SimulatorConfiguration.SwitchConfig switchConfig = config.getSwitch();
+        String name = String.valueOf(channelId);
+        if ("blocking".equalsIgnoreCase(switchConfig.getTransport())) {
+            return new AsciiChannelTransport(name, switchConfig.getHost(), switchConfig.getPort(),
+                    packager, codec(), switchConfig.getTimeout(),
+                    switchConfig.getWriteBatchSize(), switchConfig.getWriteLingerMicros());
         }
-
-        return null;
+        return new NioChannelTransport(name, switchConfig.getHost(), switchConfig.getPort(),
+                packager, codec(), switchConfig.getTimeout(), eventLoops().next(),
+                switchConfig.getWriteBatchSize(), switchConfig.getWriteLingerMicros());
     }
 
     /**
-     * Genera clave de matching usando OutputKeys
+     * Codec compilado del packager por defecto; null para empaquetar con jPOS
      */
-    private String generateMatchKey(ISOMsg msg) {
-        StringBuilder key = new StringBuilder();
+    private Iso87AsciiCodec codec() {
+        return config.getSwitch().isCompiledCodec() ? packagerRegistry.getDefaultCodec() : null;
+    }
 
-        for (String field : outputKeys) {
-            String value = msg.getString(Integer.parseInt(field));
-            if (value != null) {
-                key.append(field).append(":").append(value).append("|");
-            }
+    /**
+     * Event loops NIO compartidos por todos los canales; se crean con el primer canal
+     */
+    private synchronized NioEventLoopGroup eventLoops() throws IOException {
+        if (eventLoopGroup == null) {
+            eventLoopGroup = new NioEventLoopGroup("ISO8583-EventLoop", config.getSwitch().getEventLoopThreads());
+            logger.info("🔁 {} event loop(s) NIO iniciados", eventLoopGroup.size());
         }
+        return eventLoopGroup;
+    }
 
-        return key.toString();
+    private void onChannelClosed(MuxChannel channel) {
+        connectionPool.onChannelClosed(channel);
+        if (isConnected.get() && connectionPool.getActiveConnections() == 0) {
+            logger.info("🔄 Sin canales activos, intentando reconexión automática...");
+            startReconnect();
+        }
     }
 
     /**
-     * Envía mensaje usando Pseudo-MUX
+     * Envía mensaje usando Pseudo-MUX por el canal menos cargado del pool.
+     * Devuelve el future pendiente de inmediato: la escritura la hace el writer del canal
+     * y el timeout lo dispara el timer, sin bloquear el thread del llamador.
      */
     public CompletableFuture<ISOMsg> sendMessage(ISOMsg request) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Verificar conexión antes de continuar
-                if (!isConnected.get()) {
-                    throw new ISOException("No hay conexión activa con el autorizador");
-                }
-
-                ASCIIChannel channel = currentChannel.get();
-                if (channel == null || !channel.isConnected()) {
-                    logger.warn("⚠️ Canal desconectado, intentando reconectar...");
+        // Durante una reconexión isConnected es false, pero el envío espera su resultado
+        CompletableFuture<Boolean> pending = reconnecting.get();
 
-                    // Intentar reconexión automática con timeout
-                    try {
-                        if (connect().get(10, TimeUnit.SECONDS)) {
-                            channel = currentChannel.get();
-                            logger.info("✅ Reconexión exitosa");
-                        } else {
-                            throw new ISOException("No se pudo establecer conexión después de reconexión");
-                        }
-                    } catch (TimeoutException e) {
-                        throw new ISOException("Timeout durante reconexión automática");
-                    }
-                }
-
-                String requestStan = request.getString(11);
-                String requestMti = request.getMTI();
-
-                // Generar clave de matching para el request
-                String matchKey = generateMatchKey(request);
-
-                // Crear future para la respuesta
-                CompletableFuture<ISOMsg> responseFuture = new CompletableFuture<>();
-
-                // Registrar request pendiente
-                PendingRequest pendingRequest = new PendingRequest(request, responseFuture, matchKey);
-                pendingRequests.put(matchKey, pendingRequest);
-
-                logger.info("📤 ENVIANDO - MTI: {}, STAN: {}, Match Key: {} [PSEUDO-MUX]",
-                        requestMti, requestStan, matchKey);
-
-                // Enviar request de forma sincronizada
-                try {
-                    synchronized (channel) {
-                        channel.send(request);
-                        logger.debug("📤 Mensaje enviado por canal");
-                    }
-                } catch (Exception sendError) {
-                    // Limpiar request pendiente si falla el envío
-                    pendingRequests.remove(matchKey);
-                    throw new ISOException("Error enviando mensaje: " + sendError.getMessage(), sendError);
-                }
-
-                // Esperar respuesta con timeout
-                long timeoutMs = config.getSwitch().getTimeout();
+        // Verificar conexión antes de continuar
+        if (pending == null && !isConnected.get()) {
+            return CompletableFuture.failedFuture(
+                    new ISOException("No hay conexión activa con el autorizador"));
+        }
 
-                try {
-                    ISOMsg response = responseFuture.get(timeoutMs, TimeUnit.MILLISECONDS);
-                    logger.debug("📥 Respuesta recibida para STAN: {}", requestStan);
-                    return response;
-
-                } catch (TimeoutException e) {
-                    // Limpiar request pendiente en caso de timeout
-                    pendingRequests.remove(matchKey);
-                    logger.error("⏰ TIMEOUT - STAN: {}, {}ms", requestStan, timeoutMs);
-                    throw new ISOException("Timeout: No se recibió respuesta del autorizador");
-                }
+        if (pending != null || connectionPool.getActiveConnections() == 0) {
+            if (pending == null) {
+                logger.warn("⚠️ Canal desconectado, intentando reconectar...");
+            }
 
-            } catch (Exception e) {
-                logger.error("❌ Error enviando mensaje: {}", e.getMessage(), e);
+            // Reconexión automática compartida, encadenada sin esperar en el thread del llamador.
+            // copy(): el plazo es de este envío, no debe completar el future compartido;
+            // alcanza para todos los intentos, así no falla un envío cuya reconexión termina bien
+            return startReconnect().copy()
+                    .orTimeout(reconnectBudgetMs(), TimeUnit.MILLISECONDS)
+                    .handle((connected, error) -> {
+                        if (error instanceof TimeoutException) {
+                            throw new CompletionException(
+                                    new ISOException("Timeout durante reconexión automática"));
+                        }
+                        if (error != null) {
+                            throw new CompletionException(
+                                    new ISOException("Error durante reconexión automática: " + error.getMessage()));
+                        }
+                        if (!connected) {
+                            throw new CompletionException(
+                                    new ISOException("No se pudo establecer conexión después de reconexión"));
+                        }
+                        logger.info("✅ Reconexión exitosa");
+                        return true;
+                    })
+                    .thenCompose(reconnected -> sendPooled(request));
+        }
 
-                if (e instanceof IOException) {
-                    logger.info("🔄 Intentando reconexión automática...");
-                    CompletableFuture.runAsync(this::reconnect);
-                }
+        return sendPooled(request);
+    }
 
-                throw new RuntimeException("Error enviando mensaje: " + e.getMessage(), e);
-            }
+    /**
+     * Reserva un lugar en el pool (esperando con plazo si están todos ocupados) y envía por ese canal
+     */
+    private CompletableFuture<ISOMsg> sendPooled(ISOMsg request) {
+        return connectionPool.acquire().thenCompose(channel -> {
+            CompletableFuture<ISOMsg> response = channel.send(request, config.getSwitch().getTimeout());
+            response.whenComplete((result, error) -> connectionPool.release(channel));
+            return response;
         });
     }
 
     /**
-     * Limpia requests pendientes que han expirado
+     * Echo 0800 sobre un canal puntual del pool
      */
-    private void cleanupExpiredRequests() {
-        long currentTime = System.currentTimeMillis();
-        long timeoutMs = config.getSwitch().getTimeout();
-
-        pendingRequests.entrySet().removeIf(entry -> {
-            PendingRequest pending = entry.getValue();
-            if (currentTime - pending.timestamp > timeoutMs) {
-                logger.warn("🧹 Limpiando request expirado - STAN: {}",
-                        pending.request.getString(11));
-                pending.future.completeExceptionally(
-                        new ISOException("Request expirado"));
-                return true;
-            }
+    private CompletableFuture<Boolean> validateChannel(MuxChannel channel) {
+        ISOMsg echo;
+        try {
+            echo = createNetworkTestMessage();
+        } catch (ISOException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return channel.send(echo, config.getSwitch().getTimeout())
+                .thenApply(this::isSuccessfulEcho)
+                .exceptionally(error -> {
+                    logger.debug("Echo 0800 del canal {} falló: {}", channel.getId(), error.getMessage());
+                    return false;
+                });
+    }
+
+    private boolean isSuccessfulEcho(ISOMsg response) {
+        try {
+            String responseCode = response.getString(39);
+            return "0810".equals(response.getMTI()) && (responseCode == null || "00".equals(responseCode));
+        } catch (ISOException e) {
             return false;
-        });
+        }
     }
 
     /**
@@ -413,35 +298,10 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
             logger.info("🔌 Iniciando desconexión...");
 
             shouldKeepAlive = false;
-            shouldListen = false;
             isConnected.set(false);
 
-            // Completar todos los requests pendientes con error
-            int pendingCount = pendingRequests.size();
-            if (pendingCount > 0) {
-                logger.warn("⚠️ Completando {} requests pendientes con error", pendingCount);
-                for (PendingRequest pending : pendingRequests.values()) {
-                    pending.future.completeExceptionally(
-                            new ISOException("Conexión cerrada"));
-                }
-                pendingRequests.clear();
-            }
-
-            // Detener Response Listener
-            if (responseListenerThread != null && responseListenerThread.isAlive()) {
-                logger.debug("🛑 Deteniendo Response Listener...");
-                responseListenerThread.interrupt();
-                try {
-                    responseListenerThread.join(2000);
-                    logger.debug("✅ Response Listener detenido");
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.warn("⚠️ Timeout deteniendo Response Listener");
-                }
-            }
-
             // Detener Keep Alive
-            if (keepAliveThread != null && keepAliveThread.isAlive()) {
+            if (keepAliveThread != null && keepAliveThread.isAlive() && keepAliveThread != Thread.currentThread()) {
                 logger.debug("🛑 Deteniendo Keep Alive...");
                 keepAliveThread.interrupt();
                 try {
@@ -453,20 +313,8 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
                 }
             }
 
-            // Desconectar canal
-            ASCIIChannel channel = currentChannel.get();
-            if (channel != null) {
-                try {
-                    if (channel.isConnected()) {
-                        logger.debug("🔌 Desconectando canal ASCIIChannel...");
-                        channel.disconnect();
-                        logger.debug("✅ Canal desconectado");
-                    }
-                } catch (Exception e) {
-                    logger.warn("⚠️ Error desconectando canal: {}", e.getMessage());
-                }
-                currentChannel.set(null);
-            }
+            // Cerrar canales: completa con error los requests pendientes de cada MUX
+            connectionPool.shutdown();
 
             logger.info("✅ Desconexión completada");
         } catch (Exception e) {
@@ -477,8 +325,10 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
     // *** MÉTODOS REQUERIDOS POR CONTROLLER ***
 
     public void clearResponseBuffer() {
-        int clearedCount = pendingRequests.size();
-        pendingRequests.clear();
+        int clearedCount = 0;
+        for (MuxChannel channel : connectionPool.getChannels()) {
+            clearedCount += channel.clearPending();
+        }
         logger.info("🧹 Buffer limpiado - {} requests pendientes eliminados", clearedCount);
     }
 
@@ -580,22 +430,6 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
 
     // *** MÉTODOS UTILITARIOS ***
 
-    private void initializePackager() throws ISOException {
-        try {
-            packager = new GenericPackager("packagers/iso87ascii.xml");
-            logger.info("Packager inicializado desde packagers/iso87ascii.xml");
-        } catch (Exception e) {
-            logger.warn("Packager personalizado no encontrado, usando genérico: {}", e.getMessage());
-            try {
-                packager = new GenericPackager("jar:packager/iso87ascii.xml");
-                logger.info("Packager genérico inicializado");
-            } catch (Exception e2) {
-                logger.error("Error inicializando packager: {}", e2.getMessage(), e2);
-                throw new ISOException("No se pudo inicializar packager", e2);
-            }
-        }
-    }
-
     private void startKeepAlive() {
         long keepAliveInterval = 900000L; // 15 minutos por defecto
 
@@ -616,9 +450,6 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
                         if (isConnected.get()) {
                             logger.debug("🔄 Keep-alive programado...");
                             testConnection();
-
-                            // Aprovechar para limpiar requests expirados
-                            cleanupExpiredRequests();
                         }
 
                     } catch (InterruptedException e) {
@@ -636,16 +467,45 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
         }
     }
 
-    private void reconnect() {
-        int maxAttempts = 3; // Default si config no está disponible
-        long delay = 5000; // Default 5 segundos
-
-        try {
-            maxAttempts = config.getConnection().getMaxReconnectAttempts();
-            delay = config.getSwitch().getRetry().getDelay();
-        } catch (Exception e) {
-            logger.warn("⚠️ Usando valores por defecto para reconexión: maxAttempts={}, delay={}ms", maxAttempts, delay);
+    /**
+     * Reconexión en curso, o una nueva si no hay ninguna. Todos los llamadores reciben el mismo future
+     */
+    private CompletableFuture<Boolean> startReconnect() {
+        while (true) {
+            CompletableFuture<Boolean> current = reconnecting.get();
+            if (current != null) {
+                return current;
+            }
+            CompletableFuture<Boolean> started = new CompletableFuture<>();
+            if (reconnecting.compareAndSet(null, started)) {
+                CompletableFuture<Boolean> attempts;
+                try {
+                    attempts = CompletableFuture.supplyAsync(this::reconnect, reconnectExecutor);
+                } catch (RejectedExecutionException e) {
+                    attempts = CompletableFuture.failedFuture(e); // Apagando
+                }
+                attempts.whenComplete((connected, error) -> {
+                    // Liberar antes de completar: quien reaccione al resultado puede iniciar otra reconexión
+                    reconnecting.compareAndSet(started, null);
+                    if (error != null) {
+                        started.completeExceptionally(error);
+                    } else {
+                        started.complete(connected);
+                    }
+                });
+                return started;
+            }
         }
+    }
+
+    /**
+     * Reintentos de conexión; sólo se ejecuta desde {@link #startReconnect()}
+     *
+     * @return true si alguno de los intentos conectó
+     */
+    private boolean reconnect() {
+        int maxAttempts = reconnectAttempts();
+        long delay = reconnectDelayMs();
 
         for (int attempt = 1; attempt <= maxAttempts; attempt++) {
             try {
@@ -654,19 +514,49 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
                 disconnect();
                 Thread.sleep(delay);
 
-                if (connect().get(30, TimeUnit.SECONDS)) {
+                // En este mismo thread: sin encolar en el pool común ni esperar con get()
+                if (establish()) {
                     logger.info("✅ Reconexión exitosa en intento {}", attempt);
-                    return;
+                    return true;
                 } else {
                     logger.warn("❌ Reconexión falló en intento {}", attempt);
                 }
 
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.info("Reconexión cancelada");
+                return false;
             } catch (Exception e) {
                 logger.warn("❌ Intento de reconexión {} falló: {}", attempt, e.getMessage());
             }
         }
 
         logger.error("💥 No se pudo reconectar después de {} intentos", maxAttempts);
+        return false;
+    }
+
+    private int reconnectAttempts() {
+        try {
+            return Math.max(1, config.getConnection().getMaxReconnectAttempts());
+        } catch (Exception e) {
+            return 3; // Default si config no está disponible
+        }
+    }
+
+    private long reconnectDelayMs() {
+        try {
+            return Math.max(0, config.getSwitch().getRetry().getDelay());
+        } catch (Exception e) {
+            return 5000; // Default 5 segundos
+        }
+    }
+
+    /**
+     * Peor caso de una reconexión completa: por intento, la espera más conexión y echo 0800 con su timeout cada uno
+     */
+    private long reconnectBudgetMs() {
+        long attemptMs = reconnectDelayMs() + 2L * config.getSwitch().getTimeout();
+        return reconnectAttempts() * attemptMs;
     }
 
     private ISOMsg createNetworkTestMessage() throws ISOException {
@@ -679,51 +569,45 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
     }
 
     private String getCurrentTransmissionDateTime() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMddHHmmss"));
+        return CoarseClock.SYSTEM.format("MMddHHmmss");
     }
 
     private String getCurrentTime() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("HHmmss"));
+        return CoarseClock.SYSTEM.format("HHmmss");
     }
 
     private String getCurrentDate() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMdd"));
+        return CoarseClock.SYSTEM.format("MMdd");
     }
 
     private String generateStan() {
-        int stan = stanSequence.getAndIncrement();
-        if (stan > 999999) {
-            stanSequence.set(1);
-            stan = 1;
-        }
-        return String.format("%06d", stan);
+        return sequenceService.nextStan();
     }
 
     private String generateRrn() {
-        String julian = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyDDD"));
-        String stan = generateStan();
-        String rrn = julian + stan;
-
-        if (rrn.length() > 12) {
-            rrn = rrn.substring(0, 12);
-        } else if (rrn.length() < 12) {
-            rrn = rrn + "0".repeat(12 - rrn.length());
-        }
-
-        return rrn;
+        return sequenceService.nextRrn();
     }
 
     // *** GETTERS Y CONFIGURACIÓN ***
 
     public boolean isConnected() { return isConnected.get(); }
     public String getLastError() { return lastError.get(); }
-    public String[] getOutputKeys() { return outputKeys.clone(); }
-    public int getPendingRequestsCount() { return pendingRequests.size(); }
+    public String[] getOutputKeys() { return outputKeyMatcher.getOutputKeys(); }
+    public int getPendingRequestsCount() { return connectionPool.getOutstandingRequests(); }
+    public long getTimeoutCount() { return statistics.timeouts.get(); }
+    public long getLateResponseCount() { return statistics.lateResponses.get(); }
+    public long getUnmatchedResponseCount() { return statistics.unmatchedResponses.get(); }
+    public ConnectionPool.PoolMetrics getPoolMetrics() { return connectionPool.getMetrics(); }
 
     public void configureOutputKeys(String[] newOutputKeys) {
         if (newOutputKeys != null && newOutputKeys.length > 0) {
-            this.outputKeys = newOutputKeys.clone();
-            logger.info("🔧 OutputKeys configurados: [{}]", String.join(", ", this.outputKeys));
+            try {
+                outputKeyMatcher.configure(newOutputKeys);
+            } catch (NumberFormatException e) {
+                logger.warn("⚠️ OutputKeys inválidos ({}), manteniendo configuración actual", e.getMessage());
+                return;
+            }
+            logger.info("🔧 OutputKeys configurados: [{}]", String.join(", ", outputKeyMatcher.getOutputKeys()));
         } else {
             logger.warn("⚠️ OutputKeys inválidos, manteniendo configuración actual");
         }
@@ -744,35 +628,34 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
         status.setPort(config.getSwitch().getPort());
         status.setLastConnectionAttempt(lastConnectionAttempt.get());
         status.setLastError(lastError.get());
-        status.setChannelType("PSEUDO-MUX con OutputKeys");
-        status.setPendingRequestsCount(pendingRequests.size());
-
-        ASCIIChannel channel = currentChannel.get();
-        if (channel != null) {
-            try {
-                status.setChannelConnected(channel.isConnected());
-                status.setSocketInfo(getSocketInfo(channel));
-            } catch (Exception e) {
-                status.setChannelConnected(false);
+        status.setTimeoutCount(statistics.timeouts.get());
+        status.setLateResponseCount(statistics.lateResponses.get());
+        status.setUnmatchedResponseCount(statistics.unmatchedResponses.get());
+
+        List<MuxChannel> channels = connectionPool.getChannels();
+        int pending = 0;
+        StringBuilder socketInfo = new StringBuilder();
+        for (MuxChannel channel : channels) {
+            pending += channel.getOutstanding();
+            if (socketInfo.length() > 0) {
+                socketInfo.append("; ");
             }
+            socketInfo.append("[").append(channel.getId()).append("] ").append(channel.getSocketInfo());
+        }
+        int activeChannels = connectionPool.getActiveConnections();
+        status.setChannelType("PSEUDO-MUX con OutputKeys (" + channels.size() + " canales, "
+                + config.getSwitch().getTransport() + ")");
+        status.setPoolSize(channels.size());
+        status.setActiveChannels(activeChannels);
+        status.setPendingRequestsCount(pending);
+        status.setChannelConnected(activeChannels > 0);
+        if (!channels.isEmpty()) {
+            status.setSocketInfo(socketInfo.toString());
         }
 
         return status;
     }
 
-    private String getSocketInfo(ASCIIChannel channel) {
-        try {
-            Socket socket = channel.getSocket();
-            if (socket != null) {
-                return String.format("Local: %s:%d, Remote: %s:%d",
-                        socket.getLocalAddress(), socket.getLocalPort(),
-                        socket.getRemoteSocketAddress(), socket.getPort());
-            }
-        } catch (Exception e) {
-            // Ignorar
-        }
-        return "Socket info no disponible";
-    }
 
     /**
      * Clase para estado de conexión
@@ -787,6 +670,11 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
         private String socketInfo;
         private String channelType;
         private int pendingRequestsCount;
+        private long timeoutCount;
+        private long lateResponseCount;
+        private long unmatchedResponseCount;
+        private int poolSize;
+        private int activeChannels;
 
         // Getters y setters
         public boolean isConnected() { return connected; }
@@ -815,5 +703,20 @@ public class ConnectionManager implements InitializingBean, DisposableBean {
 
         public int getPendingRequestsCount() { return pendingRequestsCount; }
         public void setPendingRequestsCount(int pendingRequestsCount) { this.pendingRequestsCount = pendingRequestsCount; }
+
+        public long getTimeoutCount() { return timeoutCount; }
+        public void setTimeoutCount(long timeoutCount) { this.timeoutCount = timeoutCount; }
+
+        public long getLateResponseCount() { return lateResponseCount; }
+        public void setLateResponseCount(long lateResponseCount) { this.lateResponseCount = lateResponseCount; }
+
+        public long getUnmatchedResponseCount() { return unmatchedResponseCount; }
+        public void setUnmatchedResponseCount(long unmatchedResponseCount) { this.unmatchedResponseCount = unmatchedResponseCount; }
+
+        public int getPoolSize() { return poolSize; }
+        public void setPoolSize(int poolSize) { this.poolSize = poolSize; }
+
+        public int getActiveChannels() { return activeChannels; }
+        public void setActiveChannels(int activeChannels) { this.activeChannels = activeChannels; }
     }
 }
\ No newline at end of file
@@ -1,147 +1,541 @@
 package com.iso8583.simulator.core.connection;
 
-import org.jpos.iso.ISOChannel;
-import org.jpos.iso.channel.ASCIIChannel;
-import org.jpos.iso.packager.GenericPackager;
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import org.jpos.iso.ISOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.net.Socket;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Pool de conexiones para manejo eficiente de canales ISO8583
+ * Pool de canales ISO8583 persistentes, cada uno con su propio PSEUDO-MUX.
+ * Lo que se presta no es el socket sino un lugar de request en vuelo: {@link #acquire()}
+ * reserva uno en el canal menos cargado (o round-robin) y {@link #release(MuxChannel)} lo devuelve.
+ * Si todos los canales están llenos la adquisición espera, con plazo, a que se libere un lugar
+ * o a que el pool crezca, en vez de fallar de inmediato.
  */
 @Component
 public class ConnectionPool {
 
     private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
 
-    private final BlockingQueue<ISOChannel> availableChannels;
-    private final AtomicInteger activeConnections;
-    private final int maxPoolSize;
-    private final int initialPoolSize;
-    private final long maxIdleTime;
+    private static final long MAINTENANCE_PERIOD_MS = 1000;
 
-    private String host;
-    private int port;
-    private GenericPackager packager;
+    /**
+     * Abre un canal nuevo del pool
+     */
+    interface ChannelFactory {
+        MuxChannel open(int channelId) throws Exception;
+    }
+
+    /**
+     * Valida un canal abierto (echo 0800)
+     */
+    interface ChannelValidator {
+        CompletableFuture<Boolean> validate(MuxChannel channel);
+    }
 
-    public ConnectionPool() {
-        this.maxPoolSize = 10;
-        this.initialPoolSize = 2;
-        this.maxIdleTime = 300000; // 5 minutos
-        this.availableChannels = new LinkedBlockingQueue<>();
-        this.activeConnections = new AtomicInteger(0);
+    /**
+     * Adquisición en espera de un lugar libre
+     */
+    private static final class Waiter {
+        final CompletableFuture<MuxChannel> future = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+        volatile HashedWheelTimer.Timeout deadline;
     }
 
-    public void initialize(String host, int port, GenericPackager packager) {
-        this.host = host;
-        this.port = port;
-        this.packager = packager;
+    private final List<MuxChannel> channels = new CopyOnWriteArrayList<>();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Set<MuxChannel> healthChecks = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextChannelId = new AtomicInteger(1);
+    private final AtomicInteger roundRobinIndex = new AtomicInteger();
+    private final AtomicBoolean growing = new AtomicBoolean(false);
+
+    private volatile ChannelFactory factory;
+    private volatile ChannelValidator validator;
+    private volatile HashedWheelTimer timer;
+    private ScheduledExecutorService maintenance;
+    private volatile boolean active;
+
+    private volatile int initialPoolSize = 2;
+    private volatile int maxPoolSize = 10;
+    private volatile int maxInFlightPerChannel = 256;
+    private volatile boolean roundRobin;
+    private volatile long maxIdleTime = 300000;
+    private volatile long acquireTimeout = 5000;
+    private volatile long healthCheckInterval = 60000;
+    private volatile boolean validateOnCreate;
+
+    // Métricas
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong acquireTimeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong creationFailures = new AtomicLong();
+    private final AtomicLong totalCreationNanos = new AtomicLong();
+    private final AtomicLong lastCreationNanos = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+
+    /**
+     * Pre-calienta el pool abriendo en paralelo los canales iniciales y arranca el mantenimiento.
+     * Devuelve cuántos canales quedaron conectados.
+     */
+    int initialize(SimulatorConfiguration.SwitchConfig.ConnectionPool poolConfig, ChannelFactory factory,
+                   ChannelValidator validator, HashedWheelTimer timer) {
+        this.factory = factory;
+        this.validator = validator;
+        this.timer = timer;
+        this.maxPoolSize = Math.max(1, poolConfig.getMaxSize());
+        this.initialPoolSize = Math.max(1, Math.min(poolConfig.getInitialSize(), maxPoolSize));
+        this.maxInFlightPerChannel = Math.max(1, poolConfig.getMaxInFlightPerChannel());
+        this.roundRobin = "round-robin".equalsIgnoreCase(poolConfig.getSelectionStrategy());
+        this.maxIdleTime = poolConfig.getMaxIdleTime();
+        this.acquireTimeout = Math.max(0, poolConfig.getAcquireTimeout());
+        this.healthCheckInterval = poolConfig.getHealthCheckInterval();
+        this.validateOnCreate = poolConfig.isValidateOnCreate();
+        this.active = true;
 
-        // Crear conexiones iniciales
+        List<CompletableFuture<MuxChannel>> warming = new ArrayList<>();
         for (int i = 0; i < initialPoolSize; i++) {
-            try {
-                ISOChannel channel = createChannel();
-                if (channel != null) {
-                    availableChannels.offer(channel);
-                }
-            } catch (Exception e) {
-                logger.warn("No se pudo crear conexión inicial {}: {}", i, e.getMessage());
+            warming.add(CompletableFuture.supplyAsync(this::createChannel));
+        }
+        for (CompletableFuture<MuxChannel> pending : warming) {
+            MuxChannel channel = pending.join();
+            if (channel != null) {
+                channels.add(channel);
             }
         }
 
-        logger.info("Pool de conexiones inicializado con {} conexiones", availableChannels.size());
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ISO8583-PoolMaintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain,
+                MAINTENANCE_PERIOD_MS, MAINTENANCE_PERIOD_MS, TimeUnit.MILLISECONDS);
+
+        logger.info("Pool de conexiones inicializado con {} canales (máximo {}, selección {})",
+                channels.size(), maxPoolSize, roundRobin ? "round-robin" : "least-outstanding");
+        return channels.size();
+    }
+
+    /**
+     * Reserva un lugar de request en un canal. Se completa de inmediato si hay lugar;
+     * si no, espera hasta {@code acquire-timeout} mientras el pool crece o se liberan lugares.
+     */
+    CompletableFuture<MuxChannel> acquire() {
+        MuxChannel channel = reserve();
+        if (channel != null) {
+            acquisitions.incrementAndGet();
+            return CompletableFuture.completedFuture(channel);
+        }
+        if (!active) {
+            return CompletableFuture.failedFuture(new ISOException("Pool de conexiones cerrado"));
+        }
+
+        Waiter waiter = new Waiter();
+        waiting.incrementAndGet();
+        waiters.add(waiter);
+        waiter.deadline = timer.newTimeout(() -> expireWaiter(waiter), acquireTimeout, TimeUnit.MILLISECONDS);
+        growAsync();
+
+        // Doble chequeo: un lugar pudo liberarse antes de encolar
+        serveWaiters();
+        return waiter.future;
     }
 
-    public ISOChannel getChannel() throws Exception {
-        ISOChannel channel = availableChannels.poll();
+    /**
+     * Devuelve el lugar reservado por {@link #acquire()}; se entrega a la primera adquisición en espera
+     */
+    void release(MuxChannel channel) {
+        channel.releaseSlot();
+        if (!waiters.isEmpty()) {
+            serveWaiters();
+        }
+    }
 
-        if (channel == null || !channel.isConnected()) {
-            if (activeConnections.get() < maxPoolSize) {
-                channel = createChannel();
-                if (channel != null) {
-                    activeConnections.incrementAndGet();
+    private MuxChannel reserve() {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            MuxChannel candidate = roundRobin ? nextRoundRobin() : leastOutstanding();
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.tryReserve(maxInFlightPerChannel)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private MuxChannel leastOutstanding() {
+        MuxChannel best = null;
+        int bestOutstanding = maxInFlightPerChannel;
+        for (MuxChannel channel : channels) {
+            int outstanding = channel.getOutstanding();
+            if (outstanding < bestOutstanding && channel.isOpen()) {
+                best = channel;
+                bestOutstanding = outstanding;
+                if (outstanding == 0) {
+                    break;
                 }
-            } else {
-                throw new Exception("Pool de conexiones agotado");
             }
         }
+        return best;
+    }
 
-        return channel;
+    private MuxChannel nextRoundRobin() {
+        List<MuxChannel> snapshot = channels;
+        int size = snapshot.size();
+        for (int attempts = 0; attempts < size; attempts++) {
+            MuxChannel channel;
+            try {
+                channel = snapshot.get(Math.floorMod(roundRobinIndex.getAndIncrement(), size));
+            } catch (IndexOutOfBoundsException e) {
+                return leastOutstanding(); // El pool se achicó mientras se recorría
+            }
+            if (channel.isOpen() && channel.getOutstanding() < maxInFlightPerChannel) {
+                return channel;
+            }
+        }
+        return null;
     }
 
-    public void returnChannel(ISOChannel channel) {
-        if (channel != null && channel.isConnected()) {
-            availableChannels.offer(channel);
-        } else {
-            activeConnections.decrementAndGet();
+    private void serveWaiters() {
+        while (!waiters.isEmpty()) {
+            MuxChannel channel = reserve();
+            if (channel == null) {
+                return;
+            }
+            Waiter waiter = pollLiveWaiter();
+            if (waiter == null) {
+                channel.releaseSlot();
+                return;
+            }
+            if (!handOff(waiter, channel)) {
+                channel.releaseSlot(); // Venció mientras se le asignaba
+            }
         }
     }
 
-    public void closeChannel(ISOChannel channel) {
-        if (channel != null) {
+    private Waiter pollLiveWaiter() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (!waiter.future.isDone()) {
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private boolean handOff(Waiter waiter, MuxChannel channel) {
+        if (!waiter.future.complete(channel)) {
+            return false;
+        }
+        waiting.decrementAndGet();
+        HashedWheelTimer.Timeout deadline = waiter.deadline;
+        if (deadline != null) {
+            deadline.cancel();
+        }
+        long waited = System.nanoTime() - waiter.enqueuedAt;
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        return true;
+    }
+
+    private void expireWaiter(Waiter waiter) {
+        if (waiter.future.completeExceptionally(new ISOException(
+                "Pool de conexiones agotado: sin canal libre en " + acquireTimeout + "ms"))) {
+            waiting.decrementAndGet();
+            acquireTimeouts.incrementAndGet();
+            long waited = System.nanoTime() - waiter.enqueuedAt;
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            logger.warn("⏰ Adquisición de canal vencida tras {}ms - {}", acquireTimeout, getPoolStatus());
+        }
+    }
+
+    /**
+     * Abre canales en segundo plano mientras haya adquisiciones esperando o falten canales iniciales
+     */
+    private void growAsync() {
+        if (!active || channels.size() >= maxPoolSize || !growing.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
             try {
-                channel.disconnect();
-            } catch (Exception e) {
-                logger.warn("Error cerrando canal: {}", e.getMessage());
+                while (active && channels.size() < maxPoolSize
+                        && (waiting.get() > 0 || channels.size() < initialPoolSize)) {
+                    MuxChannel channel = createChannel();
+                    if (channel == null) {
+                        break;
+                    }
+                    if (!active) {
+                        channel.close("pool cerrado");
+                        break;
+                    }
+                    channels.add(channel);
+                    logger.info("📈 Pool ampliado a {} canales", channels.size());
+                    serveWaiters();
+                }
             } finally {
-                activeConnections.decrementAndGet();
+                growing.set(false);
             }
-        }
+        });
     }
 
-    private ISOChannel createChannel() throws Exception {
+    private MuxChannel createChannel() {
+        int channelId = nextChannelId.getAndIncrement();
+        long start = System.nanoTime();
         try {
-            ASCIIChannel channel = new ASCIIChannel(host, port, packager);
-            channel.setTimeout(30000); // 30 segundos
-            channel.connect();
-
-            logger.debug("Nueva conexión creada a {}:{}", host, port);
+            MuxChannel channel = factory.open(channelId);
+            if (validateOnCreate && !Boolean.TRUE.equals(validator.validate(channel).join())) {
+                validationFailures.incrementAndGet();
+                channel.close("echo 0800 inicial fallido");
+                throw new IOException("El canal no respondió el echo 0800");
+            }
+            long elapsed = System.nanoTime() - start;
+            created.incrementAndGet();
+            totalCreationNanos.addAndGet(elapsed);
+            lastCreationNanos.set(elapsed);
             return channel;
-
         } catch (Exception e) {
-            logger.error("Error creando canal: {}", e.getMessage());
-            throw e;
+            creationFailures.incrementAndGet();
+            logger.warn("No se pudo crear el canal {}: {}", channelId, e.getMessage());
+            return null;
         }
     }
 
-    public boolean testConnection() {
+    /**
+     * Mantenimiento periódico: desalojo de canales ociosos, echo 0800 y reposición del mínimo
+     */
+    private void maintain() {
         try {
-            Socket socket = new Socket(host, port);
-            socket.close();
-            return true;
+            long now = System.currentTimeMillis();
+            for (MuxChannel channel : channels) {
+                long idle = now - channel.getLastActivity();
+                if (maxIdleTime > 0 && idle >= maxIdleTime && channels.size() > initialPoolSize) {
+                    evictIfIdle(channel, idle);
+                } else if (healthCheckInterval > 0 && idle >= healthCheckInterval
+                        && channel.getOutstanding() == 0) {
+                    healthCheck(channel);
+                }
+            }
+
+            if (active && channels.size() < initialPoolSize) {
+                growAsync();
+            }
         } catch (Exception e) {
-            logger.debug("Test de conexión falló: {}", e.getMessage());
-            return false;
+            logger.warn("Error en mantenimiento del pool: {}", e.getMessage());
+        }
+    }
+
+    private void evictIfIdle(MuxChannel channel, long idle) {
+        // Sólo se retira si nadie tiene un lugar reservado; desde ahí ya no acepta reservas
+        if (channel.retireIfIdle()) {
+            channels.remove(channel);
+            channel.close("inactivo");
+            evicted.incrementAndGet();
+            logger.info("🧹 Canal {} desalojado tras {}ms sin actividad - quedan {}",
+                    channel.getId(), idle, channels.size());
+        }
+    }
+
+    private void healthCheck(MuxChannel channel) {
+        if (!healthChecks.add(channel)) {
+            return; // Ya hay un echo en curso para este canal
+        }
+        validator.validate(channel).whenComplete((valid, error) -> {
+            healthChecks.remove(channel);
+            if (!Boolean.TRUE.equals(valid)) {
+                validationFailures.incrementAndGet();
+                logger.warn("⚠️ Canal {} no respondió el echo 0800, se reemplaza", channel.getId());
+                if (channel.close("echo 0800 fallido")) {
+                    onChannelClosed(channel);
+                }
+            }
+        });
+    }
+
+    /**
+     * Un canal cayó: se retira y, si el pool quedó por debajo del tamaño inicial, se repone
+     */
+    void onChannelClosed(MuxChannel channel) {
+        channels.remove(channel);
+        logger.warn("⚠️ Canal {} retirado del pool - quedan {}", channel.getId(), channels.size());
+        if (active && channels.size() < initialPoolSize) {
+            growAsync();
         }
     }
 
+    List<MuxChannel> getChannels() {
+        return new ArrayList<>(channels);
+    }
+
     public int getActiveConnections() {
-        return activeConnections.get();
+        int open = 0;
+        for (MuxChannel channel : channels) {
+            if (channel.isOpen()) {
+                open++;
+            }
+        }
+        return open;
     }
 
-    public int getAvailableConnections() {
-        return availableChannels.size();
+    public int getOutstandingRequests() {
+        int outstanding = 0;
+        for (MuxChannel channel : channels) {
+            outstanding += channel.getOutstanding();
+        }
+        return outstanding;
+    }
+
+    public PoolMetrics getMetrics() {
+        PoolMetrics metrics = new PoolMetrics();
+        int idle = 0;
+        for (MuxChannel channel : channels) {
+            if (channel.getOutstanding() == 0) {
+                idle++;
+            }
+        }
+        long acquired = acquisitions.get();
+        long createdCount = created.get();
+
+        metrics.setSize(channels.size());
+        metrics.setMaxSize(maxPoolSize);
+        metrics.setBorrowed(getOutstandingRequests());
+        metrics.setIdle(idle);
+        metrics.setWaiting(waiting.get());
+        metrics.setAcquired(acquired);
+        metrics.setAcquireTimeouts(acquireTimeouts.get());
+        metrics.setAvgWaitMs(acquired > 0 ? totalWaitNanos.get() / 1_000_000.0 / acquired : 0);
+        metrics.setMaxWaitMs(maxWaitNanos.get() / 1_000_000.0);
+        metrics.setCreated(createdCount);
+        metrics.setCreationFailures(creationFailures.get());
+        metrics.setAvgCreationMs(createdCount > 0 ? totalCreationNanos.get() / 1_000_000.0 / createdCount : 0);
+        metrics.setLastCreationMs(lastCreationNanos.get() / 1_000_000.0);
+        metrics.setEvicted(evicted.get());
+        metrics.setValidationFailures(validationFailures.get());
+        return metrics;
     }
 
     public String getPoolStatus() {
-        return String.format("Activas: %d, Disponibles: %d, Máximo: %d",
-                activeConnections.get(), availableChannels.size(), maxPoolSize);
+        return String.format("Activas: %d, Pendientes: %d, En espera: %d, Máximo: %d",
+                getActiveConnections(), getOutstandingRequests(), waiting.get(), maxPoolSize);
     }
 
     public void shutdown() {
+        active = false;
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+            maintenance = null;
+        }
+
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.future.completeExceptionally(new ISOException("Pool de conexiones cerrado"))) {
+                waiting.decrementAndGet();
+                HashedWheelTimer.Timeout deadline = waiter.deadline;
+                if (deadline != null) {
+                    deadline.cancel();
+                }
+            }
+        }
+
+        if (channels.isEmpty()) {
+            return;
+        }
         logger.info("Cerrando pool de conexiones...");
 
-        while (!availableChannels.isEmpty()) {
-            ISOChannel channel = availableChannels.poll();
-            closeChannel(channel);
+        for (MuxChannel channel : channels) {
+            channel.close("cierre del pool");
         }
+        channels.clear();
 
         logger.info("Pool de conexiones cerrado");
     }
-}
\ No newline at end of file
+
+    /**
+     * Métricas del pool
+     */
+    public static class PoolMetrics {
+        private int size;
+        private int maxSize;
+        private int borrowed;
+        private int idle;
+        private int waiting;
+        private long acquired;
+        private long acquireTimeouts;
+        private double avgWaitMs;
+        private double maxWaitMs;
+        private long created;
+        private long creationFailures;
+        private double avgCreationMs;
+        private double lastCreationMs;
+        private long evicted;
+        private long validationFailures;
+
+        // Getters y setters
+        public int getSize() { return size; }
+        public void setSize(int size) { this.size = size; }
+
+        public int getMaxSize() { return maxSize; }
+        public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+        public int getBorrowed() { return borrowed; }
+        public void setBorrowed(int borrowed) { this.borrowed = borrowed; }
+
+        public int getIdle() { return idle; }
+        public void setIdle(int idle) { this.idle = idle; }
+
+        public int getWaiting() { return waiting; }
+        public void setWaiting(int waiting) { this.waiting = waiting; }
+
+        public long getAcquired() { return acquired; }
+        public void setAcquired(long acquired) { this.acquired = acquired; }
+
+        public long getAcquireTimeouts() { return acquireTimeouts; }
+        public void setAcquireTimeouts(long acquireTimeouts) { this.acquireTimeouts = acquireTimeouts; }
+
+        public double getAvgWaitMs() { return avgWaitMs; }
+        public void setAvgWaitMs(double avgWaitMs) { this.avgWaitMs = avgWaitMs; }
+
+        public double getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(double maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+        public long getCreated() { return created; }
+        public void setCreated(long created) { this.created = created; }
+
+        public long getCreationFailures() { return creationFailures; }
+        public void setCreationFailures(long creationFailures) { this.creationFailures = creationFailures; }
+
+        public double getAvgCreationMs() { return avgCreationMs; }
+        public void setAvgCreationMs(double avgCreationMs) { this.avgCreationMs = avgCreationMs; }
+
+        public double getLastCreationMs() { return lastCreationMs; }
+        public void setLastCreationMs(double lastCreationMs) { this.lastCreationMs = lastCreationMs; }
+
+        public long getEvicted() { return evicted; }
+        public void setEvicted(long evicted) { this.evicted = evicted; }
+
+        public long getValidationFailures() { return validationFailures; }
+        public void setValidationFailures(long validationFailures) { this.validationFailures = validationFailures; }
+    }
+}
@@ -0,0 +1,58 @@
+package com.iso8583.simulator.core.connection;
+
+import org.jpos.iso.ISOMsg;
+
+import java.io.IOException;
+
+/**
+ * Transporte de un canal ISO8583 hacia el autorizador: framing, lectura y escritura del socket.
+ * El PSEUDO-MUX ({@link MuxChannel}) sólo ve mensajes; cómo se mueven los bytes lo decide la implementación.
+ */
+interface IsoTransport {
+
+    /**
+     * Eventos del transporte hacia el MUX
+     */
+    interface Handler {
+        void onMessage(ISOMsg message);
+
+        /**
+         * El socket se cerró o falló; se notifica una sola vez
+         */
+        void onClosed(Exception cause);
+    }
+
+    /**
+     * Mensaje encolado para enviar
+     */
+    interface Outbound {
+        ISOMsg message();
+
+        /**
+         * true si ya no hace falta enviarlo (venció mientras esperaba en la cola)
+         */
+        boolean isCancelled();
+
+        void failed(Exception cause);
+
+        /**
+         * Frame completo (header incluido) a escribir sin empaquetar; null para el caso normal
+         */
+        default byte[] rawFrame() {
+            return null;
+        }
+    }
+
+    void open(Handler handler) throws IOException;
+
+    /**
+     * Encola el mensaje sin bloquear; los errores de ese mensaje llegan por {@link Outbound#failed}
+     */
+    void send(Outbound outbound);
+
+    boolean isConnected();
+
+    void close();
+
+    String getSocketInfo();
+}
@@ -0,0 +1,199 @@
+package com.iso8583.simulator.core.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapa long -> valor con direccionamiento abierto, particionado en segmentos con lock propio.
+ * Pensado para claves que ya son un hash de 64 bits: get/put/remove no crean objetos.
+ */
+final class LongKeyedIndex<V> {
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    LongKeyedIndex() {
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(INITIAL_SEGMENT_CAPACITY);
+        }
+    }
+
+    V get(long key) {
+        return segmentFor(key).get(key);
+    }
+
+    V put(long key, V value) {
+        return segmentFor(key).put(key, value, false);
+    }
+
+    V putIfAbsent(long key, V value) {
+        return segmentFor(key).put(key, value, true);
+    }
+
+    /**
+     * Elimina la entrada sólo si sigue apuntando a {@code value} (misma referencia)
+     */
+    boolean remove(long key, V value) {
+        return segmentFor(key).remove(key, value);
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Copia de los valores actuales; para rutas poco frecuentes (desconexión, limpieza)
+     */
+    List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            segment.copyValuesTo(values);
+        }
+        return values;
+    }
+
+    private Segment<V> segmentFor(long key) {
+        return segments[(int) (key >>> 60) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static final class Segment<V> {
+        private long[] keys;
+        private Object[] values;
+        private int mask;
+        private int size;
+
+        Segment(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            size = 0;
+        }
+
+        private int slot(long key) {
+            return (int) (key ^ (key >>> 29)) & mask;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V get(long key) {
+            int i = slot(key);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    return (V) values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V put(long key, V value, boolean onlyIfAbsent) {
+            int i = slot(key);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    V previous = (V) values[i];
+                    if (!onlyIfAbsent) {
+                        values[i] = value;
+                    }
+                    return previous;
+                }
+                i = (i + 1) & mask;
+            }
+
+            keys[i] = key;
+            values[i] = value;
+            if (++size > (values.length >>> 1)) {
+                resize();
+            }
+            return null;
+        }
+
+        synchronized boolean remove(long key, Object value) {
+            int i = slot(key);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    if (values[i] != value) {
+                        return false;
+                    }
+                    deleteAt(i);
+                    size--;
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void clear() {
+            allocate(INITIAL_SEGMENT_CAPACITY);
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized void copyValuesTo(List<V> target) {
+            for (Object value : values) {
+                if (value != null) {
+                    target.add((V) value);
+                }
+            }
+        }
+
+        /**
+         * Borrado con desplazamiento hacia atrás: mantiene las cadenas de sondeo sin tombstones
+         */
+        private void deleteAt(int hole) {
+            int i = (hole + 1) & mask;
+            while (values[i] != null) {
+                int home = slot(keys[i]);
+                boolean reachable = hole <= i
+                        ? (home > hole && home <= i)
+                        : (home > hole || home <= i);
+                if (!reachable) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[hole] = 0L;
+            values[hole] = null;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            allocate(oldValues.length << 1);
+            for (int j = 0; j < oldValues.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = slot(oldKeys[j]);
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                    size++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.iso8583.simulator.core.connection;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Un canal persistente al autorizador con su propio PSEUDO-MUX: índices de requests pendientes
+ * sobre un {@link IsoTransport}. Las respuestas sólo se buscan entre los requests enviados
+ * por este mismo socket.
+ */
+final class MuxChannel implements IsoTransport.Handler {
+
+    private static final Logger logger = LoggerFactory.getLogger(MuxChannel.class);
+
+    // Valor de outstanding de un canal retirado: ninguna reserva posterior puede superarlo
+    private static final int RETIRED = Integer.MAX_VALUE / 2;
+
+    /**
+     * Notificado una sola vez cuando el canal se cierra por error del socket
+     */
+    interface ClosedListener {
+        void onChannelClosed(MuxChannel channel);
+    }
+
+    private final int id;
+    private final IsoTransport transport;
+    private final OutputKeyMatcher matcher;
+    private final HashedWheelTimer timeoutWheel;
+    private final MuxStatistics statistics;
+    private final ClosedListener closedListener;
+
+    private final AtomicBoolean open = new AtomicBoolean(false);
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    // Clave compuesta de 64 bits calculada sobre los OutputKeys
+    private final LongKeyedIndex<PendingRequest> pendingRequests = new LongKeyedIndex<>();
+    // Índices secundarios para el fallback: evitan recorrer todos los pendientes
+    private final Map<String, PendingRequest> pendingByStan = new ConcurrentHashMap<>();
+    private final LongKeyedIndex<PendingRequest> pendingByStanRrn = new LongKeyedIndex<>();
+
+    // Requests vencidos recientemente: permiten distinguir respuestas tardías de un NO MATCH real
+    private final LongKeyedIndex<PendingRequest> expiredRequests = new LongKeyedIndex<>();
+    private final Map<String, PendingRequest> expiredByStan = new ConcurrentHashMap<>();
+
+    /**
+     * Clase para manejar requests pendientes; es a la vez el mensaje encolado en el transporte
+     */
+    private class PendingRequest implements IsoTransport.Outbound {
+        final ISOMsg request;
+        final CompletableFuture<ISOMsg> future;
+        final long timestamp;
+        final long matchKey;
+        final String stan;
+        final String rrn;
+        volatile HashedWheelTimer.Timeout timeoutTask;
+
+        PendingRequest(ISOMsg request, CompletableFuture<ISOMsg> future, long matchKey) {
+            this.request = request;
+            this.future = future;
+            this.timestamp = System.currentTimeMillis();
+            this.matchKey = matchKey;
+            this.stan = request.getString(11);
+            this.rrn = request.getString(37);
+        }
+
+        void cancelTimeout() {
+            HashedWheelTimer.Timeout task = timeoutTask;
+            if (task != null) {
+                task.cancel();
+            }
+        }
+
+        @Override
+        public ISOMsg message() {
+            return request;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isDone();
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            // Limpiar request pendiente si falla el envío
+            unregisterPending(this);
+            cancelTimeout();
+            if (future.completeExceptionally(
+                    new ISOException("Error enviando mensaje: " + cause.getMessage(), cause))) {
+                logger.error("❌ Error enviando mensaje por canal {}: {}", id, cause.getMessage());
+            }
+        }
+    }
+
+    MuxChannel(int id, IsoTransport transport, OutputKeyMatcher matcher, HashedWheelTimer timeoutWheel,
+               MuxStatistics statistics, ClosedListener closedListener) {
+        this.id = id;
+        this.transport = transport;
+        this.matcher = matcher;
+        this.timeoutWheel = timeoutWheel;
+        this.statistics = statistics;
+        this.closedListener = closedListener;
+    }
+
+    /**
+     * Conecta el transporte; desde ahí las respuestas llegan por {@link #onMessage}
+     */
+    void open() throws IOException {
+        transport.open(this);
+        open.set(true);
+        lastActivity = System.currentTimeMillis();
+
+        logger.debug("✅ Canal {} conectado: {}", id, getSocketInfo());
+    }
+
+    int getId() { return id; }
+    boolean isOpen() { return open.get() && transport.isConnected(); }
+    int getOutstanding() { return outstanding.get(); }
+    long getLastActivity() { return lastActivity; }
+
+    /**
+     * Reserva un lugar de request en vuelo si el canal está abierto y no superó {@code maxInFlight}
+     */
+    boolean tryReserve(int maxInFlight) {
+        while (open.get()) {
+            int current = outstanding.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+            if (outstanding.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void releaseSlot() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Deja de aceptar reservas si no hay ningún lugar tomado; usado para desalojar canales ociosos
+     */
+    boolean retireIfIdle() {
+        return outstanding.compareAndSet(0, RETIRED);
+    }
+
+    /**
+     * Registra el request en el MUX, programa su timeout y lo encola en el writer.
+     * Devuelve el future de inmediato. Los lugares en vuelo los administra el pool.
+     */
+    CompletableFuture<ISOMsg> send(ISOMsg request, long timeoutMs) {
+        long matchKey = matcher.matchKey(request);
+
+        CompletableFuture<ISOMsg> responseFuture = new CompletableFuture<>();
+        PendingRequest pendingRequest = new PendingRequest(request, responseFuture, matchKey);
+
+        lastActivity = pendingRequest.timestamp;
+        registerPending(pendingRequest);
+
+        pendingRequest.timeoutTask = timeoutWheel.newTimeout(
+                () -> expire(pendingRequest, timeoutMs), timeoutMs, TimeUnit.MILLISECONDS);
+
+        try {
+            // describe() arma un String por request: sólo con DEBUG activo, fuera del camino normal de envío
+            if (logger.isDebugEnabled()) {
+                logger.debug("📤 ENVIANDO - MTI: {}, STAN: {}, Match Key: {} [PSEUDO-MUX canal {}]",
+                        request.getMTI(), pendingRequest.stan, matcher.describe(request), id);
+            }
+            transport.send(pendingRequest);
+        } catch (Exception e) {
+            pendingRequest.failed(e);
+        }
+
+        return responseFuture;
+    }
+
+    @Override
+    public void onMessage(ISOMsg response) {
+        lastActivity = System.currentTimeMillis();
+        processResponse(response);
+    }
+
+    @Override
+    public void onClosed(Exception cause) {
+        if (close("conexión perdida: " + cause.getMessage())) {
+            closedListener.onChannelClosed(this);
+        }
+    }
+
+    /**
+     * Procesa respuesta recibida y la matchea con request pendiente
+     */
+    private void processResponse(ISOMsg response) {
+        try {
+            String responseStan = response.getString(11);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("📥 Respuesta recibida en canal {} - MTI: {}, STAN: {}, Code: {}",
+                        id, response.getMTI(), responseStan, response.getString(39));
+            }
+
+            long matchKey = matcher.matchKey(response);
+            PendingRequest pendingRequest = findMatchingRequest(matchKey, response);
+
+            if (pendingRequest != null) {
+                unregisterPending(pendingRequest);
+                pendingRequest.cancelTimeout();
+
+                long responseTime = System.currentTimeMillis() - pendingRequest.timestamp;
+                logger.debug("✅ MATCH ENCONTRADO - Request STAN: {}, Response STAN: {}, {}ms",
+                        pendingRequest.stan, responseStan, responseTime);
+
+                pendingRequest.future.complete(response);
+
+            } else if (isLateResponse(matchKey, response)) {
+                statistics.lateResponses.incrementAndGet();
+                logger.warn("🐢 RESPUESTA TARDÍA - Response STAN: {} llegó después del timeout", responseStan);
+            } else {
+                statistics.unmatchedResponses.incrementAndGet();
+                logger.warn("⚠️ NO MATCH - Response STAN: {}, Match Key: {}", responseStan, matcher.describe(response));
+                logger.debug("Requests pendientes en canal {}: {}", id, pendingRequests.size());
+            }
+
+        } catch (Exception e) {
+            logger.error("Error procesando respuesta: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Busca request pendiente que coincida con la respuesta
+     */
+    private PendingRequest findMatchingRequest(long responseMatchKey, ISOMsg response) {
+        // Buscar por match key exacto primero (el hash se confirma comparando los campos)
+        PendingRequest exactMatch = pendingRequests.get(responseMatchKey);
+        if (exactMatch != null && matcher.sameOutputKeys(exactMatch.request, response)) {
+            return exactMatch;
+        }
+
+        // Si no hay match exacto (el autorizador reescribió campo 7, omitió el 41...), usar índices
+        String responseStan = response.getString(11);
+        if (responseStan != null) {
+            String responseRrn = response.getString(37);
+            if (responseRrn != null) {
+                PendingRequest stanRrnMatch = pendingByStanRrn.get(OutputKeyMatcher.stanRrnKey(responseStan, responseRrn));
+                if (stanRrnMatch != null && responseRrn.equals(stanRrnMatch.rrn)
+                        && responseStan.equals(stanRrnMatch.stan)) {
+                    logger.debug("Match por STAN+RRN fallback: {}/{}", responseStan, responseRrn);
+                    return stanRrnMatch;
+                }
+            }
+
+            PendingRequest stanMatch = pendingByStan.get(responseStan);
+            if (stanMatch != null) {
+                logger.debug("Match por STAN fallback: {}", responseStan);
+                return stanMatch;
+            }
+        }
+
+        return null;
+    }
+
+    private void registerPending(PendingRequest pending) {
+        pendingRequests.put(pending.matchKey, pending);
+        if (pending.stan != null) {
+            pendingByStan.putIfAbsent(pending.stan, pending);
+            if (pending.rrn != null) {
+                pendingByStanRrn.putIfAbsent(OutputKeyMatcher.stanRrnKey(pending.stan, pending.rrn), pending);
+            }
+        }
+    }
+
+    private void unregisterPending(PendingRequest pending) {
+        pendingRequests.remove(pending.matchKey, pending);
+        if (pending.stan != null) {
+            pendingByStan.remove(pending.stan, pending);
+            if (pending.rrn != null) {
+                pendingByStanRrn.remove(OutputKeyMatcher.stanRrnKey(pending.stan, pending.rrn), pending);
+            }
+        }
+    }
+
+    /**
+     * Disparado por la rueda cuando vence el plazo de un request
+     */
+    private void expire(PendingRequest pendingRequest, long timeoutMs) {
+        unregisterPending(pendingRequest);
+        if (pendingRequest.future.completeExceptionally(
+                new ISOException("Timeout: No se recibió respuesta del autorizador"))) {
+            statistics.timeouts.incrementAndGet();
+            logger.error("⏰ TIMEOUT - STAN: {}, {}ms, canal {}", pendingRequest.stan, timeoutMs, id);
+            rememberExpired(pendingRequest, timeoutMs);
+        }
+    }
+
+    /**
+     * Conserva el request vencido durante otro plazo de timeout para reconocer su respuesta tardía
+     */
+    private void rememberExpired(PendingRequest pendingRequest, long windowMs) {
+        expiredRequests.put(pendingRequest.matchKey, pendingRequest);
+        if (pendingRequest.stan != null) {
+            expiredByStan.put(pendingRequest.stan, pendingRequest);
+        }
+        timeoutWheel.newTimeout(() -> forgetExpired(pendingRequest), windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void forgetExpired(PendingRequest pendingRequest) {
+        expiredRequests.remove(pendingRequest.matchKey, pendingRequest);
+        if (pendingRequest.stan != null) {
+            expiredByStan.remove(pendingRequest.stan, pendingRequest);
+        }
+    }
+
+    private boolean isLateResponse(long matchKey, ISOMsg response) {
+        PendingRequest expired = expiredRequests.get(matchKey);
+        if (expired != null && matcher.sameOutputKeys(expired.request, response)) {
+            forgetExpired(expired);
+            return true;
+        }
+        String responseStan = response.getString(11);
+        if (responseStan != null) {
+            expired = expiredByStan.get(responseStan);
+            if (expired != null) {
+                forgetExpired(expired);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Descarta los requests pendientes sin completarlos (limpieza manual del buffer)
+     */
+    int clearPending() {
+        int cleared = pendingRequests.size();
+        pendingRequests.clear();
+        pendingByStan.clear();
+        pendingByStanRrn.clear();
+        return cleared;
+    }
+
+    /**
+     * Cierra el socket y completa con error los requests pendientes.
+     * Devuelve false si el canal ya estaba cerrado.
+     */
+    boolean close(String reason) {
+        if (!open.compareAndSet(true, false)) {
+            return false;
+        }
+        logger.info("🔌 Cerrando canal {} ({})", id, reason);
+
+        int pendingCount = pendingRequests.size();
+        if (pendingCount > 0) {
+            logger.warn("⚠️ Completando {} requests pendientes del canal {} con error", pendingCount, id);
+            for (PendingRequest pending : pendingRequests.values()) {
+                pending.cancelTimeout();
+                pending.future.completeExceptionally(new ISOException("Conexión cerrada"));
+            }
+        }
+        clearPending();
+
+        transport.close();
+        return true;
+    }
+
+    String getSocketInfo() {
+        return transport.getSocketInfo();
+    }
+}
@@ -0,0 +1,13 @@
+package com.iso8583.simulator.core.connection;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores del PSEUDO-MUX compartidos por todos los canales del pool
+ */
+final class MuxStatistics {
+
+    final AtomicLong timeouts = new AtomicLong();
+    final AtomicLong lateResponses = new AtomicLong();
+    final AtomicLong unmatchedResponses = new AtomicLong();
+}
@@ -0,0 +1,338 @@
+package com.iso8583.simulator.core.connection;
+
+import com.iso8583.simulator.core.message.Iso87AsciiCodec;
+import com.iso8583.simulator.core.message.Iso87AsciiView;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transporte NIO con el mismo framing que ASCIIChannel: 4 dígitos ASCII de longitud + mensaje.
+ * No tiene threads propios: lectura y escritura las hace el {@link NioEventLoop} asignado,
+ * sobre buffers directos reutilizados durante toda la vida de la conexión.
+ * Los mensajes encolados se escriben en lotes de hasta {@code maxBatch} frames, una escritura por lote.
+ * Con el codec compilado los mensajes se empaquetan directo en el buffer de escritura y se leen
+ * como offsets sobre el buffer de lectura, sin arrays intermedios.
+ * Sirve tanto para conexiones salientes (hacia el autorizador) como para conexiones ya aceptadas
+ * por {@link NioIsoServer}.
+ */
+final class NioChannelTransport implements IsoTransport, NioEventLoop.EventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(NioChannelTransport.class);
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024; // Entra siempre un frame completo
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final String host;
+    private final int port;
+    private final ISOPackager packager;
+    private final Iso87AsciiCodec codec;
+    private final Iso87AsciiView view;
+    private final int connectTimeout;
+    private final NioEventLoop loop;
+    private final int maxBatch;
+    private final long lingerNanos;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    // En modo escritura: lo que hay entre 0 y position está pendiente de enviar
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final Queue<Outbound> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean open = new AtomicBoolean(false);
+    private final Runnable flushTask = this::flush;
+
+    // Mensaje que no entró en el lote anterior (sólo event loop)
+    private Outbound carry;
+    private SocketChannel socketChannel;
+    private volatile SelectionKey key;
+    private Handler handler;
+
+    NioChannelTransport(String name, String host, int port, ISOPackager packager, Iso87AsciiCodec codec,
+                        int connectTimeout, NioEventLoop loop, int maxBatch, long lingerMicros) {
+        this.name = name;
+        this.host = host;
+        this.port = port;
+        this.packager = packager;
+        this.codec = codec;
+        this.view = codec != null ? new Iso87AsciiView(codec) : null;
+        this.connectTimeout = connectTimeout;
+        this.loop = loop;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.lingerNanos = Math.max(0, lingerMicros) * 1000;
+    }
+
+    /**
+     * Conexión entrante ya aceptada por un ServerSocketChannel
+     */
+    NioChannelTransport(String name, SocketChannel accepted, ISOPackager packager, Iso87AsciiCodec codec,
+                        NioEventLoop loop, int maxBatch, long lingerMicros) {
+        this(name, null, 0, packager, codec, 0, loop, maxBatch, lingerMicros);
+        this.socketChannel = accepted;
+    }
+
+    @Override
+    public void open(Handler handler) throws IOException {
+        this.handler = handler;
+        if (socketChannel != null) {
+            openAccepted();
+            return;
+        }
+        socketChannel = SocketChannel.open();
+        try {
+            socketChannel.socket().connect(new InetSocketAddress(host, port), connectTimeout);
+            socketChannel.socket().setTcpNoDelay(true);
+            socketChannel.configureBlocking(false);
+            open.set(true);
+            key = loop.register(socketChannel, SelectionKey.OP_READ, this)
+                    .get(connectTimeout, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            open.set(false);
+            socketChannel.close();
+            throw e;
+        } catch (Exception e) {
+            open.set(false);
+            socketChannel.close();
+            throw new IOException("No se pudo registrar el canal en el event loop: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * El registro no se espera: el primer evento de lectura llega por {@link #handle}, que fija la key
+     */
+    private void openAccepted() throws IOException {
+        try {
+            socketChannel.configureBlocking(false);
+            socketChannel.socket().setTcpNoDelay(true);
+        } catch (IOException e) {
+            socketChannel.close();
+            throw e;
+        }
+        open.set(true);
+        loop.register(socketChannel, SelectionKey.OP_READ, this).whenComplete((registered, e) -> {
+            if (e != null) {
+                failed(e instanceof Exception ? (Exception) e : new IOException(e));
+            }
+        });
+    }
+
+    @Override
+    public void send(Outbound message) {
+        if (!open.get()) {
+            message.failed(new IOException("Canal cerrado"));
+            return;
+        }
+        outbound.add(message);
+        if (queued.incrementAndGet() == maxBatch) {
+            // Lote completo: no tiene sentido seguir esperando el linger
+            loop.execute(flushTask);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            if (lingerNanos > 0) {
+                loop.schedule(flushTask, lingerNanos);
+            } else {
+                loop.execute(flushTask);
+            }
+        }
+    }
+
+    @Override
+    public void handle(SelectionKey selectionKey) throws IOException {
+        if (key == null) {
+            key = selectionKey;
+        }
+        if (selectionKey.isReadable()) {
+            read();
+        }
+        if (selectionKey.isValid() && selectionKey.isWritable()) {
+            flush();
+        }
+    }
+
+    /**
+     * Event loop: arma lotes de hasta {@code maxBatch} frames en el buffer directo
+     * y escribe cada lote con una sola llamada. Si el socket no acepta todo,
+     * espera OP_WRITE sin soltar el flush.
+     */
+    private void flush() {
+        if (!open.get()) {
+            return;
+        }
+        try {
+            while (true) {
+                fillBatch();
+                if (writeBuffer.position() == 0) {
+                    break;
+                }
+
+                writeBuffer.flip();
+                socketChannel.write(writeBuffer);
+                boolean drained = !writeBuffer.hasRemaining();
+                writeBuffer.compact();
+                if (!drained) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+
+            key.interestOps(SelectionKey.OP_READ);
+            flushScheduled.set(false);
+            if (queued.get() > 0 && flushScheduled.compareAndSet(false, true)) {
+                loop.execute(flushTask);
+            }
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Agrega frames al buffer hasta completar el lote o hasta que el próximo no entre
+     */
+    private void fillBatch() {
+        for (int batched = 0; batched < maxBatch; ) {
+            Outbound next = carry;
+            carry = null;
+            if (next == null) {
+                next = outbound.poll();
+                if (next == null) {
+                    return;
+                }
+                queued.decrementAndGet();
+            }
+            if (next.isCancelled()) {
+                continue;
+            }
+            int result = AsciiFraming.encode(next, packager, codec, writeBuffer);
+            if (result == AsciiFraming.NO_ROOM) {
+                carry = next;
+                return;
+            }
+            if (result == AsciiFraming.FRAMED) {
+                batched++;
+            }
+        }
+    }
+
+    /**
+     * Event loop: lee lo disponible y despacha cada frame completo
+     */
+    private void read() throws IOException {
+        int read = socketChannel.read(readBuffer);
+        if (read < 0) {
+            throw new EOFException("Conexión cerrada por el otro extremo");
+        }
+
+        readBuffer.flip();
+        while (readBuffer.remaining() >= AsciiFraming.HEADER_LENGTH) {
+            int start = readBuffer.position();
+            int length = AsciiFraming.readLength(readBuffer, start);
+            if (length < 0) {
+                throw new IOException("Header de longitud inválido en canal " + name);
+            }
+            if (readBuffer.remaining() < AsciiFraming.HEADER_LENGTH + length) {
+                break; // Frame incompleto: se espera el resto
+            }
+            dispatch(start + AsciiFraming.HEADER_LENGTH, length);
+            readBuffer.position(start + AsciiFraming.HEADER_LENGTH + length);
+        }
+        readBuffer.compact();
+    }
+
+    private void dispatch(int offset, int length) {
+        ISOMsg message;
+        try {
+            if (view != null) {
+                message = view.wrap(readBuffer, offset, length).toISOMsg(packager);
+            } else {
+                byte[] body = new byte[length];
+                readBuffer.position(offset);
+                readBuffer.get(body);
+                message = new ISOMsg();
+                message.setPackager(packager);
+                message.unpack(body);
+            }
+        } catch (ISOException e) {
+            // Mensaje que no se pudo desempaquetar: el socket sigue siendo válido
+            logger.warn("⚠️ ISO Error en canal {}: {}", name, e.getMessage());
+            return;
+        }
+        handler.onMessage(message);
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        if (open.get()) {
+            logger.warn("⚠️ Canal {} perdió la conexión: {}", name, cause.getMessage());
+            close();
+            handler.onClosed(cause);
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return open.get() && socketChannel.isConnected();
+    }
+
+    @Override
+    public void close() {
+        if (!open.compareAndSet(true, false)) {
+            return;
+        }
+        try {
+            // Cerrar el canal cancela su registro en el selector
+            socketChannel.close();
+        } catch (IOException e) {
+            logger.warn("⚠️ Error desconectando canal {}: {}", name, e.getMessage());
+        }
+
+        Outbound pending;
+        while ((pending = outbound.poll()) != null) {
+            queued.decrementAndGet();
+            pending.failed(new IOException("Conexión cerrada"));
+        }
+        // carry sólo se toca desde el event loop: el que no entró en el último lote se falla ahí
+        if (loop.inEventLoop()) {
+            failCarry();
+        } else {
+            loop.execute(this::failCarry);
+        }
+    }
+
+    private void failCarry() {
+        Outbound pending = carry;
+        carry = null;
+        if (pending != null) {
+            pending.failed(new IOException("Conexión cerrada"));
+        }
+    }
+
+    @Override
+    public String getSocketInfo() {
+        try {
+            Socket socket = socketChannel.socket();
+            if (socket != null && socket.isConnected()) {
+                return String.format("Local: %s:%d, Remote: %s:%d [NIO]",
+                        socket.getLocalAddress(), socket.getLocalPort(),
+                        socket.getRemoteSocketAddress(), socket.getPort());
+            }
+        } catch (Exception e) {
+            // Ignorar
+        }
+        return "Socket info no disponible";
+    }
+}
@@ -0,0 +1,188 @@
+package com.iso8583.simulator.core.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Un thread con un Selector que atiende todas las conexiones NIO que se le registran.
+ * Las operaciones sobre los canales (registro, cambio de interés, escritura) se encolan
+ * con {@link #execute(Runnable)} y corren siempre en este thread.
+ * {@link #schedule(Runnable, long)} admite plazos de microsegundos: por debajo del milisegundo
+ * (la resolución de select) el loop sondea con selectNow hasta el vencimiento.
+ */
+final class NioEventLoop {
+
+    private static final Logger logger = LoggerFactory.getLogger(NioEventLoop.class);
+
+    /**
+     * Atiende los eventos de una conexión registrada
+     */
+    interface EventHandler {
+        void handle(SelectionKey key) throws IOException;
+
+        void failed(Exception cause);
+    }
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Sólo accedida por el thread del loop
+    private final PriorityQueue<ScheduledTask> scheduledTasks = new PriorityQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    NioEventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inEventLoop() && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Ejecuta la tarea en el loop cuando pasen {@code delayNanos}
+     */
+    void schedule(Runnable task, long delayNanos) {
+        long deadline = System.nanoTime() + delayNanos;
+        execute(() -> scheduledTasks.add(new ScheduledTask(task, deadline)));
+    }
+
+    private static final class ScheduledTask implements Comparable<ScheduledTask> {
+        final Runnable task;
+        final long deadline;
+
+        ScheduledTask(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            return Long.compare(deadline - other.deadline, 0);
+        }
+    }
+
+    /**
+     * Registra el canal (ya en modo no bloqueante) con el handler como attachment
+     */
+    CompletableFuture<SelectionKey> register(SelectableChannel channel, int interestOps, EventHandler handler) {
+        CompletableFuture<SelectionKey> registered = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                registered.complete(channel.register(selector, interestOps, handler));
+            } catch (Exception e) {
+                registered.completeExceptionally(e);
+            }
+        });
+        return registered;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                select();
+                wakeupPending.set(false);
+                runTasks();
+                runScheduledTasks();
+
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    EventHandler handler = (EventHandler) key.attachment();
+                    try {
+                        if (key.isValid()) {
+                            handler.handle(key);
+                        }
+                    } catch (Exception e) {
+                        handler.failed(e);
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Exception e) {
+                logger.error("❌ Error inesperado en event loop {}: {}", thread.getName(), e.getMessage(), e);
+            }
+        }
+        runTasks();
+        logger.debug("🛑 Event loop {} detenido", thread.getName());
+    }
+
+    private void select() throws IOException {
+        if (!tasks.isEmpty()) {
+            // Tareas encoladas desde el propio loop mientras atendía eventos: no bloquear
+            selector.selectNow();
+            return;
+        }
+        ScheduledTask next = scheduledTasks.peek();
+        if (next == null) {
+            selector.select();
+            return;
+        }
+        long remaining = next.deadline - System.nanoTime();
+        if (remaining >= 1_000_000) {
+            selector.select(remaining / 1_000_000);
+        } else {
+            selector.selectNow();
+        }
+    }
+
+    private void runScheduledTasks() {
+        long now = System.nanoTime();
+        ScheduledTask next;
+        while ((next = scheduledTasks.peek()) != null && next.deadline - now <= 0) {
+            scheduledTasks.poll();
+            try {
+                next.task.run();
+            } catch (Exception e) {
+                logger.warn("Tarea programada del event loop falló: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.warn("Tarea del event loop falló: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+            selector.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("⚠️ Error cerrando selector: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.iso8583.simulator.core.connection;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conjunto fijo de event loops; cada conexión nueva se asigna round-robin a uno de ellos
+ */
+final class NioEventLoopGroup {
+
+    private final NioEventLoop[] loops;
+    private final AtomicInteger next = new AtomicInteger();
+
+    NioEventLoopGroup(String name, int threads) throws IOException {
+        loops = new NioEventLoop[Math.max(1, threads)];
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new NioEventLoop(name + "-" + (i + 1));
+            }
+        } catch (IOException e) {
+            shutdown();
+            throw e;
+        }
+    }
+
+    NioEventLoop next() {
+        return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+    }
+
+    int size() {
+        return loops.length;
+    }
+
+    void shutdown() {
+        for (NioEventLoop loop : loops) {
+            if (loop != null) {
+                loop.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.iso8583.simulator.core.connection;
+
+import com.iso8583.simulator.core.message.Iso87AsciiCodec;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor ISO8583 sobre NIO con el framing de ASCIIChannel (4 dígitos ASCII de longitud + mensaje).
+ * Un event loop acepta conexiones y las reparte round-robin entre los event loops de trabajo;
+ * cada conexión es un {@link NioChannelTransport} que lee, despacha y escribe respuestas por lotes
+ * sin threads propios. Las respuestas se envían cuando completa el future del {@link RequestHandler},
+ * en el orden en que completan (como un autorizador real, no en el orden de llegada).
+ */
+public final class NioIsoServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NioIsoServer.class);
+
+    /**
+     * Lógica de negocio del servidor: arma la respuesta de cada request.
+     * Un future que completa con null no genera respuesta (se cuenta en "dropped"); la conexión
+     * permite enviar mensajes o frames adicionales por el mismo socket, o cerrarlo. Lo enviado
+     * por la conexión no se cuenta como respuesta.
+     */
+    public interface RequestHandler {
+        CompletableFuture<ISOMsg> handle(ISOMsg request, ClientConnection connection) throws ISOException;
+    }
+
+    /**
+     * Conexión de un cliente vista desde el handler
+     */
+    public interface ClientConnection {
+        void send(ISOMsg message);
+
+        /**
+         * Escribe el frame tal cual, header incluido, sin validar ni empaquetar
+         */
+        void sendRaw(byte[] frame);
+
+        void close();
+
+        String getRemoteAddress();
+    }
+
+    private final String name;
+    private final String bindAddress;
+    private final int port;
+    private final int backlog;
+    private final int eventLoopThreads;
+    private final int writeBatchSize;
+    private final ISOPackager packager;
+    private final Iso87AsciiCodec codec;
+    private final RequestHandler requestHandler;
+
+    private final Set<NioChannelTransport> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong acceptedConnections = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong responses = new AtomicLong();
+    // Requests que el handler decidió no contestar (future completado con null), p.ej. fallas inyectadas
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private NioEventLoop acceptLoop;
+    private NioEventLoopGroup workers;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+    private volatile int boundPort;
+
+    public NioIsoServer(String name, String bindAddress, int port, int backlog, int eventLoopThreads,
+                        int writeBatchSize, ISOPackager packager, Iso87AsciiCodec codec,
+                        RequestHandler requestHandler) {
+        this.name = name;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.backlog = backlog;
+        this.eventLoopThreads = eventLoopThreads > 0 ? eventLoopThreads : Runtime.getRuntime().availableProcessors();
+        this.writeBatchSize = writeBatchSize;
+        this.packager = packager;
+        this.codec = codec;
+        this.requestHandler = requestHandler;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        workers = new NioEventLoopGroup(name, eventLoopThreads);
+        try {
+            acceptLoop = new NioEventLoop(name + "-accept");
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(bindAddress == null || bindAddress.isEmpty()
+                    ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port), backlog);
+            serverChannel.configureBlocking(false);
+            boundPort = serverChannel.socket().getLocalPort();
+            acceptLoop.register(serverChannel, SelectionKey.OP_ACCEPT, new Acceptor()).join();
+        } catch (Exception e) {
+            release();
+            throw e instanceof IOException ? (IOException) e
+                    : new IOException("No se pudo iniciar el servidor " + name + ": " + e.getMessage(), e);
+        }
+        running = true;
+        logger.info("🟢 Servidor {} escuchando en {}:{} ({} event loop(s))",
+                name, bindAddress == null || bindAddress.isEmpty() ? "*" : bindAddress, boundPort, workers.size());
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        release();
+        logger.info("🔴 Servidor {} detenido", name);
+    }
+
+    private void release() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Error cerrando socket del servidor {}: {}", name, e.getMessage());
+        }
+        for (NioChannelTransport connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+        if (acceptLoop != null) {
+            acceptLoop.shutdown();
+        }
+        if (workers != null) {
+            workers.shutdown();
+        }
+        serverChannel = null;
+        acceptLoop = null;
+        workers = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getPort() {
+        return running ? boundPort : port;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("running", running);
+        stats.put("port", getPort());
+        stats.put("eventLoopThreads", eventLoopThreads);
+        stats.put("compiledCodec", codec != null);
+        stats.put("activeConnections", connections.size());
+        stats.put("acceptedConnections", acceptedConnections.get());
+        stats.put("requests", requests.get());
+        stats.put("responses", responses.get());
+        stats.put("dropped", dropped.get());
+        stats.put("errors", errors.get());
+        return stats;
+    }
+
+    /**
+     * Event loop de aceptación: acepta todo lo pendiente y asigna cada conexión a un worker
+     */
+    private final class Acceptor implements NioEventLoop.EventHandler {
+
+        @Override
+        public void handle(SelectionKey key) throws IOException {
+            SocketChannel accepted;
+            while ((accepted = serverChannel.accept()) != null) {
+                String remoteAddress = String.valueOf(accepted.getRemoteAddress());
+                String connectionName = name + "-" + remoteAddress;
+                NioChannelTransport transport = new NioChannelTransport(connectionName, accepted,
+                        packager, codec, workers.next(), writeBatchSize, 0);
+                connections.add(transport);
+                try {
+                    transport.open(new Connection(transport, remoteAddress));
+                    acceptedConnections.incrementAndGet();
+                    logger.debug("🔌 Conexión aceptada en {}: {}", name, remoteAddress);
+                } catch (IOException e) {
+                    connections.remove(transport);
+                    logger.warn("⚠️ No se pudo abrir conexión entrante en {}: {}", name, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            if (running) {
+                logger.error("❌ Error aceptando conexiones en {}: {}", name, cause.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Eventos de una conexión de cliente: cada request va al handler y su respuesta vuelve por el mismo socket
+     */
+    private final class Connection implements IsoTransport.Handler, ClientConnection {
+        private final NioChannelTransport transport;
+        private final String remoteAddress;
+
+        Connection(NioChannelTransport transport, String remoteAddress) {
+            this.transport = transport;
+            this.remoteAddress = remoteAddress;
+        }
+
+        @Override
+        public void onMessage(ISOMsg request) {
+            requests.incrementAndGet();
+            CompletableFuture<ISOMsg> pending;
+            try {
+                pending = requestHandler.handle(request, this);
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                logger.warn("⚠️ Error procesando request en {}: {}", name, e.getMessage());
+                return;
+            }
+            pending.whenComplete((response, error) -> {
+                if (error != null) {
+                    errors.incrementAndGet();
+                    logger.debug("Request sin respuesta en {}: {}", name, error.getMessage());
+                } else if (response != null) {
+                    responses.incrementAndGet();
+                    send(response);
+                } else {
+                    dropped.incrementAndGet();
+                }
+            });
+        }
+
+        @Override
+        public void send(ISOMsg message) {
+            transport.send(new Reply(message, null));
+        }
+
+        @Override
+        public void sendRaw(byte[] frame) {
+            transport.send(new Reply(null, frame));
+        }
+
+        @Override
+        public void close() {
+            // close() local no notifica onClosed
+            connections.remove(transport);
+            transport.close();
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return remoteAddress;
+        }
+
+        @Override
+        public void onClosed(Exception cause) {
+            connections.remove(transport);
+            logger.debug("🔌 Conexión cerrada en {}: {}", name, cause.getMessage());
+        }
+    }
+
+    private final class Reply implements IsoTransport.Outbound {
+        private final ISOMsg response;
+        private final byte[] rawFrame;
+
+        Reply(ISOMsg response, byte[] rawFrame) {
+            this.response = response;
+            this.rawFrame = rawFrame;
+        }
+
+        @Override
+        public ISOMsg message() {
+            return response;
+        }
+
+        @Override
+        public byte[] rawFrame() {
+            return rawFrame;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            errors.incrementAndGet();
+            logger.debug("No se pudo enviar respuesta en {}: {}", name, cause.getMessage());
+        }
+    }
+}
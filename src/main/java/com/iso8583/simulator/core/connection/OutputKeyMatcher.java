@@ -0,0 +1,82 @@
+package com.iso8583.simulator.core.connection;
+
+import org.jpos.iso.ISOMsg;
+
+import java.util.Objects;
+
+/**
+ * OutputKeys del PSEUDO-MUX precompilados a números de campo.
+ * La clave de matching es un hash FNV-1a de 64 bits sobre número de campo y caracteres:
+ * calcularla no crea objetos, y la igualdad de campos la respalda ante colisiones.
+ */
+final class OutputKeyMatcher {
+
+    private static final long SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private volatile String[] outputKeys = {"3", "7", "11", "41"}; // Processing Code, DateTime, STAN, Terminal ID
+    private volatile int[] outputKeyFields = {3, 7, 11, 41};
+
+    String[] getOutputKeys() {
+        return outputKeys.clone();
+    }
+
+    /**
+     * Precompila los OutputKeys; lanza NumberFormatException si alguno no es numérico
+     */
+    void configure(String[] newOutputKeys) {
+        int[] fields = new int[newOutputKeys.length];
+        for (int i = 0; i < newOutputKeys.length; i++) {
+            fields[i] = Integer.parseInt(newOutputKeys[i].trim());
+        }
+        this.outputKeyFields = fields;
+        this.outputKeys = newOutputKeys.clone();
+    }
+
+    long matchKey(ISOMsg msg) {
+        long key = SEED;
+        for (int field : outputKeyFields) {
+            String value = msg.getString(field);
+            if (value != null) {
+                key = mixField(key, field, value);
+            }
+        }
+        return key;
+    }
+
+    boolean sameOutputKeys(ISOMsg request, ISOMsg response) {
+        for (int field : outputKeyFields) {
+            if (!Objects.equals(request.getString(field), response.getString(field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Representación legible de la clave, sólo para logs
+     */
+    String describe(ISOMsg msg) {
+        StringBuilder key = new StringBuilder();
+        for (int field : outputKeyFields) {
+            String value = msg.getString(field);
+            if (value != null) {
+                key.append(field).append(":").append(value).append("|");
+            }
+        }
+        return key.toString();
+    }
+
+    static long stanRrnKey(String stan, String rrn) {
+        return mixField(mixField(SEED, 11, stan), 37, rrn);
+    }
+
+    private static long mixField(long hash, int field, String value) {
+        hash = (hash ^ field) * PRIME;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * PRIME;
+        }
+        // Separador fuera del rango de caracteres para que "1"+"23" no coincida con "12"+"3"
+        return (hash ^ 0x10000) * PRIME;
+    }
+}
@@ -0,0 +1,79 @@
+package com.iso8583.simulator.core.message;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared wall clock with one-second resolution for date/time fields (7, 12, 13, 15...).
+ * The current second is an immutable tick; the first caller that needs a pattern within a
+ * tick formats it and every later caller in the same second gets that same String back.
+ * Patterns with fractions of a second bypass the tick and are formatted from the exact time.
+ */
+public final class CoarseClock {
+
+    public static final CoarseClock SYSTEM = new CoarseClock(ZoneId.systemDefault());
+
+    private final ZoneId zone;
+    private volatile Tick tick;
+
+    private static final class Tick {
+        final long epochSecond;
+        final LocalDateTime time;
+        final Map<String, String> formatted = new ConcurrentHashMap<>();
+
+        Tick(long epochSecond, ZoneId zone) {
+            this.epochSecond = epochSecond;
+            this.time = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+        }
+    }
+
+    public CoarseClock(ZoneId zone) {
+        this.zone = zone;
+        this.tick = new Tick(currentSecond(), zone);
+    }
+
+    /**
+     * Current time truncated to the second
+     */
+    public LocalDateTime now() {
+        return current().time;
+    }
+
+    /**
+     * Days since 1970-01-01 in this clock's zone
+     */
+    public long epochDay() {
+        return current().time.toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Current time in the given DateTimeFormatter pattern
+     */
+    public String format(String pattern) {
+        if (pattern.indexOf('S') >= 0 || pattern.indexOf('n') >= 0) {
+            return LocalDateTime.now(zone).format(FieldFormats.dateTime(pattern));
+        }
+        Tick current = current();
+        String value = current.formatted.get(pattern);
+        return value != null ? value
+                : current.formatted.computeIfAbsent(pattern, p -> current.time.format(FieldFormats.dateTime(p)));
+    }
+
+    private Tick current() {
+        long second = currentSecond();
+        Tick current = tick;
+        if (current.epochSecond != second) {
+            // Racing threads may each build a tick for the same second; any of them is correct
+            current = new Tick(second, zone);
+            tick = current;
+        }
+        return current;
+    }
+
+    private static long currentSecond() {
+        return Math.floorDiv(System.currentTimeMillis(), 1000L);
+    }
+}
@@ -0,0 +1,69 @@
+package com.iso8583.simulator.core.message;
+
+import java.text.DecimalFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Date and numeric formats used by field generation, compiled once per pattern and shared.
+ * DateTimeFormatter is immutable; numeric patterns made only of zeros ("000000") are written
+ * as fixed-width digits without DecimalFormat, any other pattern gets one DecimalFormat per thread.
+ */
+public final class FieldFormats {
+
+    private static final Map<String, DateTimeFormatter> DATE_TIME = new ConcurrentHashMap<>();
+    private static final Map<String, NumericFormat> NUMERIC = new ConcurrentHashMap<>();
+
+    private FieldFormats() {
+    }
+
+    /**
+     * Formats a long according to a DecimalFormat-style pattern
+     */
+    public interface NumericFormat {
+        String format(long value);
+    }
+
+    public static DateTimeFormatter dateTime(String pattern) {
+        DateTimeFormatter formatter = DATE_TIME.get(pattern);
+        return formatter != null ? formatter : DATE_TIME.computeIfAbsent(pattern, DateTimeFormatter::ofPattern);
+    }
+
+    public static NumericFormat numeric(String pattern) {
+        NumericFormat format = NUMERIC.get(pattern);
+        return format != null ? format : NUMERIC.computeIfAbsent(pattern, FieldFormats::compileNumeric);
+    }
+
+    /**
+     * Zero-padded decimal of exactly {@code width} digits; wider values are written in full,
+     * the same as DecimalFormat does
+     */
+    public static String zeroPadded(long value, int width) {
+        if (value < 0) {
+            return numeric(zeros(width)).format(value);
+        }
+        char[] digits = new char[width];
+        long remaining = value;
+        for (int i = width - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return remaining == 0 ? new String(digits) : Long.toString(value);
+    }
+
+    private static NumericFormat compileNumeric(String pattern) {
+        if (!pattern.isEmpty() && pattern.chars().allMatch(c -> c == '0')) {
+            int width = pattern.length();
+            ThreadLocal<DecimalFormat> negative = ThreadLocal.withInitial(() -> new DecimalFormat(pattern));
+            return value -> value < 0 ? negative.get().format(value) : zeroPadded(value, width);
+        }
+        new DecimalFormat(pattern); // Invalid patterns fail here, once
+        ThreadLocal<DecimalFormat> format = ThreadLocal.withInitial(() -> new DecimalFormat(pattern));
+        return value -> format.get().format(value);
+    }
+
+    private static String zeros(int width) {
+        return "0".repeat(width);
+    }
+}
@@ -2,18 +2,22 @@ package com.iso8583.simulator.core.message;
 
 import com.iso8583.simulator.core.config.FieldGenerationConfig;
 import com.iso8583.simulator.core.enums.FieldGenerationType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class FieldGenerator {
 
-    private final Map<String, AtomicInteger> sequentialCounters = new ConcurrentHashMap<>();
-    private final Map<String, String> lastResetDate = new ConcurrentHashMap<>();
+    private static final int STAN_FIELD = 11;
+
+    @Autowired
+    private SequenceService sequenceService;
+
+    // Per-field sequences live in SequenceService; this only avoids the name lookup per call
+    private final Map<Integer, SequenceService.Sequence> sequences = new ConcurrentHashMap<>();
+    private final CoarseClock clock = CoarseClock.SYSTEM;
 
     public String generateField(int fieldNumber, FieldGenerationConfig config,
                                 Map<String, String> csvData, Map<String, String> messageContext) {
@@ -33,7 +37,7 @@ public class FieldGenerator {
                 return generateDynamicField(config);
 
             case SEQUENTIAL:
-                return generateSequentialField(fieldNumber, config);
+                return nextSequential(fieldNumber, config);
 
             case TEMPLATE:
                 return generateTemplateField(config, csvData, messageContext);
@@ -47,30 +51,36 @@ public class FieldGenerator {
     }
 
     private String generateDynamicField(FieldGenerationConfig config) {
-        SimpleDateFormat sdf = new SimpleDateFormat(config.getFormat());
-        return sdf.format(new Date());
+        // Same String for every message within the same second
+        return clock.format(config.getFormat());
     }
 
-    private String generateSequentialField(int fieldNumber, FieldGenerationConfig config) {
-        String counterKey = "field_" + fieldNumber;
-
-        // Check if daily reset is needed
-        if (Boolean.TRUE.equals(config.getResetDaily())) {
-            String today = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
-            String lastReset = lastResetDate.get(counterKey);
-
-            if (!today.equals(lastReset)) {
-                sequentialCounters.put(counterKey, new AtomicInteger(config.getStartValue()));
-                lastResetDate.put(counterKey, today);
-            }
+    String nextSequential(int fieldNumber, FieldGenerationConfig config) {
+        SequenceService.Sequence sequence = sequences.get(fieldNumber);
+        if (sequence == null) {
+            sequence = sequences.computeIfAbsent(fieldNumber, k -> createSequence(k, config));
         }
+        return FieldFormats.numeric(config.getFormat()).format(sequence.next());
+    }
 
-        AtomicInteger counter = sequentialCounters.computeIfAbsent(
-                counterKey, k -> new AtomicInteger(config.getStartValue())
-        );
+    private SequenceService.Sequence createSequence(int fieldNumber, FieldGenerationConfig config) {
+        // STAN is shared with every other message producer (PSEUDO-MUX, echo tests...)
+        if (fieldNumber == STAN_FIELD) {
+            return sequenceService.getStanSequence();
+        }
+        return sequenceService.sequence("field-" + fieldNumber,
+                config.getStartValue() != null ? config.getStartValue() : 1,
+                maxFor(config.getFormat()),
+                config.getIncrement() != null ? config.getIncrement() : 1,
+                Boolean.TRUE.equals(config.getResetDaily()), 0);
+    }
 
-        DecimalFormat df = new DecimalFormat(config.getFormat());
-        return df.format(counter.getAndAdd(config.getIncrement()));
+    // "000000" wraps after 999999; other patterns only at Integer.MAX_VALUE
+    private static long maxFor(String format) {
+        if (format != null && !format.isEmpty() && format.length() < 10 && format.chars().allMatch(c -> c == '0')) {
+            return (long) Math.pow(10, format.length()) - 1;
+        }
+        return Integer.MAX_VALUE;
     }
 
     private String generateTemplateField(FieldGenerationConfig config,
@@ -103,8 +113,7 @@ public class FieldGenerator {
 
         switch (componentConfig.getType()) {
             case DYNAMIC:
-                SimpleDateFormat sdf = new SimpleDateFormat(componentConfig.getFormat());
-                return sdf.format(new Date());
+                return clock.format(componentConfig.getFormat());
 
             case REFERENCE:
                 return messageContext.get("field_" + componentConfig.getField());
@@ -124,14 +133,14 @@ public class FieldGenerator {
 
     // Reset all sequential counters (useful for testing)
     public void resetSequentialCounters() {
-        sequentialCounters.clear();
-        lastResetDate.clear();
+        sequences.values().forEach(SequenceService.Sequence::reset);
     }
 
     // Reset specific field counter
     public void resetFieldCounter(int fieldNumber) {
-        String counterKey = "field_" + fieldNumber;
-        sequentialCounters.remove(counterKey);
-        lastResetDate.remove(counterKey);
+        SequenceService.Sequence sequence = sequences.get(fieldNumber);
+        if (sequence != null) {
+            sequence.reset();
+        }
     }
 }
\ No newline at end of file
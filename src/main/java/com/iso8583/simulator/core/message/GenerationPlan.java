@@ -0,0 +1,369 @@
+package com.iso8583.simulator.core.message;
+
+import com.iso8583.simulator.core.config.FieldGenerationConfig;
+import com.iso8583.simulator.core.enums.FieldGenerationType;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Field-generation configuration compiled into an ordered array of steps.
+ * Each generated field owns a slot; references are resolved to slot indices, templates are
+ * pre-split into literal and slot segments and CSV keys are built once, so building a message
+ * is a loop over the steps with no key concatenation or context map.
+ * Steps run in field-number order, except that a referenced field always runs before the
+ * fields that reference it.
+ */
+public final class GenerationPlan {
+
+    public static final GenerationPlan EMPTY = compile(new HashMap<>());
+
+    // CSV columns copied straight into a field after generation (JMeter-compatible names)
+    private static final String[] DIRECT_COLUMNS = {"PAN", "TRACK2", "TERMINAL_ID", "CARD_ACCEPTOR_ID", "CARD_ACCEPTOR_NAME", "CUENTA"};
+    private static final int[] DIRECT_FIELDS = {2, 35, 41, 42, 43, 102};
+
+    private static final int NO_SLOT = -1;
+
+    private final Step[] steps;
+
+    private static final class Step {
+        final int fieldNumber;
+        final FieldGenerationType type;
+        final FieldGenerationConfig config;
+        final String overrideKey;
+        final String csvKey;
+        // STATIC: value; DYNAMIC: date pattern
+        final String text;
+        // REFERENCE: slot of the referenced field
+        int referenceSlot = NO_SLOT;
+        // TEMPLATE: segments are literals (slot NO_SLOT), slots or date patterns
+        Segment[] segments;
+        int estimatedLength;
+
+        Step(int fieldNumber, FieldGenerationConfig config) {
+            this.fieldNumber = fieldNumber;
+            this.type = config.getType() != null ? config.getType() : FieldGenerationType.CSV_OVERRIDE;
+            this.config = config;
+            this.csvKey = "FIELD_" + fieldNumber;
+            this.overrideKey = csvKey + "_OVERRIDE";
+            this.text = type == FieldGenerationType.STATIC ? config.getValue() : config.getFormat();
+        }
+    }
+
+    private static final class Segment {
+        final String literal;   // Literal text, date pattern when dynamic, null for a slot
+        final boolean dynamic;
+        final int slot;
+
+        Segment(String literal, boolean dynamic, int slot) {
+            this.literal = literal;
+            this.dynamic = dynamic;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Column indices of a CSV header for a plan: override and plain column per step,
+     * and the directly mapped columns. -1 means the column is not in the file.
+     */
+    public static final class CsvBinding {
+        private final GenerationPlan plan;
+        private final int[] overrideColumns;
+        private final int[] csvColumns;
+        private final int[] directColumns;
+
+        private CsvBinding(GenerationPlan plan, String[] header) {
+            this.plan = plan;
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                index.putIfAbsent(header[i].trim(), i);
+            }
+            overrideColumns = new int[plan.steps.length];
+            csvColumns = new int[plan.steps.length];
+            for (int i = 0; i < plan.steps.length; i++) {
+                overrideColumns[i] = index.getOrDefault(plan.steps[i].overrideKey, NO_SLOT);
+                csvColumns[i] = index.getOrDefault(plan.steps[i].csvKey, NO_SLOT);
+            }
+            directColumns = new int[DIRECT_COLUMNS.length];
+            for (int i = 0; i < DIRECT_COLUMNS.length; i++) {
+                directColumns[i] = index.getOrDefault(DIRECT_COLUMNS[i], NO_SLOT);
+            }
+        }
+
+        public GenerationPlan getPlan() {
+            return plan;
+        }
+    }
+
+    /**
+     * CSV row addressed by column index, so rows can be read without first copying them into an array
+     */
+    public interface CsvRow {
+        /**
+         * Value of the column, or null if the row has no such column
+         */
+        String get(int column);
+    }
+
+    private GenerationPlan(Step[] steps) {
+        this.steps = steps;
+    }
+
+    public static GenerationPlan compile(Map<Integer, FieldGenerationConfig> fieldConfigs) {
+        Map<Integer, FieldGenerationConfig> byField = new TreeMap<>(fieldConfigs);
+        Step[] steps = order(byField);
+
+        int[] slotOfField = new int[129];
+        Arrays.fill(slotOfField, NO_SLOT);
+        for (int slot = 0; slot < steps.length; slot++) {
+            if (steps[slot].fieldNumber >= 0 && steps[slot].fieldNumber < slotOfField.length) {
+                slotOfField[steps[slot].fieldNumber] = slot;
+            }
+        }
+
+        for (Step step : steps) {
+            if (step.type == FieldGenerationType.REFERENCE) {
+                step.referenceSlot = slotOf(slotOfField, step.config.getFieldReference());
+            } else if (step.type == FieldGenerationType.TEMPLATE) {
+                compileTemplate(step, slotOfField);
+            }
+        }
+        return new GenerationPlan(steps);
+    }
+
+    /**
+     * Binds a CSV header row to this plan
+     */
+    public CsvBinding bind(String[] header) {
+        return new CsvBinding(this, header);
+    }
+
+    public int size() {
+        return steps.length;
+    }
+
+    /**
+     * Generates every field of the plan from a CSV row given as column -> value
+     */
+    public void apply(ISOMsg message, Map<String, String> csvData, FieldGenerator generator) throws ISOException {
+        String[] slots = new String[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            Step step = steps[i];
+            String value = csvData.get(step.overrideKey);
+            if (value == null || value.isEmpty()) {
+                value = step.type == FieldGenerationType.CSV_OVERRIDE
+                        ? csvData.get(step.csvKey) : generate(step, slots, generator);
+            }
+            set(message, slots, i, value);
+        }
+        for (int i = 0; i < DIRECT_COLUMNS.length; i++) {
+            String value = csvData.get(DIRECT_COLUMNS[i]);
+            if (value != null) {
+                message.set(DIRECT_FIELDS[i], value);
+            }
+        }
+    }
+
+    /**
+     * Generates every field of the plan from a CSV row given as an array, with a binding of this plan
+     */
+    public void apply(ISOMsg message, String[] row, CsvBinding binding, FieldGenerator generator) throws ISOException {
+        apply(message, column -> column < row.length ? row[column] : null, binding, generator);
+    }
+
+    /**
+     * Generates every field of the plan from a CSV row view, with a binding of this plan.
+     * Only the columns the plan uses are read from the row.
+     */
+    public void apply(ISOMsg message, CsvRow row, CsvBinding binding, FieldGenerator generator) throws ISOException {
+        if (binding.plan != this) {
+            throw new IllegalArgumentException("CSV binding belongs to another generation plan");
+        }
+        String[] slots = new String[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            Step step = steps[i];
+            String value = column(row, binding.overrideColumns[i]);
+            if (value == null || value.isEmpty()) {
+                value = step.type == FieldGenerationType.CSV_OVERRIDE
+                        ? column(row, binding.csvColumns[i]) : generate(step, slots, generator);
+            }
+            set(message, slots, i, value);
+        }
+        for (int i = 0; i < DIRECT_COLUMNS.length; i++) {
+            String value = column(row, binding.directColumns[i]);
+            if (value != null) {
+                message.set(DIRECT_FIELDS[i], value);
+            }
+        }
+    }
+
+    private void set(ISOMsg message, String[] slots, int slot, String value) throws ISOException {
+        if (value != null && !value.isEmpty()) {
+            message.set(steps[slot].fieldNumber, value);
+            slots[slot] = value;
+        }
+    }
+
+    private static String column(CsvRow row, int column) {
+        return column >= 0 ? row.get(column) : null;
+    }
+
+    private static String generate(Step step, String[] slots, FieldGenerator generator) {
+        switch (step.type) {
+            case STATIC:
+                return step.text;
+            case DYNAMIC:
+                return CoarseClock.SYSTEM.format(step.text);
+            case SEQUENTIAL:
+                return generator.nextSequential(step.fieldNumber, step.config);
+            case TEMPLATE:
+                return render(step, slots);
+            case REFERENCE:
+                return step.referenceSlot != NO_SLOT ? slots[step.referenceSlot] : null;
+            default:
+                return null;
+        }
+    }
+
+    private static String render(Step step, String[] slots) {
+        StringBuilder value = new StringBuilder(step.estimatedLength);
+        for (Segment segment : step.segments) {
+            if (segment.dynamic) {
+                value.append(CoarseClock.SYSTEM.format(segment.literal));
+            } else if (segment.literal != null) {
+                value.append(segment.literal);
+            } else if (segment.slot != NO_SLOT && slots[segment.slot] != null) {
+                value.append(slots[segment.slot]);
+            }
+        }
+        Integer maxLength = step.config.getMaxLength();
+        if (maxLength != null && value.length() > maxLength) {
+            value.setLength(maxLength);
+        }
+        return value.toString();
+    }
+
+    // ================================
+    // COMPILATION
+    // ================================
+
+    /**
+     * Field-number order, moving referenced fields ahead of the fields that use them
+     */
+    private static Step[] order(Map<Integer, FieldGenerationConfig> byField) {
+        Map<Integer, List<Integer>> dependents = new HashMap<>();
+        Map<Integer, Integer> pending = new HashMap<>();
+        for (Map.Entry<Integer, FieldGenerationConfig> entry : byField.entrySet()) {
+            int dependencies = 0;
+            for (Integer referenced : references(entry.getValue())) {
+                if (byField.containsKey(referenced) && !referenced.equals(entry.getKey())) {
+                    dependents.computeIfAbsent(referenced, k -> new ArrayList<>()).add(entry.getKey());
+                    dependencies++;
+                }
+            }
+            pending.put(entry.getKey(), dependencies);
+        }
+
+        TreeSet<Integer> ready = new TreeSet<>();
+        pending.forEach((field, dependencies) -> {
+            if (dependencies == 0) {
+                ready.add(field);
+            }
+        });
+        List<Step> ordered = new ArrayList<>(byField.size());
+        while (!ready.isEmpty()) {
+            Integer field = ready.pollFirst();
+            ordered.add(new Step(field, byField.get(field)));
+            for (Integer dependent : dependents.getOrDefault(field, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (ordered.size() != byField.size()) {
+            List<Integer> cyclic = new ArrayList<>();
+            pending.forEach((field, dependencies) -> {
+                if (dependencies > 0) {
+                    cyclic.add(field);
+                }
+            });
+            throw new IllegalArgumentException("Circular field references between fields " + cyclic);
+        }
+        return ordered.toArray(new Step[0]);
+    }
+
+    private static List<Integer> references(FieldGenerationConfig config) {
+        List<Integer> references = new ArrayList<>();
+        if (config.getType() == FieldGenerationType.REFERENCE && config.getFieldReference() != null) {
+            references.add(config.getFieldReference());
+        } else if (config.getType() == FieldGenerationType.TEMPLATE && config.getComponents() != null) {
+            for (FieldGenerationConfig.ComponentConfig component : config.getComponents().values()) {
+                if (component.getType() == FieldGenerationType.REFERENCE && component.getField() != null) {
+                    references.add(component.getField());
+                }
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Splits "{name}" placeholders of known components out of the template text.
+     * Unknown placeholders stay as literal text.
+     */
+    private static void compileTemplate(Step step, int[] slotOfField) {
+        String template = step.config.getTemplate() != null ? step.config.getTemplate() : "";
+        Map<String, FieldGenerationConfig.ComponentConfig> components =
+                step.config.getComponents() != null ? step.config.getComponents() : Map.of();
+
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int estimated = 0;
+        int i = 0;
+        while (i < template.length()) {
+            int open = template.indexOf('{', i);
+            int close = open >= 0 ? template.indexOf('}', open + 1) : -1;
+            if (open < 0 || close < 0) {
+                literal.append(template, i, template.length());
+                break;
+            }
+            FieldGenerationConfig.ComponentConfig component = components.get(template.substring(open + 1, close));
+            if (component == null) {
+                literal.append(template, i, open + 1);
+                i = open + 1;
+                continue;
+            }
+            literal.append(template, i, open);
+            if (literal.length() > 0) {
+                segments.add(new Segment(literal.toString(), false, NO_SLOT));
+                estimated += literal.length();
+                literal.setLength(0);
+            }
+            if (component.getType() == FieldGenerationType.DYNAMIC) {
+                segments.add(new Segment(component.getFormat(), true, NO_SLOT));
+                estimated += component.getFormat().length();
+            } else if (component.getType() == FieldGenerationType.REFERENCE) {
+                segments.add(new Segment(null, false, slotOf(slotOfField, component.getField())));
+                estimated += 12;
+            }
+            // Other component types render as empty text
+            i = close + 1;
+        }
+        if (literal.length() > 0) {
+            segments.add(new Segment(literal.toString(), false, NO_SLOT));
+            estimated += literal.length();
+        }
+        step.segments = segments.toArray(new Segment[0]);
+        step.estimatedLength = estimated;
+    }
+
+    private static int slotOf(int[] slotOfField, Integer field) {
+        return field != null && field >= 0 && field < slotOfField.length ? slotOfField[field] : NO_SLOT;
+    }
+}
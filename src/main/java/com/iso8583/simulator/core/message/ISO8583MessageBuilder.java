@@ -7,7 +7,6 @@ import org.jpos.iso.ISOMsg;
 import org.jpos.iso.packager.GenericPackager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import java.util.HashMap;
 import java.util.Map;
 
 @Component
@@ -16,19 +15,35 @@ public class ISO8583MessageBuilder {
     @Autowired
     private FieldGenerator fieldGenerator;
 
-    private GenericPackager packager;
-    private Map<Integer, FieldGenerationConfig> fieldConfigs;
+    @Autowired
+    private PackagerRegistry packagerRegistry;
 
-    public ISO8583MessageBuilder() {
-        this.fieldConfigs = new HashMap<>();
-    }
+    private GenericPackager packager;
+    // Compiled once per setFieldConfigs; messages only walk its steps
+    private volatile GenerationPlan generationPlan = GenerationPlan.EMPTY;
 
     public void setPackager(GenericPackager packager) {
         this.packager = packager;
     }
 
+    // Explicitly set packager wins over the shared default one
+    private GenericPackager packager() {
+        return packager != null ? packager : packagerRegistry.getDefault();
+    }
+
     public void setFieldConfigs(Map<Integer, FieldGenerationConfig> fieldConfigs) {
-        this.fieldConfigs = fieldConfigs;
+        this.generationPlan = GenerationPlan.compile(fieldConfigs);
+    }
+
+    public GenerationPlan getGenerationPlan() {
+        return generationPlan;
+    }
+
+    /**
+     * Binds a CSV header to the current plan, for {@link #buildMessage(String, String[], GenerationPlan.CsvBinding)}
+     */
+    public GenerationPlan.CsvBinding bindCsvHeader(String[] header) {
+        return generationPlan.bind(header);
     }
 
     public ISOMsg buildMessage(MessageType messageType, Map<String, String> csvData) throws ISOException {
@@ -37,50 +52,41 @@ public class ISO8583MessageBuilder {
 
     public ISOMsg buildMessage(String mti, Map<String, String> csvData) throws ISOException {
         ISOMsg message = new ISOMsg();
-        message.setPackager(packager);
+        message.setPackager(packager());
         message.setMTI(mti);
 
-        Map<String, String> messageContext = new HashMap<>();
-
-        // Generate and set fields
-        for (Map.Entry<Integer, FieldGenerationConfig> entry : fieldConfigs.entrySet()) {
-            Integer fieldNumber = entry.getKey();
-            FieldGenerationConfig config = entry.getValue();
+        // Generated fields, then CSV columns mapped directly (PAN, TRACK2, TERMINAL_ID...)
+        generationPlan.apply(message, csvData, fieldGenerator);
 
-            String fieldValue = fieldGenerator.generateField(fieldNumber, config, csvData, messageContext);
+        return message;
+    }
 
-            if (fieldValue != null && !fieldValue.isEmpty()) {
-                message.set(fieldNumber, fieldValue);
-                messageContext.put("field_" + fieldNumber, fieldValue);
-            }
-        }
+    /**
+     * Same as {@link #buildMessage(String, Map)} for a CSV row read as an array; columns are
+     * resolved by the binding, so no per-row map is needed
+     */
+    public ISOMsg buildMessage(String mti, String[] row, GenerationPlan.CsvBinding binding) throws ISOException {
+        ISOMsg message = new ISOMsg();
+        message.setPackager(packager());
+        message.setMTI(mti);
 
-        // Set CSV data directly for unmapped fields
-        setDirectCsvFields(message, csvData);
+        binding.getPlan().apply(message, row, binding, fieldGenerator);
 
         return message;
     }
 
-    private void setDirectCsvFields(ISOMsg message, Map<String, String> csvData) throws ISOException {
-        // Map CSV fields to ISO8583 fields based on your JMeter configuration
-        if (csvData.containsKey("PAN")) {
-            message.set(2, csvData.get("PAN"));
-        }
-        if (csvData.containsKey("TRACK2")) {
-            message.set(35, csvData.get("TRACK2"));
-        }
-        if (csvData.containsKey("TERMINAL_ID")) {
-            message.set(41, csvData.get("TERMINAL_ID"));
-        }
-        if (csvData.containsKey("CARD_ACCEPTOR_ID")) {
-            message.set(42, csvData.get("CARD_ACCEPTOR_ID"));
-        }
-        if (csvData.containsKey("CARD_ACCEPTOR_NAME")) {
-            message.set(43, csvData.get("CARD_ACCEPTOR_NAME"));
-        }
-        if (csvData.containsKey("CUENTA")) {
-            message.set(102, csvData.get("CUENTA"));
-        }
+    /**
+     * Same as {@link #buildMessage(String, String[], GenerationPlan.CsvBinding)} for a row view
+     * (for example a streamed CSV row); only the columns the plan uses are read
+     */
+    public ISOMsg buildMessage(String mti, GenerationPlan.CsvRow row, GenerationPlan.CsvBinding binding) throws ISOException {
+        ISOMsg message = new ISOMsg();
+        message.setPackager(packager());
+        message.setMTI(mti);
+
+        binding.getPlan().apply(message, row, binding, fieldGenerator);
+
+        return message;
     }
 
     public ISOMsg buildBalanceInquiryMessage(Map<String, String> csvData) throws ISOException {
@@ -103,7 +109,7 @@ public class ISO8583MessageBuilder {
 
     public ISOMsg buildCustomMessage(String mti, Map<Integer, String> fields) throws ISOException {
         ISOMsg message = new ISOMsg();
-        message.setPackager(packager);
+        message.setPackager(packager());
         message.setMTI(mti);
 
         for (Map.Entry<Integer, String> entry : fields.entrySet()) {
@@ -5,6 +5,7 @@ import com.iso8583.simulator.core.enums.ResponseCode;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
 import org.jpos.iso.packager.GenericPackager;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,15 +13,23 @@ import java.util.Map;
 @Component
 public class ISO8583MessageParser {
 
+    @Autowired
+    private PackagerRegistry packagerRegistry;
+
     private GenericPackager packager;
 
     public void setPackager(GenericPackager packager) {
         this.packager = packager;
     }
 
+    // Explicitly set packager wins over the shared default one
+    private GenericPackager packager() {
+        return packager != null ? packager : packagerRegistry.getDefault();
+    }
+
     public ISOMsg parseMessage(byte[] messageData) throws ISOException {
         ISOMsg message = new ISOMsg();
-        message.setPackager(packager);
+        message.setPackager(packager());
         message.unpack(messageData);
         return message;
     }
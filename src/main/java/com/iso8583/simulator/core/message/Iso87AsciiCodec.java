@@ -0,0 +1,247 @@
+package com.iso8583.simulator.core.message;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec compiled from a GenericPackager XML whose fields are all plain ASCII
+ * (IFA_NUMERIC, IFA_AMOUNT, IF_CHAR, IFA_LLNUM, IFA_LLCHAR, IFA_LLLCHAR, IFA_BINARY, IFA_BITMAP).
+ * Packs MTI, bitmap and fields straight into the caller's buffer and reads them back as
+ * offsets through {@link Iso87AsciiView}, with the same wire format as the jPOS packager.
+ * Immutable once compiled, so one instance is shared by every thread.
+ */
+public final class Iso87AsciiCodec {
+
+    static final int MAX_FIELD = 128;
+
+    static final byte NONE = 0;
+    static final byte NUMERIC = 1;
+    static final byte AMOUNT = 2;
+    static final byte CHAR = 3;
+    static final byte LLNUM = 4;
+    static final byte LLCHAR = 5;
+    static final byte LLLCHAR = 6;
+    static final byte BINARY = 7;
+    static final byte BITMAP = 8;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+
+    // Indexed by field number; kinds[i] == NONE when the packager does not define the field
+    private final byte[] kinds;
+    private final int[] lengths;
+
+    private Iso87AsciiCodec(byte[] kinds, int[] lengths) {
+        this.kinds = kinds;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Compiles the field table from the packager definition; fails if any field uses
+     * a field packager this codec does not implement
+     */
+    public static Iso87AsciiCodec compile(InputStream definition) throws ISOException {
+        byte[] kinds = new byte[MAX_FIELD + 1];
+        int[] lengths = new int[MAX_FIELD + 1];
+
+        NodeList fields;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document document = builder.parse(definition);
+            fields = document.getElementsByTagName("isofield");
+        } catch (Exception e) {
+            throw new ISOException("Invalid packager definition: " + e.getMessage(), e);
+        }
+
+        for (int i = 0; i < fields.getLength(); i++) {
+            Element field = (Element) fields.item(i);
+            int id = Integer.parseInt(field.getAttribute("id"));
+            if (id > MAX_FIELD) {
+                continue; // Tertiary bitmap fields are never sent by the simulator
+            }
+            String fieldClass = field.getAttribute("class");
+            kinds[id] = kindOf(fieldClass.substring(fieldClass.lastIndexOf('.') + 1), id);
+            lengths[id] = Integer.parseInt(field.getAttribute("length"));
+        }
+
+        if (kinds[0] != NUMERIC || kinds[1] != BITMAP) {
+            throw new ISOException("Packager definition must start with IFA_NUMERIC MTI and IFA_BITMAP");
+        }
+        return new Iso87AsciiCodec(kinds, lengths);
+    }
+
+    private static byte kindOf(String fieldClass, int id) throws ISOException {
+        switch (fieldClass) {
+            case "IFA_NUMERIC":
+                return NUMERIC;
+            case "IFA_AMOUNT":
+                return AMOUNT;
+            case "IF_CHAR":
+                return CHAR;
+            case "IFA_LLNUM":
+                return LLNUM;
+            case "IFA_LLCHAR":
+                return LLCHAR;
+            case "IFA_LLLCHAR":
+                return LLLCHAR;
+            case "IFA_BINARY":
+                return BINARY;
+            case "IFA_BITMAP":
+                return BITMAP;
+            default:
+                throw new ISOException("Field " + id + ": " + fieldClass + " not supported by the compiled codec");
+        }
+    }
+
+    /**
+     * Packs the message at the buffer position and returns the number of bytes written.
+     * Throws {@link BufferOverflowException} if it does not fit; the caller resets the position.
+     */
+    public int encode(ISOMsg message, ByteBuffer out) throws ISOException {
+        int start = out.position();
+        String mti = message.getMTI();
+        if (mti == null || mti.length() != lengths[0]) {
+            throw new ISOException("Invalid MTI: " + mti);
+        }
+        putAscii(out, mti, 0, mti.length());
+
+        int maxField = message.getMaxField();
+        if (maxField > MAX_FIELD) {
+            throw new ISOException("Field " + maxField + " not supported by the compiled codec");
+        }
+        long primary = 0;
+        long secondary = 0;
+        for (int i = 2; i <= maxField; i++) {
+            if (message.hasField(i)) {
+                if (kinds[i] == NONE) {
+                    throw new ISOException("Field " + i + " not defined in packager");
+                }
+                if (i <= 64) {
+                    primary |= 1L << (64 - i);
+                } else {
+                    secondary |= 1L << (128 - i);
+                }
+            }
+        }
+        if (secondary != 0) {
+            primary |= 1L << 63;
+        }
+        putHex(out, primary);
+        if (secondary != 0) {
+            putHex(out, secondary);
+        }
+
+        for (int i = 2; i <= maxField; i++) {
+            if (message.hasField(i)) {
+                encodeField(i, message, out);
+            }
+        }
+        return out.position() - start;
+    }
+
+    private void encodeField(int field, ISOMsg message, ByteBuffer out) throws ISOException {
+        int length = lengths[field];
+        if (kinds[field] == BINARY) {
+            byte[] value = message.getBytes(field);
+            if (value == null || value.length != length) {
+                throw new ISOException("Field " + field + ": binary length must be " + length);
+            }
+            for (byte b : value) {
+                out.put(HEX[(b >> 4) & 0x0F]);
+                out.put(HEX[b & 0x0F]);
+            }
+            return;
+        }
+
+        String value = message.getString(field);
+        if (value == null) {
+            throw new ISOException("Field " + field + " has no string value");
+        }
+        int size = value.length();
+        switch (kinds[field]) {
+            case NUMERIC:
+                checkLength(field, size, length);
+                pad(out, '0', length - size);
+                putAscii(out, value, 0, size);
+                break;
+            case AMOUNT:
+                // Sign (C/D) followed by the zero-padded amount, as IFA_AMOUNT does
+                if (size == 0) {
+                    throw new ISOException("Field " + field + ": amount without sign");
+                }
+                checkLength(field, size, length);
+                out.put((byte) value.charAt(0));
+                pad(out, '0', length - size);
+                putAscii(out, value, 1, size);
+                break;
+            case CHAR:
+                // IF_CHAR truncates and pads with spaces on the right
+                int kept = Math.min(size, length);
+                putAscii(out, value, 0, kept);
+                pad(out, ' ', length - kept);
+                break;
+            case LLNUM:
+            case LLCHAR:
+                checkLength(field, size, Math.min(length, 99));
+                putDigits(out, size, 2);
+                putAscii(out, value, 0, size);
+                break;
+            case LLLCHAR:
+                checkLength(field, size, Math.min(length, 999));
+                putDigits(out, size, 3);
+                putAscii(out, value, 0, size);
+                break;
+            default:
+                throw new ISOException("Field " + field + " not supported by the compiled codec");
+        }
+    }
+
+    private static void checkLength(int field, int size, int max) throws ISOException {
+        if (size > max) {
+            throw new ISOException("Field " + field + ": length " + size + " exceeds " + max);
+        }
+    }
+
+    private static void putAscii(ByteBuffer out, String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out.put((byte) value.charAt(i));
+        }
+    }
+
+    private static void pad(ByteBuffer out, char padding, int count) {
+        for (int i = 0; i < count; i++) {
+            out.put((byte) padding);
+        }
+    }
+
+    private static void putDigits(ByteBuffer out, int value, int digits) {
+        for (int divisor = digits == 3 ? 100 : 10; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static void putHex(ByteBuffer out, long bits) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            out.put(HEX[(int) (bits >>> shift) & 0x0F]);
+        }
+    }
+
+    byte kind(int field) {
+        return field <= MAX_FIELD ? kinds[field] : NONE;
+    }
+
+    int length(int field) {
+        return lengths[field];
+    }
+}
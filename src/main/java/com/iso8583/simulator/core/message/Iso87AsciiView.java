@@ -0,0 +1,210 @@
+package com.iso8583.simulator.core.message;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view of a message packed with {@link Iso87AsciiCodec}: {@link #wrap} only records
+ * where each field starts and how long it is inside the receive buffer, nothing is copied
+ * until a value is requested. Reusable, but not thread-safe; valid while the buffer region
+ * is not overwritten.
+ */
+public final class Iso87AsciiView {
+
+    private final Iso87AsciiCodec codec;
+    private final int[] offsets = new int[Iso87AsciiCodec.MAX_FIELD + 1];
+    private final int[] lengths = new int[Iso87AsciiCodec.MAX_FIELD + 1];
+    private long primary;
+    private long secondary;
+    private ByteBuffer buffer;
+
+    public Iso87AsciiView(Iso87AsciiCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Indexes the message stored in {@code buffer[offset, offset + length)} using absolute
+     * reads; the buffer position is not modified
+     */
+    public Iso87AsciiView wrap(ByteBuffer buffer, int offset, int length) throws ISOException {
+        this.buffer = buffer;
+        int end = offset + length;
+        int position = offset;
+
+        offsets[0] = position;
+        lengths[0] = codec.length(0);
+        position = require(position, lengths[0], end, 0);
+
+        primary = readHex(position, end);
+        position += 16;
+        secondary = 0;
+        if (primary < 0) {
+            secondary = readHex(position, end);
+            position += 16;
+        }
+
+        for (int i = 2; i <= Iso87AsciiCodec.MAX_FIELD; i++) {
+            if (!hasField(i)) {
+                continue;
+            }
+            int size;
+            switch (codec.kind(i)) {
+                case Iso87AsciiCodec.NUMERIC:
+                case Iso87AsciiCodec.AMOUNT:
+                case Iso87AsciiCodec.CHAR:
+                    size = codec.length(i);
+                    break;
+                case Iso87AsciiCodec.BINARY:
+                    size = codec.length(i) * 2;
+                    break;
+                case Iso87AsciiCodec.LLNUM:
+                case Iso87AsciiCodec.LLCHAR:
+                    require(position, 2, end, i);
+                    size = readDigits(position, 2, i);
+                    position += 2;
+                    break;
+                case Iso87AsciiCodec.LLLCHAR:
+                    require(position, 3, end, i);
+                    size = readDigits(position, 3, i);
+                    position += 3;
+                    break;
+                default:
+                    throw new ISOException("Field " + i + " not defined in packager");
+            }
+            if (size > codec.length(i) * (codec.kind(i) == Iso87AsciiCodec.BINARY ? 2 : 1)) {
+                throw new ISOException("Field " + i + ": length " + size + " exceeds packager length");
+            }
+            offsets[i] = position;
+            lengths[i] = size;
+            position = require(position, size, end, i);
+        }
+        return this;
+    }
+
+    private static int require(int position, int size, int end, int field) throws ISOException {
+        if (position + size > end) {
+            throw new ISOException("Field " + field + ": message truncated");
+        }
+        return position + size;
+    }
+
+    private long readHex(int position, int end) throws ISOException {
+        require(position, 16, end, 1);
+        long bits = 0;
+        for (int i = 0; i < 16; i++) {
+            int c = buffer.get(position + i);
+            int nibble = Character.digit(c, 16);
+            if (nibble < 0) {
+                throw new ISOException("Invalid bitmap");
+            }
+            bits = (bits << 4) | nibble;
+        }
+        return bits;
+    }
+
+    private int readDigits(int position, int digits, int field) throws ISOException {
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            byte digit = buffer.get(position + i);
+            if (digit < '0' || digit > '9') {
+                throw new ISOException("Field " + field + ": invalid length prefix");
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+
+    public boolean hasField(int field) {
+        if (field == 0) {
+            return true;
+        }
+        if (field < 2 || field > Iso87AsciiCodec.MAX_FIELD) {
+            return false;
+        }
+        return field <= 64
+                ? (primary & (1L << (64 - field))) != 0
+                : (secondary & (1L << (128 - field))) != 0;
+    }
+
+    /**
+     * Absolute offset of the field value inside the wrapped buffer (after any length prefix)
+     */
+    public int offset(int field) {
+        return offsets[field];
+    }
+
+    /**
+     * Length on the wire of the field value; hex characters for binary fields
+     */
+    public int length(int field) {
+        return lengths[field];
+    }
+
+    public String getMti() {
+        return getString(0);
+    }
+
+    public String getString(int field) {
+        if (!hasField(field)) {
+            return null;
+        }
+        int offset = offsets[field];
+        char[] chars = new char[lengths[field]];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Compares the field with an ASCII value without materializing it
+     */
+    public boolean equalsAscii(int field, CharSequence value) {
+        if (!hasField(field) || lengths[field] != value.length()) {
+            return false;
+        }
+        int offset = offsets[field];
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer.get(offset + i) != (byte) value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] getBytes(int field) {
+        if (!hasField(field)) {
+            return null;
+        }
+        int offset = offsets[field];
+        byte[] bytes = new byte[lengths[field] / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(buffer.get(offset + 2 * i), 16);
+            int low = Character.digit(buffer.get(offset + 2 * i + 1), 16);
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * Materializes the view as an ISOMsg for code that still works with jPOS messages
+     */
+    public ISOMsg toISOMsg(ISOPackager packager) throws ISOException {
+        ISOMsg message = new ISOMsg();
+        message.setPackager(packager);
+        message.setMTI(getMti());
+        for (int i = 2; i <= Iso87AsciiCodec.MAX_FIELD; i++) {
+            if (hasField(i)) {
+                if (codec.kind(i) == Iso87AsciiCodec.BINARY) {
+                    message.set(i, getBytes(i));
+                } else {
+                    message.set(i, getString(i));
+                }
+            }
+        }
+        return message;
+    }
+}
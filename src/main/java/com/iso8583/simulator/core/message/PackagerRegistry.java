@@ -0,0 +1,192 @@
+package com.iso8583.simulator.core.message;
+
+import com.iso8583.simulator.core.config.SwitchConfiguration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.packager.GenericPackager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single source of packagers for the whole application.
+ * Each XML definition is parsed once; the resulting GenericPackager is immutable after
+ * construction and pack/unpack keep no per-call state, so the same instance is shared
+ * by every component and every connection.
+ */
+@Component
+public class PackagerRegistry implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PackagerRegistry.class);
+
+    public static final String DEFAULT_CONFIG_FILE = "packagers/iso87ascii.xml";
+
+    // Same definition from the classpath, then the one bundled with jPOS
+    private static final String[] DEFAULT_FALLBACKS = {
+            "jar:" + DEFAULT_CONFIG_FILE,
+            "jar:packager/iso87ascii.xml"
+    };
+
+    @Autowired
+    private SwitchConfiguration switchConfiguration;
+
+    private final Map<String, GenericPackager> byConfigFile = new ConcurrentHashMap<>();
+    private final Map<String, GenericPackager> byName = new ConcurrentHashMap<>();
+    private volatile GenericPackager defaultPackager;
+    private volatile String defaultConfigFile;
+    private volatile Iso87AsciiCodec defaultCodec;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        defaultPackager = loadDefault();
+        defaultCodec = compileCodec(defaultConfigFile);
+        registerSwitchPackagers();
+    }
+
+    /**
+     * Packager used when no switch-specific one is requested
+     */
+    public GenericPackager getDefault() {
+        return defaultPackager;
+    }
+
+    /**
+     * Packager registered under the switch name, or the default one if the name is unknown
+     */
+    public GenericPackager get(String name) {
+        if (name == null) {
+            return defaultPackager;
+        }
+        GenericPackager packager = byName.get(name);
+        return packager != null ? packager : defaultPackager;
+    }
+
+    /**
+     * Compiled codec equivalent to {@link #getDefault()}, or null if that definition uses
+     * field packagers the codec does not implement (callers then stay on jPOS pack/unpack)
+     */
+    public Iso87AsciiCodec getDefaultCodec() {
+        return defaultCodec;
+    }
+
+    public Set<String> getNames() {
+        return byName.keySet();
+    }
+
+    /**
+     * Returns the cached packager for the definition, parsing it only the first time
+     */
+    public GenericPackager forConfigFile(String configFile) throws ISOException {
+        GenericPackager packager = byConfigFile.get(configFile);
+        if (packager != null) {
+            return packager;
+        }
+        synchronized (byConfigFile) {
+            packager = byConfigFile.get(configFile);
+            if (packager == null) {
+                long start = System.nanoTime();
+                packager = new GenericPackager(configFile);
+                byConfigFile.put(configFile, packager);
+                logger.info("Packager compilado desde {} en {} ms",
+                        configFile, (System.nanoTime() - start) / 1_000_000);
+            }
+            return packager;
+        }
+    }
+
+    private GenericPackager loadDefault() throws ISOException {
+        try {
+            GenericPackager packager = forConfigFile(DEFAULT_CONFIG_FILE);
+            defaultConfigFile = DEFAULT_CONFIG_FILE;
+            return packager;
+        } catch (Exception e) {
+            logger.warn("Packager personalizado no encontrado, usando genérico: {}", e.getMessage());
+        }
+        for (String fallback : DEFAULT_FALLBACKS) {
+            try {
+                GenericPackager packager = forConfigFile(fallback);
+                // Las siguientes búsquedas del archivo por defecto no vuelven a fallar
+                byConfigFile.put(DEFAULT_CONFIG_FILE, packager);
+                defaultConfigFile = fallback;
+                return packager;
+            } catch (Exception e) {
+                logger.debug("Packager no disponible en {}: {}", fallback, e.getMessage());
+            }
+        }
+        logger.error("Error inicializando packager: ninguna definición disponible");
+        throw new ISOException("No se pudo inicializar packager");
+    }
+
+    private Iso87AsciiCodec compileCodec(String configFile) {
+        try (InputStream definition = openDefinition(configFile)) {
+            Iso87AsciiCodec codec = Iso87AsciiCodec.compile(definition);
+            logger.info("Codec compilado desde {}", configFile);
+            return codec;
+        } catch (Exception e) {
+            logger.warn("Codec compilado no disponible para {}, se usa jPOS: {}", configFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Same lookup as GenericPackager: "jar:" means classpath, anything else a file path
+     */
+    private InputStream openDefinition(String configFile) throws IOException {
+        InputStream definition = null;
+        if (configFile.startsWith("jar:")) {
+            definition = getClass().getClassLoader().getResourceAsStream(configFile.substring(4));
+        } else if (new File(configFile).isFile()) {
+            definition = new FileInputStream(configFile);
+        }
+        if (definition == null) {
+            throw new IOException("Definición no encontrada: " + configFile);
+        }
+        return definition;
+    }
+
+    /**
+     * Registers one packager per switch of {@link SwitchConfiguration}; switches whose
+     * definition cannot be loaded share the default packager
+     */
+    private void registerSwitchPackagers() {
+        Map<String, SwitchConfiguration.SwitchConfig> switches = switchConfiguration.getSwitches();
+        if (switches == null) {
+            return;
+        }
+        for (Map.Entry<String, SwitchConfiguration.SwitchConfig> entry : switches.entrySet()) {
+            GenericPackager packager = resolve(entry.getKey(), entry.getValue().getPackager());
+            byName.put(entry.getKey(), packager);
+            String displayName = entry.getValue().getName();
+            if (displayName != null && !displayName.isEmpty()) {
+                byName.putIfAbsent(displayName, packager);
+            }
+        }
+        logger.info("Packagers registrados: {}", byName.keySet());
+    }
+
+    private GenericPackager resolve(String name, SwitchConfiguration.PackagerConfig packagerConfig) {
+        if (packagerConfig == null || packagerConfig.getConfigFile() == null) {
+            return defaultPackager;
+        }
+        String type = packagerConfig.getType();
+        if (type != null && !type.startsWith("Generic")) {
+            logger.warn("Tipo de packager {} no soportado para {}, se usa GenericPackager", type, name);
+        }
+        try {
+            return forConfigFile(packagerConfig.getConfigFile());
+        } catch (Exception e) {
+            logger.warn("No se pudo cargar {} para {}, se usa el packager por defecto: {}",
+                    packagerConfig.getConfigFile(), name, e.getMessage());
+            return defaultPackager;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.iso8583.simulator.core.message;
+
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single source of STAN (field 11), RRN (field 37) and other sequential field values, shared by
+ * the message builder, the PSEUDO-MUX and network messages so no two producers hand out the
+ * same number. Every sequence is one AtomicLong packing the epoch day and a position that only
+ * grows; the value is derived from the position, so wraparound and daily reset happen in the
+ * same CAS as the increment and can never race with each other or hand out a value twice.
+ *
+ * With a state file configured, each sequence reserves positions in batches and saves the end
+ * of the batch to a memory-mapped {@link SequenceStore} before handing any of them out. After a
+ * restart it continues from the saved position, so the authorizer never sees a repeated STAN
+ * from earlier in the day; at worst the unused rest of one batch is skipped.
+ */
+@Component
+public class SequenceService implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceService.class);
+
+    public static final String STAN = "stan";
+    public static final String RRN = "rrn";
+
+    private static final int STAN_WIDTH = 6;
+    private static final int RRN_SEQUENCE_WIDTH = 7; // yyDDD + 7 digits = 12
+
+    @Autowired
+    private SimulatorConfiguration config;
+
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+    private final CoarseClock clock = CoarseClock.SYSTEM;
+
+    private SequenceStore store;
+    private int reserveSize;
+    private Sequence stan;
+    private Sequence rrn;
+
+    @Override
+    public void afterPropertiesSet() {
+        SimulatorConfiguration.FieldGeneration.TraceNumber traceNumber = config.getFieldGeneration().getTraceNumber();
+        reserveSize = Math.max(1, traceNumber.getReserveSize());
+        String stateFile = traceNumber.getStateFile();
+        if (stateFile != null && !stateFile.isEmpty()) {
+            try {
+                store = new SequenceStore(Paths.get(stateFile));
+            } catch (IOException e) {
+                // Sequences still work without the file, they just start from zero
+                logger.error("Could not open sequence state file {}: {}", stateFile, e.getMessage());
+            }
+        }
+
+        stan = sequence(STAN, traceNumber.getStart(), traceNumber.getMax(), 1,
+                traceNumber.isResetDaily(), traceNumber.getBlockSize());
+        rrn = sequence(RRN, 1, 9_999_999, 1, traceNumber.isResetDaily(), traceNumber.getBlockSize());
+        logger.info("Sequences: STAN {}-{} (daily reset: {}, block size: {}, state file: {})",
+                traceNumber.getStart(), traceNumber.getMax(), traceNumber.isResetDaily(),
+                traceNumber.getBlockSize(), store != null ? store.getPath() : "none");
+    }
+
+    @Override
+    public void destroy() {
+        if (store == null) {
+            return;
+        }
+        // Clean shutdown: save exact positions so the next start does not skip the rest of a batch
+        for (Sequence sequence : sequences.values()) {
+            sequence.save();
+        }
+        try {
+            store.close();
+        } catch (IOException e) {
+            logger.warn("Error closing sequence state file: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Next STAN, 6 digits
+     */
+    public String nextStan() {
+        return FieldFormats.zeroPadded(stan.next(), STAN_WIDTH);
+    }
+
+    /**
+     * Next RRN: Julian date (yyDDD) plus 7 sequence digits
+     */
+    public String nextRrn() {
+        return clock.format("yyDDD") + FieldFormats.zeroPadded(rrn.next(), RRN_SEQUENCE_WIDTH);
+    }
+
+    /**
+     * Named sequence, created on first use with the given settings; later calls return the same instance
+     */
+    public Sequence sequence(String name, long start, long max, long increment, boolean resetDaily, int blockSize) {
+        Sequence sequence = sequences.get(name);
+        return sequence != null ? sequence : sequences.computeIfAbsent(name,
+                k -> new Sequence(k, start, max, increment, resetDaily, blockSize, clock, store, reserveSize));
+    }
+
+    public Sequence getStanSequence() {
+        return stan;
+    }
+
+    public void resetAll() {
+        sequences.values().forEach(Sequence::reset);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        sequences.forEach((name, sequence) -> stats.put(name, sequence.peek()));
+        stats.put("stateFile", store != null ? store.getPath().toString() : null);
+        return stats;
+    }
+
+    /**
+     * Lock-free counter from start to max (inclusive) that wraps back to start and, optionally,
+     * restarts on the first value of each day. The stored day never goes backwards: a thread that
+     * read the clock just before midnight adopts the new day another thread already moved to.
+     * With blockSize > 1 each thread reserves that many values with a single CAS and hands them
+     * out locally: values stay unique but are only ordered within a thread.
+     */
+    public static final class Sequence {
+        private static final int DAY_BITS = 20;
+        private static final int POSITION_BITS = Long.SIZE - DAY_BITS;
+        private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+        private final String name;
+        private final long start;
+        private final long increment;
+        private final long ring;            // Values between start and max
+        private final boolean resetDaily;
+        private final int blockSize;
+        private final CoarseClock clock;
+        private final SequenceStore store;
+        private final int reserveSize;
+
+        // High bits: epoch day (0 without daily reset); low bits: positions handed out that day
+        private final AtomicLong state = new AtomicLong();
+        // Same packing: positions below this one are covered by the state file
+        private volatile long saved;
+        // Bumped by reset() so other threads drop blocks reserved before it
+        private volatile long generation;
+        private final ThreadLocal<long[]> block; // {next position, remaining, day, generation}
+
+        Sequence(String name, long start, long max, long increment, boolean resetDaily, int blockSize,
+                 CoarseClock clock, SequenceStore store, int reserveSize) {
+            if (start < 0 || start > max || increment < 1) {
+                throw new IllegalArgumentException("Invalid sequence " + name + ": start=" + start
+                        + ", max=" + max + ", increment=" + increment);
+            }
+            this.name = name;
+            this.start = start;
+            this.increment = increment;
+            this.ring = (max - start) / increment + 1;
+            this.resetDaily = resetDaily;
+            this.blockSize = Math.max(1, blockSize);
+            this.clock = clock;
+            this.store = store;
+            this.reserveSize = Math.max(1, reserveSize);
+            this.block = this.blockSize > 1 ? ThreadLocal.withInitial(() -> new long[4]) : null;
+            restore();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long next() {
+            if (block == null) {
+                long day = day();
+                while (true) {
+                    long current = state.get();
+                    long today = Math.max(day, dayOf(current));
+                    long position = positionFor(current, today);
+                    if (state.compareAndSet(current, pack(today, position + 1))) {
+                        covered(today, position + 1);
+                        return valueAt(position);
+                    }
+                }
+            }
+            long[] local = block.get();
+            long day = day();
+            if (local[1] == 0 || local[2] < day || local[3] != generation) {
+                reserve(local, day);
+            }
+            long position = local[0]++;
+            local[1]--;
+            return valueAt(position);
+        }
+
+        /**
+         * Value the next call would return without per-thread blocks
+         */
+        public long peek() {
+            long current = state.get();
+            return valueAt(positionFor(current, Math.max(day(), dayOf(current))));
+        }
+
+        /**
+         * Restarts at start. Blocks other threads already reserved are dropped on their next call;
+         * a value being handed out at the same moment as the reset may still come from before it.
+         */
+        public synchronized void reset() {
+            generation++;
+            long current = state.get();
+            state.set(pack(Math.max(day(), dayOf(current)), 0));
+            if (block != null) {
+                block.remove();
+            }
+        }
+
+        /**
+         * Takes up to blockSize positions with one CAS; a block never crosses the end of the range
+         */
+        private void reserve(long[] local, long day) {
+            long reservedGeneration = generation; // Read before the CAS: a reset in between forces another reserve
+            while (true) {
+                long current = state.get();
+                long today = Math.max(day, dayOf(current));
+                long position = positionFor(current, today);
+                long count = Math.min(blockSize, ring - position % ring);
+                if (state.compareAndSet(current, pack(today, position + count))) {
+                    covered(today, position + count);
+                    local[0] = position;
+                    local[1] = count;
+                    local[2] = today;
+                    local[3] = reservedGeneration;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Makes sure positions below {@code end} are saved before they are handed out.
+         * Only the first caller past each batch reaches the file; the rest compare one volatile.
+         */
+        private void covered(long day, long end) {
+            if (store == null) {
+                return;
+            }
+            if (isCovered(saved, day, end)) {
+                return;
+            }
+            synchronized (this) {
+                if (isCovered(saved, day, end)) {
+                    return;
+                }
+                long target = pack(day, end + reserveSize);
+                if (!store.write(name, target)) {
+                    logger.warn("Sequence state file full, {} is no longer saved", name);
+                }
+                saved = target; // Also when the file is full, so the warning is not repeated per batch
+            }
+        }
+
+        /**
+         * Writes the exact position; with per-thread blocks the state already includes their reserved values
+         */
+        private synchronized void save() {
+            if (store != null) {
+                long current = state.get();
+                store.write(name, current);
+                saved = current;
+            }
+        }
+
+        private void restore() {
+            long day = day();
+            Long stored = store != null ? store.read(name) : null;
+            long position = stored != null && dayOf(stored) == day ? positionOf(stored) : 0;
+            if (!resetDaily) {
+                position %= ring; // Keep the position small across restarts; the value is the same
+            }
+            state.set(pack(day, position));
+            saved = pack(day, position);
+        }
+
+        /**
+         * A later day is covered too: a late caller from before midnight must not write its old day back
+         */
+        private static boolean isCovered(long saved, long day, long end) {
+            return dayOf(saved) > day || (dayOf(saved) == day && positionOf(saved) >= end);
+        }
+
+        private long valueAt(long position) {
+            return start + (position % ring) * increment;
+        }
+
+        private long positionFor(long current, long day) {
+            return dayOf(current) == day ? positionOf(current) : 0;
+        }
+
+        private long day() {
+            return resetDaily ? clock.epochDay() : 0;
+        }
+
+        private static long pack(long day, long position) {
+            return (day << POSITION_BITS) | (position & POSITION_MASK);
+        }
+
+        private static long dayOf(long state) {
+            return state >>> POSITION_BITS;
+        }
+
+        private static long positionOf(long state) {
+            return state & POSITION_MASK;
+        }
+    }
+}
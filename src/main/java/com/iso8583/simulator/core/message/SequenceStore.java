@@ -0,0 +1,110 @@
+package com.iso8583.simulator.core.message;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Small memory-mapped file holding one long per named sequence. A write is a store into
+ * mapped memory: the OS flushes the page on its own, survives a crash of the JVM and
+ * {@link #force()} makes it durable against a crash of the machine.
+ *
+ * Layout: header (magic, version, record count, reserved) followed by fixed 64-byte
+ * records of [name length (1 byte), name (up to 55 bytes), value (8 bytes)].
+ */
+final class SequenceStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x53455153; // "SEQS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 64;
+    private static final int MAX_NAME_LENGTH = RECORD_SIZE - 1 - Long.BYTES;
+    private static final int CAPACITY = 64;
+    private static final int FILE_SIZE = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Integer> offsets = new HashMap<>();
+
+    SequenceStore(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        boolean existing = Files.exists(path) && Files.size(path) > 0;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+
+        if (existing && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION) {
+            int count = Math.min(buffer.getInt(8), CAPACITY);
+            for (int i = 0; i < count; i++) {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                int length = buffer.get(offset) & 0xFF;
+                byte[] name = new byte[Math.min(length, MAX_NAME_LENGTH)];
+                buffer.get(offset + 1, name);
+                offsets.put(new String(name, StandardCharsets.US_ASCII), offset);
+            }
+        } else {
+            if (existing) {
+                throw new IOException("Unknown sequence state format: " + path);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, 0);
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Saved value of a sequence, or null if it was never saved
+     */
+    synchronized Long read(String name) {
+        Integer offset = offsets.get(name);
+        return offset != null ? buffer.getLong(offset + 1 + MAX_NAME_LENGTH) : null;
+    }
+
+    /**
+     * Stores the value, adding a record the first time a name is written.
+     *
+     * @return false if the file has no room left for a new name
+     */
+    synchronized boolean write(String name, long value) {
+        Integer offset = offsets.get(name);
+        if (offset == null) {
+            byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+            if (offsets.size() >= CAPACITY || bytes.length > MAX_NAME_LENGTH) {
+                return false;
+            }
+            offset = HEADER_SIZE + offsets.size() * RECORD_SIZE;
+            buffer.put(offset, (byte) bytes.length);
+            buffer.put(offset + 1, bytes);
+            buffer.putLong(offset + 1 + MAX_NAME_LENGTH, value);
+            offsets.put(name, offset);
+            buffer.putInt(8, offsets.size()); // Count last: a record is visible only once complete
+            return true;
+        }
+        buffer.putLong(offset + 1 + MAX_NAME_LENGTH, value);
+        return true;
+    }
+
+    synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
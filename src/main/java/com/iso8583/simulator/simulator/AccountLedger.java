@@ -0,0 +1,309 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Libro de cuentas en memoria del mock: 0200 debita (o acredita en devoluciones), 0400/0420 revierte
+ * y 30xxxx devuelve el saldo real. Cada cuenta es un {@link AtomicLong} y los movimientos son CAS sobre
+ * ese valor, así que débitos concurrentes a cuentas distintas nunca compiten entre sí.
+ *
+ * Los reversos devuelven el monto del campo 4 sin verificar el original.
+ */
+@Component
+public class AccountLedger implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountLedger.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4C454447; // "LEDG"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Resultado de aplicar un mensaje al libro
+     */
+    public static final class Posting {
+        private final String responseCode;
+        private final long balance;
+
+        Posting(String responseCode, long balance) {
+            this.responseCode = responseCode;
+            this.balance = balance;
+        }
+
+        public String getResponseCode() { return responseCode; }
+
+        public long getBalance() { return balance; }
+    }
+
+    @Autowired
+    private SimulatorConfiguration config;
+
+    private final ConcurrentHashMap<String, AtomicLong> balances = new ConcurrentHashMap<>();
+    private final AtomicLong debits = new AtomicLong();
+    private final AtomicLong credits = new AtomicLong();
+    private final AtomicLong declined = new AtomicLong();
+
+    private volatile boolean enabled;
+
+    @Override
+    public void afterPropertiesSet() {
+        SimulatorConfiguration.MockConfig.Ledger ledger = config.getMock().getLedger();
+        enabled = ledger.isEnabled();
+        if (hasSnapshotFile() && ledger.isLoadOnStartup() && Files.exists(snapshotPath())) {
+            try {
+                load();
+            } catch (IOException e) {
+                logger.warn("No se pudo cargar el snapshot de saldos {}: {}", ledger.getSnapshotFile(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (hasSnapshotFile() && config.getMock().getLedger().isSnapshotOnShutdown() && !balances.isEmpty()) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                logger.error("❌ No se pudo guardar el snapshot de saldos: {}", e.getMessage());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        logger.info("Libro de cuentas mock: {}", enabled ? "HABILITADO" : "DESHABILITADO");
+    }
+
+    /**
+     * Cuenta del mensaje: campo 102 si viene, si no el PAN
+     */
+    public String accountOf(ISOMsg request) {
+        String account = request.getString(102);
+        if (account == null || account.isEmpty()) {
+            account = request.getString(2);
+        }
+        return account == null || account.isEmpty() ? null : account;
+    }
+
+    /**
+     * Aplica el mensaje al libro. Devuelve null si no corresponde (sin cuenta o MTI no financiero).
+     */
+    public Posting post(ISOMsg request) throws ISOException {
+        String mti = request.getMTI();
+        String account = accountOf(request);
+        if (mti == null || account == null || !(mti.startsWith("02") || mti.startsWith("04"))) {
+            return null;
+        }
+
+        AtomicLong balance = balances.get(account);
+        if (balance == null) {
+            if (!config.getMock().getLedger().isAutoCreate()) {
+                declined.incrementAndGet();
+                return new Posting("14", 0); // Invalid card number
+            }
+            long opening = config.getMock().getLedger().getOpeningBalance();
+            balance = balances.computeIfAbsent(account, k -> new AtomicLong(opening));
+        }
+
+        String processingCode = request.getString(3);
+        if (processingCode != null && processingCode.startsWith("30")) {
+            return new Posting("00", balance.get()); // Consulta de saldo
+        }
+
+        long amount = parseAmount(request.getString(4));
+        // 2x = devolución / depósito; el reverso invierte el sentido del original
+        boolean credit = processingCode != null && processingCode.startsWith("2");
+        if (mti.startsWith("04")) {
+            credit = !credit;
+        }
+
+        if (credit) {
+            credits.incrementAndGet();
+            return new Posting("00", balance.addAndGet(amount));
+        }
+        while (true) {
+            long current = balance.get();
+            if (current < amount) {
+                declined.incrementAndGet();
+                return new Posting("51", current); // Insufficient funds
+            }
+            if (balance.compareAndSet(current, current - amount)) {
+                debits.incrementAndGet();
+                return new Posting("00", current - amount);
+            }
+        }
+    }
+
+    /**
+     * Campo 54 (ISO 8583:1987): tipo de cuenta + tipo de monto (02 = disponible) + moneda + signo + 12 dígitos
+     */
+    public String formatBalance(ISOMsg request, long balance) {
+        String processingCode = request.getString(3);
+        String accountType = processingCode != null && processingCode.length() >= 4
+                ? processingCode.substring(2, 4) : "00";
+        String currency = request.hasField(49) ? request.getString(49) : config.getMock().getLedger().getCurrency();
+        return String.format("%s02%s%s%012d", accountType, currency, balance < 0 ? "D" : "C", Math.abs(balance));
+    }
+
+    // ================================
+    // ADMINISTRACIÓN
+    // ================================
+
+    public Long getBalance(String account) {
+        AtomicLong balance = balances.get(account);
+        return balance != null ? balance.get() : null;
+    }
+
+    public void setBalance(String account, long amount) {
+        balances.computeIfAbsent(account, k -> new AtomicLong()).set(amount);
+    }
+
+    public boolean removeAccount(String account) {
+        return balances.remove(account) != null;
+    }
+
+    public void clear() {
+        balances.clear();
+        debits.set(0);
+        credits.set(0);
+        declined.set(0);
+        logger.info("Libro de cuentas mock vaciado");
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("accounts", balances.size());
+        stats.put("debits", debits.get());
+        stats.put("credits", credits.get());
+        stats.put("declined", declined.get());
+        stats.put("snapshotFile", config.getMock().getLedger().getSnapshotFile());
+        return stats;
+    }
+
+    // ================================
+    // SNAPSHOT
+    // ================================
+
+    /**
+     * Escribe todos los saldos en el archivo configurado. Se escribe a un temporal y se reemplaza
+     * al final: un corte a mitad nunca deja un snapshot truncado. El tráfico sigue mientras tanto;
+     * cada saldo es consistente por sí mismo, no hay foto global del libro.
+     *
+     * @return cuentas escritas
+     */
+    public int snapshot() throws IOException {
+        Path target = snapshotPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long start = System.nanoTime();
+        int written = 0;
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), IO_BUFFER_SIZE))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(balances.size()); // Estimación para dimensionar la carga
+            for (Map.Entry<String, AtomicLong> entry : balances.entrySet()) {
+                byte[] account = entry.getKey().getBytes(StandardCharsets.US_ASCII);
+                if (account.length == 0 || account.length > 255) {
+                    continue; // La longitud va en un byte; 0 marca el fin
+                }
+                out.writeByte(account.length);
+                out.write(account);
+                out.writeLong(entry.getValue().get());
+                written++;
+            }
+            out.writeByte(0); // Fin
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        logger.info("💾 Snapshot de saldos: {} cuentas en {} ({} ms)",
+                written, target, (System.nanoTime() - start) / 1_000_000);
+        return written;
+    }
+
+    /**
+     * Reemplaza el libro con el contenido del snapshot
+     *
+     * @return cuentas cargadas
+     */
+    public int load() throws IOException {
+        Path source = snapshotPath();
+        long start = System.nanoTime();
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(source), IO_BUFFER_SIZE))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Formato de snapshot desconocido: " + source);
+            }
+            int expected = in.readInt();
+            ConcurrentHashMap<String, AtomicLong> loaded = new ConcurrentHashMap<>(Math.max(16, expected * 4 / 3 + 1));
+            byte[] account = new byte[255];
+            int length;
+            while ((length = in.readUnsignedByte()) != 0) {
+                in.readFully(account, 0, length);
+                loaded.put(new String(account, 0, length, StandardCharsets.US_ASCII), new AtomicLong(in.readLong()));
+            }
+            balances.clear();
+            balances.putAll(loaded);
+        }
+
+        logger.info("📂 Snapshot de saldos cargado: {} cuentas desde {} ({} ms)",
+                balances.size(), source, (System.nanoTime() - start) / 1_000_000);
+        return balances.size();
+    }
+
+    private boolean hasSnapshotFile() {
+        String file = config.getMock().getLedger().getSnapshotFile();
+        return file != null && !file.isEmpty();
+    }
+
+    private Path snapshotPath() {
+        if (!hasSnapshotFile()) {
+            throw new IllegalStateException("iso8583.simulator.mock.ledger.snapshot-file no configurado");
+        }
+        return Paths.get(config.getMock().getLedger().getSnapshotFile());
+    }
+
+    private static long parseAmount(String amount) {
+        if (amount == null || amount.isEmpty()) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < amount.length(); i++) {
+            char c = amount.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Monto inválido en campo 4: " + amount);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -10,7 +10,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Cargador de datos CSV para escenarios de prueba
@@ -21,7 +23,38 @@ public class CSVDataLoader {
     private static final Logger logger = LoggerFactory.getLogger(CSVDataLoader.class);
 
     /**
-     * Carga datos de test desde un archivo CSV usando OpenCSV
+     * Abre un CSV de datos de test para recorrerlo en streaming sobre el archivo mapeado en memoria.
+     * No carga filas: el llamador itera o arma un Stream y debe cerrar el archivo.
+     */
+    public MappedCsvFile openTestData(String filePath) throws IOException {
+        return MappedCsvFile.open(Paths.get(filePath));
+    }
+
+    /**
+     * Recorre el CSV fila por fila sin materializarlo: la primera fila se procesa apenas se abre el
+     * archivo y la memoria no crece con la cantidad de registros. La fila es una vista válida sólo
+     * durante la llamada a {@code action}.
+     *
+     * @return cantidad de filas procesadas
+     */
+    public long forEachTestRecord(String filePath, Consumer<MappedCsvFile.Row> action) throws IOException {
+        long rows = 0;
+        try (MappedCsvFile csv = openTestData(filePath)) {
+            for (MappedCsvFile.Row row : csv) {
+                action.accept(row);
+                rows++;
+            }
+            logger.info("Procesados {} registros desde {} (streaming)", rows, filePath);
+        } catch (Exception e) {
+            logger.error("Error recorriendo CSV: {}", e.getMessage());
+            throw e;
+        }
+        return rows;
+    }
+
+    /**
+     * Carga datos de test desde un archivo CSV usando OpenCSV.
+     * Materializa el archivo completo; para archivos grandes usar {@link #forEachTestRecord}.
      */
     public List<Map<String, String>> loadTestDataFromCSV(String filePath) throws IOException, CsvException {
         List<Map<String, String>> testData = new ArrayList<>();
@@ -59,7 +92,8 @@ public class CSVDataLoader {
     }
 
     /**
-     * Carga datos usando Apache Commons CSV (alternativo)
+     * Carga datos usando Apache Commons CSV (alternativo).
+     * También materializa el archivo completo.
      */
     public List<Map<String, String>> loadTestDataFromCSVApache(String filePath) throws IOException {
         List<Map<String, String>> testData = new ArrayList<>();
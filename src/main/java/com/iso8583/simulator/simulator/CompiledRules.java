@@ -0,0 +1,394 @@
+package com.iso8583.simulator.simulator;
+
+import org.jpos.iso.ISOMsg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Reglas compiladas e inmutables. Cada regla se indexa por su condición más selectiva
+ * (equals/in, prefix/bins o suffix) en un trie del campo correspondiente; evaluar un request
+ * recorre un trie por campo indexado con el valor del campo y sólo verifica las reglas
+ * que cuelgan de los nodos visitados. Las reglas que sólo tienen rangos o regex quedan
+ * en una lista residual que se recorre en orden y se corta apenas no puede mejorar el resultado.
+ */
+final class CompiledRules {
+
+    private static final int[] NO_RULES = new int[0];
+
+    static final CompiledRules EMPTY = new CompiledRules(new Rule[0], new int[0], new Node[0], new Node[0], NO_RULES);
+
+    private final Rule[] rules;
+    private final int[] indexedFields;
+    private final Node[] prefixTries;  // por campo indexado, valor leído de izquierda a derecha
+    private final Node[] suffixTries;  // por campo indexado, valor leído de derecha a izquierda
+    private final int[] residual;
+
+    private CompiledRules(Rule[] rules, int[] indexedFields, Node[] prefixTries, Node[] suffixTries, int[] residual) {
+        this.rules = rules;
+        this.indexedFields = indexedFields;
+        this.prefixTries = prefixTries;
+        this.suffixTries = suffixTries;
+        this.residual = residual;
+    }
+
+    /**
+     * Primera regla (en orden de definición) que aplica al request, o null
+     */
+    Rule evaluate(ISOMsg request) {
+        int best = Integer.MAX_VALUE;
+
+        for (int i = 0; i < indexedFields.length; i++) {
+            String value = request.getString(indexedFields[i]);
+            if (value == null) {
+                continue;
+            }
+            Node node = prefixTries[i];
+            for (int position = 0; node != null; position++) {
+                best = firstMatch(node.passRules, best, request);
+                if (position == value.length()) {
+                    best = firstMatch(node.exactRules, best, request);
+                    break;
+                }
+                node = node.child(value.charAt(position));
+            }
+            node = suffixTries[i];
+            for (int position = value.length() - 1; node != null; position--) {
+                best = firstMatch(node.passRules, best, request);
+                if (position < 0) {
+                    break;
+                }
+                node = node.child(value.charAt(position));
+            }
+        }
+
+        // Residual en orden: la primera que aplica es la mejor de la lista
+        for (int index : residual) {
+            if (index >= best) {
+                break;
+            }
+            if (rules[index].matches(request)) {
+                best = index;
+                break;
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : rules[best];
+    }
+
+    private int firstMatch(int[] candidates, int best, ISOMsg request) {
+        // Los índices de cada nodo están ordenados: al llegar a best no hay mejora posible
+        for (int index : candidates) {
+            if (index >= best) {
+                break;
+            }
+            if (rules[index].matches(request)) {
+                return index;
+            }
+        }
+        return best;
+    }
+
+    int size() {
+        return rules.length;
+    }
+
+    int residualSize() {
+        return residual.length;
+    }
+
+    int[] indexedFields() {
+        return indexedFields.clone();
+    }
+
+    List<Map<String, Object>> describe() {
+        List<Map<String, Object>> result = new ArrayList<>(rules.length);
+        for (Rule rule : rules) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", rule.id);
+            map.put("responseCode", rule.responseCode);
+            map.put("conditions", rule.conditions.length);
+            result.add(map);
+        }
+        return result;
+    }
+
+    // ================================
+    // COMPILACIÓN
+    // ================================
+
+    static CompiledRules compile(List<ResponseRule> definitions) {
+        Rule[] rules = new Rule[definitions.size()];
+        TreeMap<Integer, NodeBuilder[]> tries = new TreeMap<>();
+        List<Integer> residual = new ArrayList<>();
+
+        for (int index = 0; index < rules.length; index++) {
+            ResponseRule definition = definitions.get(index);
+            String id = definition.getId() != null ? definition.getId() : "rule-" + (index + 1);
+            String responseCode = definition.getResponseCode();
+            if (responseCode == null || responseCode.length() != 2) {
+                throw new IllegalArgumentException("Regla " + id + ": responseCode debe tener 2 caracteres");
+            }
+            List<ResponseRule.Condition> when = definition.getWhen();
+            if (when == null || when.isEmpty()) {
+                throw new IllegalArgumentException("Regla " + id + ": sin condiciones");
+            }
+
+            Condition[] conditions = new Condition[when.size()];
+            Condition indexed = null;
+            for (int c = 0; c < conditions.length; c++) {
+                conditions[c] = Condition.of(id, when.get(c));
+                if (conditions[c].selectivity() > (indexed == null ? 0 : indexed.selectivity())) {
+                    indexed = conditions[c];
+                }
+            }
+            rules[index] = new Rule(id, responseCode, conditions);
+
+            if (indexed == null) {
+                residual.add(index);
+                continue;
+            }
+            NodeBuilder[] fieldTries = tries.computeIfAbsent(indexed.field,
+                    field -> new NodeBuilder[]{new NodeBuilder(), new NodeBuilder()});
+            for (String key : indexed.keys) {
+                switch (indexed.kind) {
+                    case Condition.EXACT:
+                        fieldTries[0].insert(key, false).exactRules.add(index);
+                        break;
+                    case Condition.PREFIX:
+                        fieldTries[0].insert(key, false).passRules.add(index);
+                        break;
+                    default:
+                        fieldTries[1].insert(key, true).passRules.add(index);
+                        break;
+                }
+            }
+        }
+
+        int[] indexedFields = new int[tries.size()];
+        Node[] prefixTries = new Node[tries.size()];
+        Node[] suffixTries = new Node[tries.size()];
+        int i = 0;
+        for (Map.Entry<Integer, NodeBuilder[]> entry : tries.entrySet()) {
+            indexedFields[i] = entry.getKey();
+            prefixTries[i] = entry.getValue()[0].freeze();
+            suffixTries[i] = entry.getValue()[1].freeze();
+            i++;
+        }
+        return new CompiledRules(rules, indexedFields, prefixTries, suffixTries,
+                residual.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    static final class Rule {
+        final String id;
+        final String responseCode;
+        final Condition[] conditions;
+
+        Rule(String id, String responseCode, Condition[] conditions) {
+            this.id = id;
+            this.responseCode = responseCode;
+            this.conditions = conditions;
+        }
+
+        boolean matches(ISOMsg request) {
+            for (Condition condition : conditions) {
+                if (!condition.matches(request.getString(condition.field))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Condition {
+        static final int EXACT = 1;
+        static final int PREFIX = 2;
+        static final int SUFFIX = 3;
+        static final int RANGE = 4;
+        static final int REGEX = 5;
+
+        final int field;
+        final int kind;
+        final String[] keys;
+        final long min;
+        final long max;
+        final Pattern pattern;
+
+        private Condition(int field, int kind, String[] keys, long min, long max, Pattern pattern) {
+            this.field = field;
+            this.kind = kind;
+            this.keys = keys;
+            this.min = min;
+            this.max = max;
+            this.pattern = pattern;
+        }
+
+        static Condition of(String ruleId, ResponseRule.Condition definition) {
+            int field = definition.getField();
+            if (field < 2 || field > 128) {
+                throw new IllegalArgumentException("Regla " + ruleId + ": campo inválido " + field);
+            }
+            List<Condition> parsed = new ArrayList<>(1);
+            if (definition.getEquals() != null) {
+                parsed.add(new Condition(field, EXACT, new String[]{definition.getEquals()}, 0, 0, null));
+            }
+            if (definition.getIn() != null) {
+                parsed.add(new Condition(field, EXACT, keys(ruleId, definition.getIn()), 0, 0, null));
+            }
+            if (definition.getPrefix() != null) {
+                parsed.add(new Condition(field, PREFIX, new String[]{definition.getPrefix()}, 0, 0, null));
+            }
+            if (definition.getBins() != null) {
+                parsed.add(new Condition(field, PREFIX, keys(ruleId, definition.getBins()), 0, 0, null));
+            }
+            if (definition.getSuffix() != null) {
+                parsed.add(new Condition(field, SUFFIX, new String[]{definition.getSuffix()}, 0, 0, null));
+            }
+            if (definition.getRegex() != null) {
+                parsed.add(new Condition(field, REGEX, null, 0, 0, Pattern.compile(definition.getRegex())));
+            }
+            if (definition.getMin() != null || definition.getMax() != null) {
+                long min = definition.getMin() != null ? definition.getMin() : Long.MIN_VALUE;
+                long max = definition.getMax() != null ? definition.getMax() : Long.MAX_VALUE;
+                if (min > max) {
+                    throw new IllegalArgumentException("Regla " + ruleId + ": min > max en campo " + field);
+                }
+                parsed.add(new Condition(field, RANGE, null, min, max, null));
+            }
+            if (parsed.size() != 1) {
+                throw new IllegalArgumentException("Regla " + ruleId + ": cada condición sobre el campo "
+                        + field + " debe tener exactamente un operador");
+            }
+            return parsed.get(0);
+        }
+
+        private static String[] keys(String ruleId, List<String> values) {
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException("Regla " + ruleId + ": lista vacía");
+            }
+            return values.toArray(new String[0]);
+        }
+
+        /**
+         * Preferencia para indexar: exacto sobre prefijo sobre sufijo; 0 = no indexable
+         */
+        int selectivity() {
+            switch (kind) {
+                case EXACT:
+                    return 3;
+                case PREFIX:
+                    return 2;
+                case SUFFIX:
+                    return 1;
+                default:
+                    return 0;
+            }
+        }
+
+        boolean matches(String value) {
+            if (value == null) {
+                return false;
+            }
+            switch (kind) {
+                case EXACT:
+                    for (String key : keys) {
+                        if (key.equals(value)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case PREFIX:
+                    for (String key : keys) {
+                        if (value.startsWith(key)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case SUFFIX:
+                    return value.endsWith(keys[0]);
+                case RANGE:
+                    long number = parseLong(value);
+                    return number != Long.MIN_VALUE && number >= min && number <= max;
+                default:
+                    return pattern.matcher(value).matches();
+            }
+        }
+
+        /**
+         * Long.MIN_VALUE si el valor no es numérico
+         */
+        private static long parseLong(String value) {
+            if (value.isEmpty() || value.length() > 18) {
+                return Long.MIN_VALUE;
+            }
+            long number = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return Long.MIN_VALUE;
+                }
+                number = number * 10 + (c - '0');
+            }
+            return number;
+        }
+    }
+
+    /**
+     * Nodo congelado: hijos en arreglo ordenado por carácter, búsqueda binaria
+     */
+    static final class Node {
+        final char[] keys;
+        final Node[] children;
+        final int[] passRules;   // aplican a todo valor que pasa por este nodo
+        final int[] exactRules;  // aplican sólo si el valor termina en este nodo
+
+        Node(char[] keys, Node[] children, int[] passRules, int[] exactRules) {
+            this.keys = keys;
+            this.children = children;
+            this.passRules = passRules;
+            this.exactRules = exactRules;
+        }
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    private static final class NodeBuilder {
+        final TreeMap<Character, NodeBuilder> children = new TreeMap<>();
+        final List<Integer> passRules = new ArrayList<>(0);
+        final List<Integer> exactRules = new ArrayList<>(0);
+
+        NodeBuilder insert(String key, boolean reverse) {
+            NodeBuilder node = this;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(reverse ? key.length() - 1 - i : i);
+                node = node.children.computeIfAbsent(c, k -> new NodeBuilder());
+            }
+            return node;
+        }
+
+        Node freeze() {
+            char[] keys = new char[children.size()];
+            Node[] frozen = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, NodeBuilder> child : children.entrySet()) {
+                keys[i] = child.getKey();
+                frozen[i++] = child.getValue().freeze();
+            }
+            return new Node(keys, frozen, sorted(passRules), sorted(exactRules));
+        }
+
+        private static int[] sorted(List<Integer> indexes) {
+            if (indexes.isEmpty()) {
+                return NO_RULES;
+            }
+            return indexes.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+        }
+    }
+}
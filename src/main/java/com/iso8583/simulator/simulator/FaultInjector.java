@@ -0,0 +1,309 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import com.iso8583.simulator.core.message.PackagerRegistry;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Perfiles de fallas del mock: descartes, respuestas tardías, desorden, 0800 no solicitados,
+ * frames truncados o corruptos y cierres de socket, cada uno con su tasa y alcance por MTI / terminal.
+ * Sirve para medir cómo el PSEUDO-MUX de {@link com.iso8583.simulator.core.connection.ConnectionManager}
+ * correlaciona y se recupera bajo estrés.
+ *
+ * Se decide una vez por request con una sola tirada sobre las tasas acumuladas del primer perfil que aplica.
+ * Igual que los perfiles de latencia, los cambios en runtime publican una lista nueva completa.
+ */
+@Component
+public class FaultInjector implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FaultInjector.class);
+
+    private static final DateTimeFormatter TRANSMISSION_DATE_TIME = DateTimeFormatter.ofPattern("MMddHHmmss");
+
+    public enum Fault {
+        NONE(false), DROP(false), LATE(false), REORDER(false),
+        UNSOLICITED(true), TRUNCATE(true), GARBLE(true), DISCONNECT(true);
+
+        private final boolean wireOnly;
+
+        Fault(boolean wireOnly) {
+            this.wireOnly = wireOnly;
+        }
+
+        /**
+         * true si sólo tiene sentido sobre un socket (autorizador mock TCP)
+         */
+        public boolean isWireOnly() {
+            return wireOnly;
+        }
+    }
+
+    /**
+     * Falla elegida para un request; {@code delayMs} es la demora extra (LATE, REORDER) o el plazo del descarte (DROP)
+     */
+    public static final class Decision {
+        public static final Decision NONE = new Decision(Fault.NONE, 0, null);
+
+        private final Fault fault;
+        private final long delayMs;
+        private final String profile;
+
+        Decision(Fault fault, long delayMs, String profile) {
+            this.fault = fault;
+            this.delayMs = delayMs;
+            this.profile = profile;
+        }
+
+        public Fault getFault() { return fault; }
+
+        public long getDelayMs() { return delayMs; }
+
+        public String getProfile() { return profile; }
+    }
+
+    // Orden de las tasas acumuladas: el mismo que Fault sin NONE
+    private static final Fault[] ROLLED = {
+            Fault.DROP, Fault.LATE, Fault.REORDER, Fault.UNSOLICITED,
+            Fault.TRUNCATE, Fault.GARBLE, Fault.DISCONNECT
+    };
+
+    private static final class Compiled {
+        final String name;
+        final SimulatorConfiguration.MockConfig.FaultProfile source;
+        final Set<String> mtis;      // null = todos
+        final Set<String> terminals; // null = todos
+        final double[] cumulative = new double[ROLLED.length];
+        // Sin las fallas de socket: en proceso las tasas de drop, late y reorder no cambian
+        final double[] inProcessCumulative = new double[ROLLED.length];
+
+        Compiled(String name, SimulatorConfiguration.MockConfig.FaultProfile profile) {
+            this.name = name;
+            this.source = profile;
+            this.mtis = profile.getMtis() == null || profile.getMtis().isEmpty()
+                    ? null : new HashSet<>(profile.getMtis());
+            this.terminals = profile.getTerminals() == null || profile.getTerminals().isEmpty()
+                    ? null : new HashSet<>(profile.getTerminals());
+
+            double[] rates = {
+                    profile.getDrop(), profile.getLate(), profile.getReorder(), profile.getUnsolicited(),
+                    profile.getTruncate(), profile.getGarble(), profile.getDisconnect()
+            };
+            double total = 0;
+            double inProcessTotal = 0;
+            for (int i = 0; i < rates.length; i++) {
+                if (rates[i] < 0.0 || rates[i] > 1.0) {
+                    throw new IllegalArgumentException("Perfil " + name + ": " + ROLLED[i]
+                            + " debe estar entre 0.0 y 1.0");
+                }
+                total += rates[i];
+                cumulative[i] = total;
+                if (!ROLLED[i].isWireOnly()) {
+                    inProcessTotal += rates[i];
+                }
+                inProcessCumulative[i] = inProcessTotal; // Banda vacía para las de socket
+            }
+            if (total > 1.0 + 1e-9) {
+                throw new IllegalArgumentException("Perfil " + name + ": la suma de tasas excede 1.0");
+            }
+        }
+
+        boolean appliesTo(String mti, String terminalId) {
+            return (mtis == null || mtis.contains(mti)) && (terminals == null || terminals.contains(terminalId));
+        }
+    }
+
+    @Autowired
+    private SimulatorConfiguration config;
+
+    @Autowired
+    private PackagerRegistry packagerRegistry;
+
+    private volatile List<Compiled> profiles = Collections.emptyList();
+    private final AtomicLongArray injected = new AtomicLongArray(Fault.values().length);
+
+    @Override
+    public void afterPropertiesSet() {
+        List<Compiled> compiled = new ArrayList<>();
+        for (Map.Entry<String, SimulatorConfiguration.MockConfig.FaultProfile> profile
+                : config.getMock().getFaultProfiles().entrySet()) {
+            compiled.add(new Compiled(profile.getKey(), profile.getValue()));
+        }
+        profiles = Collections.unmodifiableList(compiled);
+        if (!compiled.isEmpty()) {
+            logger.info("Perfiles de fallas mock: {}", config.getMock().getFaultProfiles().keySet());
+        }
+    }
+
+    /**
+     * Falla para el request; {@link Decision#NONE} si ningún perfil aplica o la tirada no cae en ninguna tasa
+     */
+    public Decision decide(ISOMsg request) throws ISOException {
+        return decide(request, true);
+    }
+
+    /**
+     * Igual que {@link #decide(ISOMsg)}; con {@code wire=false} (simulación en proceso, sin socket) las fallas
+     * {@link Fault#isWireOnly() de socket} no se tiran: drop, late y reorder conservan sus tasas configuradas
+     */
+    public Decision decide(ISOMsg request, boolean wire) throws ISOException {
+        List<Compiled> current = profiles;
+        if (current.isEmpty()) {
+            return Decision.NONE;
+        }
+        String mti = request.getMTI();
+        String terminalId = request.getString(41);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (Compiled profile : current) {
+            if (!profile.source.isEnabled() || !profile.appliesTo(mti, terminalId)) {
+                continue;
+            }
+            double[] cumulative = wire ? profile.cumulative : profile.inProcessCumulative;
+            double roll = random.nextDouble();
+            for (int i = 0; i < ROLLED.length; i++) {
+                if (roll < cumulative[i]) {
+                    Fault fault = ROLLED[i];
+                    injected.incrementAndGet(fault.ordinal());
+                    return new Decision(fault, delayFor(fault, profile.source), profile.name);
+                }
+            }
+        }
+        return Decision.NONE;
+    }
+
+    private long delayFor(Fault fault, SimulatorConfiguration.MockConfig.FaultProfile profile) {
+        switch (fault) {
+            case DROP:
+                return config.getSwitch().getTimeout();
+            case LATE:
+                return profile.getLateDelayMs() > 0 ? profile.getLateDelayMs() : config.getSwitch().getTimeout() + 5000L;
+            case REORDER:
+                return ThreadLocalRandom.current().nextLong(Math.max(1, profile.getReorderWindowMs()) + 1);
+            default:
+                return 0;
+        }
+    }
+
+    // ================================
+    // FRAMES DEFECTUOSOS
+    // ================================
+
+    /**
+     * Header con la longitud completa pero sólo la mitad del mensaje: el cliente queda desalineado
+     * hasta que el resto de su lectura se complete con bytes del frame siguiente
+     */
+    public byte[] truncatedFrame(ISOMsg response) throws ISOException {
+        byte[] body = response.pack();
+        return frame(body, body.length / 2, body.length);
+    }
+
+    /**
+     * Longitud correcta, pero MTI y bitmap con caracteres inválidos: el frame llega entero y no desempaqueta
+     */
+    public byte[] garbledFrame(ISOMsg response) throws ISOException {
+        byte[] body = response.pack().clone();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int corrupt = Math.min(body.length, 20); // MTI (4) + bitmap primario en hex (16)
+        for (int i = 0; i < corrupt; i++) {
+            if (i == 0 || random.nextInt(4) == 0) {
+                body[i] = (byte) ('G' + random.nextInt(20)); // Fuera de dígitos y hex
+            }
+        }
+        return frame(body, body.length, body.length);
+    }
+
+    /**
+     * Echo de red 0800 que el cliente no pidió
+     */
+    public ISOMsg unsolicitedEcho() throws ISOException {
+        ISOMsg echo = new ISOMsg();
+        echo.setPackager(packagerRegistry.getDefault());
+        echo.setMTI("0800");
+        echo.set(7, LocalDateTime.now().format(TRANSMISSION_DATE_TIME));
+        echo.set(11, String.format("%06d", ThreadLocalRandom.current().nextInt(1, 1000000)));
+        echo.set(70, "301");
+        return echo;
+    }
+
+    private static byte[] frame(byte[] body, int sent, int declaredLength) {
+        byte[] header = String.format("%04d", declaredLength).getBytes(StandardCharsets.US_ASCII);
+        byte[] frame = new byte[header.length + sent];
+        System.arraycopy(header, 0, frame, 0, header.length);
+        System.arraycopy(body, 0, frame, header.length, sent);
+        return frame;
+    }
+
+    // ================================
+    // ADMINISTRACIÓN
+    // ================================
+
+    public synchronized void putProfile(String name, SimulatorConfiguration.MockConfig.FaultProfile profile) {
+        Compiled compiled = new Compiled(name, profile);
+        List<Compiled> updated = new ArrayList<>();
+        boolean replaced = false;
+        for (Compiled existing : profiles) {
+            if (existing.name.equals(name)) {
+                updated.add(compiled);
+                replaced = true;
+            } else {
+                updated.add(existing);
+            }
+        }
+        if (!replaced) {
+            updated.add(compiled);
+        }
+        profiles = Collections.unmodifiableList(updated);
+        logger.info("Perfil de fallas {} {}", name, replaced ? "actualizado" : "agregado");
+    }
+
+    public synchronized boolean removeProfile(String name) {
+        List<Compiled> updated = new ArrayList<>(profiles);
+        boolean removed = updated.removeIf(profile -> profile.name.equals(name));
+        if (removed) {
+            profiles = Collections.unmodifiableList(updated);
+            logger.info("Perfil de fallas {} eliminado", name);
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        profiles = Collections.emptyList();
+        for (int i = 0; i < injected.length(); i++) {
+            injected.set(i, 0);
+        }
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> profileViews = new LinkedHashMap<>();
+        for (Compiled profile : profiles) {
+            profileViews.put(profile.name, profile.source);
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Fault fault : ROLLED) {
+            counts.put(fault.name().toLowerCase(), injected.get(fault.ordinal()));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("profiles", profileViews);
+        result.put("injected", counts);
+        return result;
+    }
+}
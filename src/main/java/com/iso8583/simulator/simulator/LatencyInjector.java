@@ -0,0 +1,58 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.connection.HashedWheelTimer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inyecta latencia en el modo mock sin ocupar threads: la respuesta ya está armada y el future
+ * se completa desde la rueda de timers cuando vence el plazo. Las continuaciones encadenadas
+ * corren en el thread de la rueda, así que deben ser cortas.
+ */
+@Component
+public class LatencyInjector implements DisposableBean {
+
+    // Tick de 1 ms: la precisión del delay queda en el orden del milisegundo
+    private final HashedWheelTimer wheel =
+            new HashedWheelTimer("ISO8583-MockLatency", 1, TimeUnit.MILLISECONDS, 1024);
+
+    /**
+     * Future que se completa con {@code value} dentro de {@code delayMs}
+     */
+    public <T> CompletableFuture<T> completeAfter(T value, long delayMs) {
+        if (delayMs <= 0) {
+            return CompletableFuture.completedFuture(value);
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        wheel.newTimeout(() -> future.complete(value), delayMs, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    /**
+     * Future que falla con {@code error} dentro de {@code delayMs}
+     */
+    public <T> CompletableFuture<T> failAfter(Throwable error, long delayMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (delayMs <= 0) {
+            future.completeExceptionally(error);
+        } else {
+            wheel.newTimeout(() -> future.completeExceptionally(error), delayMs, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Respuestas demoradas que aún no se entregaron
+     */
+    public long getPendingCount() {
+        return wheel.getScheduledCount();
+    }
+
+    @Override
+    public void destroy() {
+        wheel.stop();
+    }
+}
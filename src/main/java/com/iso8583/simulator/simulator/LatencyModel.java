@@ -0,0 +1,266 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribución de latencia del autorizador simulado. Inmutable: sample() se llama en paralelo
+ * desde todos los requests mock y sólo usa el ThreadLocalRandom del thread.
+ */
+public abstract class LatencyModel {
+
+    private final String type;
+    private final long cap;
+
+    private LatencyModel(String type, long cap) {
+        this.type = type;
+        this.cap = cap > 0 ? cap : Long.MAX_VALUE;
+    }
+
+    /**
+     * Latencia en milisegundos, nunca negativa ni mayor al tope del perfil
+     */
+    public final long sample() {
+        double value = draw(ThreadLocalRandom.current());
+        if (!(value > 0)) {
+            return 0;
+        }
+        return Math.min((long) value, cap);
+    }
+
+    protected abstract double draw(ThreadLocalRandom random);
+
+    protected abstract void describe(Map<String, Object> parameters);
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("type", type);
+        describe(map);
+        if (cap != Long.MAX_VALUE) {
+            map.put("cap", cap);
+        }
+        return map;
+    }
+
+    public static LatencyModel uniform(long min, long max) {
+        return new Uniform(min, max, 0);
+    }
+
+    /**
+     * Construye el modelo a partir del perfil configurado; valida los parámetros
+     */
+    public static LatencyModel of(SimulatorConfiguration.MockConfig.LatencyProfile profile) {
+        String type = profile.getType() == null ? "uniform" : profile.getType().toLowerCase();
+        long cap = profile.getCap();
+        switch (type) {
+            case "fixed":
+                require(profile.getValue() >= 0, "value debe ser >= 0");
+                return new Fixed(profile.getValue(), cap);
+            case "uniform":
+                require(profile.getMin() >= 0 && profile.getMax() >= profile.getMin(), "se requiere 0 <= min <= max");
+                return new Uniform(profile.getMin(), profile.getMax(), cap);
+            case "normal":
+                require(profile.getStddev() >= 0, "stddev debe ser >= 0");
+                return new Normal(profile.getMean(), profile.getStddev(), cap);
+            case "lognormal":
+                require(profile.getMedian() > 0 && profile.getSigma() >= 0, "se requiere median > 0 y sigma >= 0");
+                return new LogNormal(profile.getMedian(), profile.getSigma(), cap);
+            case "pareto":
+                require(profile.getScale() > 0 && profile.getShape() > 0, "se requiere scale > 0 y shape > 0");
+                return new Pareto(profile.getScale(), profile.getShape(), cap);
+            case "histogram":
+                return Histogram.of(profile.getHistogram(), cap);
+            default:
+                throw new IllegalArgumentException("Tipo de latencia desconocido: " + profile.getType());
+        }
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    static final class Fixed extends LatencyModel {
+        private final long value;
+
+        Fixed(long value, long cap) {
+            super("fixed", cap);
+            this.value = value;
+        }
+
+        @Override
+        protected double draw(ThreadLocalRandom random) {
+            return value;
+        }
+
+        @Override
+        protected void describe(Map<String, Object> parameters) {
+            parameters.put("value", value);
+        }
+    }
+
+    static final class Uniform extends LatencyModel {
+        private final long min;
+        private final long max;
+
+        Uniform(long min, long max, long cap) {
+            super("uniform", cap);
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        protected double draw(ThreadLocalRandom random) {
+            return max > min ? random.nextLong(min, max) : min;
+        }
+
+        @Override
+        protected void describe(Map<String, Object> parameters) {
+            parameters.put("min", min);
+            parameters.put("max", max);
+        }
+    }
+
+    static final class Normal extends LatencyModel {
+        private final double mean;
+        private final double stddev;
+
+        Normal(double mean, double stddev, long cap) {
+            super("normal", cap);
+            this.mean = mean;
+            this.stddev = stddev;
+        }
+
+        @Override
+        protected double draw(ThreadLocalRandom random) {
+            return mean + stddev * random.nextGaussian();
+        }
+
+        @Override
+        protected void describe(Map<String, Object> parameters) {
+            parameters.put("mean", mean);
+            parameters.put("stddev", stddev);
+        }
+    }
+
+    /**
+     * exp(N(ln median, sigma)): la mediana queda en {@code median} y sigma controla la cola
+     */
+    static final class LogNormal extends LatencyModel {
+        private final double median;
+        private final double sigma;
+
+        LogNormal(double median, double sigma, long cap) {
+            super("lognormal", cap);
+            this.median = median;
+            this.sigma = sigma;
+        }
+
+        @Override
+        protected double draw(ThreadLocalRandom random) {
+            return median * Math.exp(sigma * random.nextGaussian());
+        }
+
+        @Override
+        protected void describe(Map<String, Object> parameters) {
+            parameters.put("median", median);
+            parameters.put("sigma", sigma);
+        }
+    }
+
+    /**
+     * Pareto tipo I por inversión: nunca menor a {@code scale}, cola de potencia {@code shape}
+     */
+    static final class Pareto extends LatencyModel {
+        private final double scale;
+        private final double shape;
+
+        Pareto(double scale, double shape, long cap) {
+            super("pareto", cap);
+            this.scale = scale;
+            this.shape = shape;
+        }
+
+        @Override
+        protected double draw(ThreadLocalRandom random) {
+            return scale / Math.pow(1.0 - random.nextDouble(), 1.0 / shape);
+        }
+
+        @Override
+        protected void describe(Map<String, Object> parameters) {
+            parameters.put("scale", scale);
+            parameters.put("shape", shape);
+        }
+    }
+
+    /**
+     * Reproduce un histograma grabado: elige el bucket según su frecuencia (búsqueda binaria
+     * sobre las frecuencias acumuladas) y un valor uniforme dentro del bucket
+     */
+    static final class Histogram extends LatencyModel {
+        private final long[] upperBounds;
+        private final long[] cumulative;
+
+        private Histogram(long[] upperBounds, long[] cumulative, long cap) {
+            super("histogram", cap);
+            this.upperBounds = upperBounds;
+            this.cumulative = cumulative;
+        }
+
+        static Histogram of(Map<String, Long> buckets, long cap) {
+            require(buckets != null && !buckets.isEmpty(), "histogram requiere al menos un bucket");
+            TreeMap<Long, Long> sorted = new TreeMap<>();
+            for (Map.Entry<String, Long> bucket : buckets.entrySet()) {
+                long bound = Long.parseLong(bucket.getKey().trim());
+                long count = bucket.getValue() == null ? 0 : bucket.getValue();
+                require(bound >= 0 && count >= 0, "buckets y cantidades deben ser >= 0");
+                sorted.merge(bound, count, Long::sum);
+            }
+            long[] upperBounds = new long[sorted.size()];
+            long[] cumulative = new long[sorted.size()];
+            long total = 0;
+            int i = 0;
+            for (Map.Entry<Long, Long> bucket : sorted.entrySet()) {
+                total += bucket.getValue();
+                upperBounds[i] = bucket.getKey();
+                cumulative[i++] = total;
+            }
+            require(total > 0, "histogram sin muestras");
+            return new Histogram(upperBounds, cumulative, cap);
+        }
+
+        @Override
+        protected double draw(ThreadLocalRandom random) {
+            long ticket = random.nextLong(cumulative[cumulative.length - 1]);
+            // Primer bucket cuya frecuencia acumulada supera el ticket (los vacíos nunca salen)
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] > ticket) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            int index = low;
+            long lower = index == 0 ? 0 : upperBounds[index - 1];
+            long upper = upperBounds[index];
+            return upper > lower ? random.nextLong(lower, upper + 1) : upper;
+        }
+
+        @Override
+        protected void describe(Map<String, Object> parameters) {
+            Map<String, Long> buckets = new LinkedHashMap<>();
+            for (int i = 0; i < upperBounds.length; i++) {
+                buckets.put(String.valueOf(upperBounds[i]), cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]));
+            }
+            parameters.put("histogram", buckets);
+        }
+    }
+}
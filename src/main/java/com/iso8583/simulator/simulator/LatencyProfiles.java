@@ -0,0 +1,192 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Perfiles de latencia del mock y su asignación por MTI / processing code.
+ * Las lecturas van contra una foto inmutable; los cambios en runtime arman una foto nueva
+ * y la publican de una vez, así un request nunca ve una configuración a medias.
+ */
+@Component
+public class LatencyProfiles implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyProfiles.class);
+
+    static final String DEFAULT_PROFILE = "default";
+
+    @Autowired
+    private SimulatorConfiguration config;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Foto inmutable: perfiles por nombre, ruteo MTI -> (processing code -> modelo) y el default
+     */
+    private static final class Snapshot {
+        final Map<String, LatencyModel> profiles;
+        final Map<String, String> routes;
+        final String defaultProfile;
+        final Map<String, Route> byMti;
+        final LatencyModel defaultModel;
+
+        Snapshot(Map<String, LatencyModel> profiles, Map<String, String> routes, String defaultProfile) {
+            this.profiles = Collections.unmodifiableMap(profiles);
+            this.routes = Collections.unmodifiableMap(routes);
+            this.defaultProfile = defaultProfile;
+            this.defaultModel = profiles.get(defaultProfile);
+
+            Map<String, Route> byMti = new HashMap<>();
+            for (Map.Entry<String, String> route : routes.entrySet()) {
+                String[] key = parseRoute(route.getKey());
+                LatencyModel model = profiles.get(route.getValue());
+                Route mtiRoute = byMti.computeIfAbsent(key[0], mti -> new Route());
+                if (key[1] == null) {
+                    mtiRoute.model = model;
+                } else {
+                    mtiRoute.byProcessingCode.put(key[1], model);
+                }
+            }
+            this.byMti = byMti;
+        }
+    }
+
+    private static final class Route {
+        LatencyModel model;
+        final Map<String, LatencyModel> byProcessingCode = new HashMap<>();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        SimulatorConfiguration.MockConfig mock = config.getMock();
+        Map<String, LatencyModel> profiles = new LinkedHashMap<>();
+        // Sin perfiles configurados se mantiene el comportamiento histórico: uniforme entre min y max
+        profiles.put(DEFAULT_PROFILE, LatencyModel.uniform(mock.getMinResponseTime(), mock.getMaxResponseTime()));
+        for (Map.Entry<String, SimulatorConfiguration.MockConfig.LatencyProfile> profile
+                : mock.getLatencyProfiles().entrySet()) {
+            profiles.put(profile.getKey(), LatencyModel.of(profile.getValue()));
+        }
+
+        String defaultProfile = mock.getLatencyProfile() != null ? mock.getLatencyProfile() : DEFAULT_PROFILE;
+        snapshot = validated(profiles, new LinkedHashMap<>(mock.getLatencyRoutes()), defaultProfile);
+        logger.info("Perfiles de latencia mock: {} (default: {}, rutas: {})",
+                profiles.keySet(), defaultProfile, mock.getLatencyRoutes().size());
+    }
+
+    /**
+     * Latencia para el request: MTI + processing code, luego sólo MTI, luego el perfil por defecto
+     */
+    public long sample(String mti, String processingCode) {
+        Snapshot current = snapshot;
+        Route route = mti != null ? current.byMti.get(mti) : null;
+        if (route != null) {
+            LatencyModel model = processingCode != null ? route.byProcessingCode.get(processingCode) : null;
+            if (model == null) {
+                model = route.model;
+            }
+            if (model != null) {
+                return model.sample();
+            }
+        }
+        return current.defaultModel.sample();
+    }
+
+    public synchronized void putProfile(String name, SimulatorConfiguration.MockConfig.LatencyProfile profile) {
+        Snapshot current = snapshot;
+        Map<String, LatencyModel> profiles = new LinkedHashMap<>(current.profiles);
+        profiles.put(name, LatencyModel.of(profile));
+        snapshot = validated(profiles, new LinkedHashMap<>(current.routes), current.defaultProfile);
+        logger.info("Perfil de latencia {} actualizado: {}", name, profiles.get(name).toMap());
+    }
+
+    public synchronized void removeProfile(String name) {
+        Snapshot current = snapshot;
+        if (DEFAULT_PROFILE.equals(name) || name.equals(current.defaultProfile)) {
+            throw new IllegalArgumentException("No se puede eliminar el perfil por defecto");
+        }
+        if (current.routes.containsValue(name)) {
+            throw new IllegalArgumentException("El perfil " + name + " está asignado a rutas");
+        }
+        Map<String, LatencyModel> profiles = new LinkedHashMap<>(current.profiles);
+        profiles.remove(name);
+        snapshot = validated(profiles, new LinkedHashMap<>(current.routes), current.defaultProfile);
+    }
+
+    /**
+     * Asigna el perfil a un MTI, o a MTI + processing code si {@code processingCode} no es null
+     */
+    public synchronized void putRoute(String mti, String processingCode, String profileName) {
+        Snapshot current = snapshot;
+        Map<String, String> routes = new LinkedHashMap<>(current.routes);
+        routes.put(routeKey(mti, processingCode), profileName);
+        snapshot = validated(new LinkedHashMap<>(current.profiles), routes, current.defaultProfile);
+    }
+
+    public synchronized boolean removeRoute(String mti, String processingCode) {
+        Snapshot current = snapshot;
+        Map<String, String> routes = new LinkedHashMap<>(current.routes);
+        if (routes.remove(routeKey(mti, processingCode)) == null) {
+            return false;
+        }
+        snapshot = validated(new LinkedHashMap<>(current.profiles), routes, current.defaultProfile);
+        return true;
+    }
+
+    public synchronized void setDefaultProfile(String profileName) {
+        Snapshot current = snapshot;
+        snapshot = validated(new LinkedHashMap<>(current.profiles), new LinkedHashMap<>(current.routes), profileName);
+    }
+
+    public Map<String, Object> describe() {
+        Snapshot current = snapshot;
+        Map<String, Object> profiles = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyModel> profile : current.profiles.entrySet()) {
+            profiles.put(profile.getKey(), profile.getValue().toMap());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("defaultProfile", current.defaultProfile);
+        result.put("profiles", profiles);
+        result.put("routes", current.routes);
+        return result;
+    }
+
+    private static Snapshot validated(Map<String, LatencyModel> profiles, Map<String, String> routes,
+                                      String defaultProfile) {
+        if (!profiles.containsKey(defaultProfile)) {
+            throw new IllegalArgumentException("Perfil de latencia desconocido: " + defaultProfile);
+        }
+        for (Map.Entry<String, String> route : routes.entrySet()) {
+            if (!profiles.containsKey(route.getValue())) {
+                throw new IllegalArgumentException("Ruta " + route.getKey()
+                        + " apunta a un perfil desconocido: " + route.getValue());
+            }
+        }
+        return new Snapshot(profiles, routes, defaultProfile);
+    }
+
+    static String routeKey(String mti, String processingCode) {
+        if (mti == null || mti.length() != 4) {
+            throw new IllegalArgumentException("MTI debe tener 4 dígitos");
+        }
+        return processingCode == null || processingCode.isEmpty() ? mti : mti + "-" + processingCode;
+    }
+
+    /**
+     * "0200" -> [0200, null]; "0200-000000" -> [0200, 000000]
+     */
+    private static String[] parseRoute(String key) {
+        int separator = key.indexOf('-');
+        return separator < 0
+                ? new String[]{key, null}
+                : new String[]{key.substring(0, separator), key.substring(separator + 1)};
+    }
+}
@@ -0,0 +1,510 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.message.GenerationPlan;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * CSV de datos de prueba recorrido en streaming sobre el archivo mapeado en memoria.
+ * La cabecera se lee al abrir y se resuelve a índices de columna; cada fila es una {@link Row}
+ * que apunta a los bytes del archivo y sólo crea el String de una columna cuando se le pide.
+ * El heap usado no depende del tamaño del archivo: las filas no se acumulan y el archivo se mapea
+ * por ventanas, así que la primera fila está disponible apenas se abre.
+ *
+ * Formato: separador configurable (coma por defecto), fin de línea \n o \r\n, líneas vacías ignoradas,
+ * valores y cabeceras sin espacios alrededor (igual que {@link CSVDataLoader#loadTestDataFromCSV}).
+ * Se aceptan campos entre comillas con separadores y comillas dobles ({@code ""}), pero no saltos
+ * de línea dentro de un campo: así cualquier salto de línea es un límite de fila y el archivo se
+ * puede partir para recorrerlo en paralelo.
+ */
+public final class MappedCsvFile implements Iterable<MappedCsvFile.Row>, AutoCloseable {
+
+    // Ventana mapeada por cursor; una fila tiene que entrar entera en una ventana
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    // Rango mínimo para partir en paralelo, y tamaño de lectura al buscar el salto de línea del corte
+    private static final long MIN_SPLIT_SIZE = 1024 * 1024;
+    private static final int SCAN_CHUNK = 8 * 1024;
+    // Sólo para estimateSize(): bytes típicos de una fila de tarjeta
+    private static final int ESTIMATED_ROW_BYTES = 128;
+
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final byte separator;
+    private final String[] header;
+    private final Map<String, Integer> columns;
+    private final long dataStart;
+
+    private MappedCsvFile(Path path, char separator) throws IOException {
+        if (separator == '"' || separator == '\n' || separator == '\r' || separator > 0x7F) {
+            throw new IllegalArgumentException("Separador CSV inválido: " + separator);
+        }
+        this.path = path;
+        this.separator = (byte) separator;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            Cursor cursor = new Cursor(bomLength(), size);
+            if (cursor.advance()) {
+                this.header = cursor.row.toArray();
+                this.dataStart = cursor.position;
+            } else {
+                this.header = new String[0];
+                this.dataStart = size;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            columns.putIfAbsent(header[i], i);
+        }
+        this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    public static MappedCsvFile open(Path path) throws IOException {
+        return new MappedCsvFile(path, ',');
+    }
+
+    public static MappedCsvFile open(Path path, char separator) throws IOException {
+        return new MappedCsvFile(path, separator);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Nombres de columna de la cabecera (copia)
+     */
+    public String[] getHeader() {
+        return header.clone();
+    }
+
+    /**
+     * Índice de la columna, o -1 si la cabecera no la tiene
+     */
+    public int columnIndex(String name) {
+        Integer index = columns.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Recorre las filas en orden. La {@link Row} devuelta es la misma instancia en cada paso:
+     * sus valores son válidos hasta el siguiente {@code next()}.
+     */
+    @Override
+    public Iterator<Row> iterator() {
+        Cursor cursor = new Cursor(dataStart, size);
+        return new Iterator<Row>() {
+            private boolean ready;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready && !done) {
+                    ready = cursor.advance();
+                    done = !ready;
+                }
+                return ready;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return cursor.row;
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Row> spliterator() {
+        return new RowSpliterator(dataStart, size);
+    }
+
+    /**
+     * Filas en orden; las vistas no deben guardarse fuera de la operación que las recibe
+     */
+    public Stream<Row> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Filas en paralelo: el archivo se parte en rangos por saltos de línea y cada rango tiene su propio cursor
+     */
+    public Stream<Row> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Las ventanas ya mapeadas siguen siendo válidas; las libera el GC
+        channel.close();
+    }
+
+    private long bomLength() throws IOException {
+        if (size < 3) {
+            return 0;
+        }
+        ByteBuffer start = ByteBuffer.allocate(3);
+        channel.read(start, 0);
+        return start.get(0) == (byte) 0xEF && start.get(1) == (byte) 0xBB && start.get(2) == (byte) 0xBF ? 3 : 0;
+    }
+
+    /**
+     * Vista de una fila sobre los bytes mapeados. No copia nada al avanzar: {@link #get(int)} decodifica
+     * la columna pedida. Es válida hasta que el cursor que la produjo avanza a la fila siguiente;
+     * {@link #toArray()} y {@link #toMap()} sirven para conservarla.
+     */
+    public final class Row implements GenerationPlan.CsvRow {
+        private final Cursor cursor;
+
+        private Row(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        public int size() {
+            return cursor.count;
+        }
+
+        /**
+         * Valor de la columna, "" si está vacía o null si la fila no tiene esa columna
+         */
+        @Override
+        public String get(int column) {
+            return column >= 0 && column < cursor.count ? cursor.decode(column) : null;
+        }
+
+        /**
+         * Valor de la columna por nombre de cabecera
+         */
+        public String get(String name) {
+            return get(columnIndex(name));
+        }
+
+        public boolean isEmpty(int column) {
+            return column < 0 || column >= cursor.count || cursor.bounds[2 * column] == cursor.bounds[2 * column + 1];
+        }
+
+        /**
+         * Posición de la fila en el archivo, en bytes; sirve para ubicarla en mensajes de error
+         */
+        public long getOffset() {
+            return cursor.rowStart;
+        }
+
+        public String[] toArray() {
+            String[] values = new String[cursor.count];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = cursor.decode(i);
+            }
+            return values;
+        }
+
+        /**
+         * Copia como cabecera -> valor, el formato de {@link CSVDataLoader#loadTestDataFromCSV}
+         */
+        public Map<String, String> toMap() {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (int i = 0; i < header.length && i < cursor.count; i++) {
+                values.put(header[i], cursor.decode(i));
+            }
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(toArray());
+        }
+    }
+
+    /**
+     * Lee las filas que empiezan en [position, end). La última puede terminar después de end.
+     */
+    private final class Cursor {
+        private final long end;
+        private long position;
+        private long rowStart;
+
+        private MappedByteBuffer window;
+        private long windowStart;
+        private boolean windowAtEof;
+
+        // Columnas de la fila actual: inicio y fin relativos a la ventana
+        private int[] bounds = new int[32];
+        private boolean[] escaped = new boolean[16];
+        private int count;
+        private byte[] scratch = new byte[256];
+
+        final Row row = new Row(this);
+
+        Cursor(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        /**
+         * Pasa a la fila siguiente no vacía; false al terminar el rango
+         */
+        boolean advance() {
+            while (position < end) {
+                if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+                    map(position);
+                }
+                int next = parse((int) (position - windowStart));
+                if (next < 0) {
+                    if (windowStart == position) {
+                        throw new IllegalStateException("Fila de más de " + WINDOW_SIZE + " bytes en " + path
+                                + " (offset " + position + ")");
+                    }
+                    map(position); // La fila cruza el final de la ventana: remapear desde su inicio
+                    continue;
+                }
+                rowStart = position;
+                position = windowStart + next;
+                if (count > 1 || bounds[0] != bounds[1]) { // Una sola columna vacía: línea en blanco
+                    return true;
+                }
+            }
+            count = 0;
+            return false;
+        }
+
+        private void map(long from) {
+            try {
+                long length = Math.min(WINDOW_SIZE, size - from);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+                windowStart = from;
+                windowAtEof = from + length == size;
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo mapear " + path + ": " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Separa las columnas de la fila que empieza en {@code i}.
+         *
+         * @return posición siguiente al fin de línea, o -1 si la ventana termina antes que la fila
+         */
+        private int parse(int i) {
+            MappedByteBuffer buffer = window;
+            int limit = buffer.limit();
+            count = 0;
+            while (true) {
+                i = skipBlanks(buffer, i, limit);
+                if (i < limit && buffer.get(i) == QUOTE) {
+                    int start = ++i;
+                    boolean hasEscapes = false;
+                    while (true) {
+                        if (i >= limit) {
+                            if (windowAtEof) {
+                                throw malformed("comillas sin cerrar", start - 1);
+                            }
+                            return -1;
+                        }
+                        byte b = buffer.get(i);
+                        if (b == QUOTE) {
+                            if (i + 1 >= limit && !windowAtEof) {
+                                return -1; // Puede ser una comilla doble partida por la ventana
+                            }
+                            if (i + 1 < limit && buffer.get(i + 1) == QUOTE) {
+                                hasEscapes = true;
+                                i += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        if (b == LF) {
+                            throw malformed("salto de línea dentro de un campo entre comillas", start - 1);
+                        }
+                        i++;
+                    }
+                    addColumn(start, i, hasEscapes);
+                    i = skipBlanks(buffer, i + 1, limit);
+                } else {
+                    int start = i;
+                    while (i < limit) {
+                        byte b = buffer.get(i);
+                        if (b == separator || b == LF) {
+                            break;
+                        }
+                        i++;
+                    }
+                    if (i >= limit && !windowAtEof) {
+                        return -1;
+                    }
+                    int columnEnd = i;
+                    while (columnEnd > start && isBlank(buffer.get(columnEnd - 1))) {
+                        columnEnd--;
+                    }
+                    addColumn(start, columnEnd, false);
+                }
+
+                if (i >= limit) {
+                    return windowAtEof ? i : -1;
+                }
+                byte b = buffer.get(i);
+                if (b == separator) {
+                    i++;
+                } else if (b == LF) {
+                    return i + 1;
+                } else {
+                    throw malformed("texto después de las comillas de cierre", i);
+                }
+            }
+        }
+
+        private int skipBlanks(MappedByteBuffer buffer, int i, int limit) {
+            while (i < limit && isBlank(buffer.get(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private boolean isBlank(byte b) {
+            return b != separator && (b == ' ' || b == '\t' || b == CR);
+        }
+
+        private void addColumn(int start, int columnEnd, boolean hasEscapes) {
+            if (2 * count + 1 >= bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                escaped = Arrays.copyOf(escaped, escaped.length * 2);
+            }
+            bounds[2 * count] = start;
+            bounds[2 * count + 1] = columnEnd;
+            escaped[count++] = hasEscapes;
+        }
+
+        String decode(int column) {
+            int start = bounds[2 * column];
+            int length = bounds[2 * column + 1] - start;
+            if (length == 0) {
+                return "";
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(start, scratch, 0, length);
+            String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            return escaped[column] ? value.replace("\"\"", "\"") : value;
+        }
+
+        private IllegalArgumentException malformed(String problem, int windowOffset) {
+            return new IllegalArgumentException("CSV inválido en " + path + " (offset " + (windowStart + windowOffset)
+                    + "): " + problem);
+        }
+    }
+
+    /**
+     * Rango [start, end) de inicios de fila. Se parte siempre justo después de un salto de línea,
+     * así cada fila queda en un solo rango.
+     */
+    private final class RowSpliterator implements Spliterator<Row> {
+        private long start;
+        private final long end;
+        private Cursor cursor;
+
+        RowSpliterator(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Row> action) {
+            if (cursor == null) {
+                cursor = new Cursor(start, end);
+            }
+            if (!cursor.advance()) {
+                return false;
+            }
+            action.accept(cursor.row);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Row> action) {
+            if (cursor == null) {
+                cursor = new Cursor(start, end);
+            }
+            while (cursor.advance()) {
+                action.accept(cursor.row);
+            }
+        }
+
+        @Override
+        public Spliterator<Row> trySplit() {
+            if (cursor != null || end - start < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            long split = lineStartAfter(start + (end - start) / 2);
+            if (split <= start || split >= end) {
+                return null;
+            }
+            RowSpliterator prefix = new RowSpliterator(start, split);
+            start = split;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long from = cursor == null ? start : cursor.position;
+            return Math.max(0, end - from) / ESTIMATED_ROW_BYTES;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+        /**
+         * Posición siguiente al primer salto de línea desde {@code from}, o end si no hay
+         */
+        private long lineStartAfter(long from) {
+            ByteBuffer chunk = ByteBuffer.allocate(SCAN_CHUNK);
+            long position = from;
+            try {
+                while (position < end) {
+                    chunk.clear();
+                    int read = channel.read(chunk, position);
+                    if (read <= 0) {
+                        return end;
+                    }
+                    for (int i = 0; i < read; i++) {
+                        if (chunk.get(i) == LF) {
+                            return position + i + 1;
+                        }
+                    }
+                    position += read;
+                }
+            } catch (IOException e) {
+                return end; // Sin corte: el rango se recorre entero desde aquí
+            }
+            return end;
+        }
+    }
+}
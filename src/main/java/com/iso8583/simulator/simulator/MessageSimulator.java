@@ -1,19 +1,25 @@
 package com.iso8583.simulator.simulator;
 
+import com.iso8583.simulator.core.enums.ResponseCode;
+import com.iso8583.simulator.core.message.PackagerRegistry;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
-import org.jpos.iso.packager.GenericPackager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Simulador de mensajes ISO8583 con respuestas personalizables
@@ -28,14 +34,32 @@ public class MessageSimulator {
     private final AtomicInteger failedResponses = new AtomicInteger(0);
     private final AtomicLong totalResponseTime = new AtomicLong(0);
 
-    private GenericPackager packager;
+    @Autowired
+    private PackagerRegistry packagerRegistry;
 
-    // Configuración personalizable de respuestas
-    private Map<String, String> responseCodeOverrides = new HashMap<>();
-    private Map<String, String> panBasedResponses = new HashMap<>();
-    private Map<String, String> terminalBasedResponses = new HashMap<>();
-    private double customSuccessRate = 0.95;
-    private boolean useCustomResponseCodes = false;
+    @Autowired
+    private LatencyInjector latencyInjector;
+
+    @Autowired
+    private LatencyProfiles latencyProfiles;
+
+    @Autowired
+    private ResponseRuleEngine ruleEngine;
+
+    @Autowired
+    private AccountLedger accountLedger;
+
+    @Autowired
+    private TransactionCache transactionCache;
+
+    @Autowired
+    private FaultInjector faultInjector;
+
+    @Autowired
+    private ResponseTemplates responseTemplates;
+
+    // Configuración personalizable de respuestas: foto inmutable, se reemplaza completa
+    private final AtomicReference<MockScenario> scenario = new AtomicReference<>(MockScenario.DEFAULT);
 
     public MessageSimulator() {
         logger.info("MessageSimulator inicializado con capacidades de personalización");
@@ -43,17 +67,57 @@ public class MessageSimulator {
     }
 
     /**
-     * Envía un mensaje ISO8583 con respuestas personalizables
+     * Envía un mensaje ISO8583 con respuestas personalizables.
+     * Bloquea hasta que vence la latencia simulada; para carga usar {@link #sendMessageAsync}.
      */
     public ISOMsg sendMessage(ISOMsg request) throws ISOException {
-        totalMessagesSent.incrementAndGet();
+        try {
+            return sendMessageAsync(request).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ISOException) {
+                throw (ISOException) cause;
+            }
+            throw new ISOException("Error simulando mensaje: " + cause.getMessage());
+        }
+    }
 
+    /**
+     * Arma la respuesta en el momento y la entrega cuando vence la latencia del perfil que
+     * corresponde al MTI / processing code, sin ocupar el thread del llamador mientras tanto
+     */
+    public CompletableFuture<ISOMsg> sendMessageAsync(ISOMsg request) {
+        FaultInjector.Decision decision;
         try {
-            // Simular delay de red
-            long startTime = System.currentTimeMillis();
-            Thread.sleep(ThreadLocalRandom.current().nextInt(50, 200));
-            long responseTime = System.currentTimeMillis() - startTime;
+            // En proceso no hay socket: las fallas de frame / conexión no aplican
+            decision = faultInjector.decide(request, false);
+        } catch (ISOException e) {
+            decision = FaultInjector.Decision.NONE;
+        }
+        return sendMessageAsync(request, decision);
+    }
+
+    /**
+     * Igual que {@link #sendMessageAsync(ISOMsg)} con la falla ya decidida por el llamador.
+     * En proceso sólo aplican DROP, LATE y REORDER; las fallas de socket las resuelve el servidor TCP.
+     */
+    public CompletableFuture<ISOMsg> sendMessageAsync(ISOMsg request, FaultInjector.Decision decision) {
+        totalMessagesSent.incrementAndGet();
 
+        if (decision.getFault() == FaultInjector.Fault.DROP) {
+            // El autorizador nunca contesta: falla recién cuando vencería el timeout del switch
+            failedResponses.incrementAndGet();
+            return latencyInjector.failAfter(
+                    new ISOException("Sin respuesta (falla inyectada: " + decision.getProfile() + ")"),
+                    decision.getDelayMs());
+        }
+
+        try {
+            // Simular latencia del autorizador
+            long responseTime = latencyProfiles.sample(request.getMTI(), request.getString(3));
+            if (decision.getFault() == FaultInjector.Fault.LATE || decision.getFault() == FaultInjector.Fault.REORDER) {
+                responseTime += decision.getDelayMs();
+            }
             totalResponseTime.addAndGet(responseTime);
 
             // Crear respuesta personalizada
@@ -71,12 +135,14 @@ public class MessageSimulator {
                         response.getString(11), responseCode, getResponseCodeDescription(responseCode));
             }
 
-            return response;
+            return latencyInjector.completeAfter(response, responseTime);
 
         } catch (Exception e) {
             failedResponses.incrementAndGet();
             logger.error("Error simulando envío de mensaje: {}", e.getMessage());
-            throw new ISOException("Error simulando mensaje: " + e.getMessage());
+            CompletableFuture<ISOMsg> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new ISOException("Error simulando mensaje: " + e.getMessage()));
+            return failed;
         }
     }
 
@@ -84,42 +150,66 @@ public class MessageSimulator {
      * Crea una respuesta personalizada basada en reglas configuradas
      */
     private ISOMsg createCustomResponse(ISOMsg request) throws ISOException {
-        ISOMsg response = new ISOMsg();
+        ISOMsg response;
 
         try {
-            // Determinar MTI de respuesta
+            // MTI de respuesta, campos copiados del request y fecha/hora de transmisión según la plantilla.
+            // Misma instancia de packager que el request; si no trae, la del registro
             String requestMti = request.getMTI();
-            String responseMti = getResponseMti(requestMti);
-            response.setMTI(responseMti);
-
-            // Copiar campos esenciales del request
-            copyFieldIfPresent(request, response, 2);  // PAN
-            copyFieldIfPresent(request, response, 3);  // Processing Code
-            copyFieldIfPresent(request, response, 4);  // Amount
-            copyFieldIfPresent(request, response, 11); // STAN
-            copyFieldIfPresent(request, response, 12); // Local Time
-            copyFieldIfPresent(request, response, 13); // Local Date
-            copyFieldIfPresent(request, response, 32); // Acquiring Institution
-            copyFieldIfPresent(request, response, 37); // RRN
-            copyFieldIfPresent(request, response, 41); // Terminal ID
-            copyFieldIfPresent(request, response, 42); // Merchant ID
+            ResponseTemplates.Plan plan = responseTemplates.planFor(requestMti);
+            response = plan.apply(request,
+                    request.getPackager() != null ? request.getPackager() : packagerRegistry.getDefault());
+            String responseMti = plan.getResponseMti();
+
+            // Retransmisiones y reversos se resuelven antes que las reglas
+            TransactionCache.Verdict verdict = transactionCache.admit(request);
 
             // **LÓGICA PERSONALIZABLE DE CÓDIGOS DE RESPUESTA**
-            String responseCode = determineResponseCode(request);
+            String responseCode;
+            if (verdict == TransactionCache.Verdict.DUPLICATE) {
+                responseCode = ResponseCode.DUPLICATE_TRANSMISSION.getCode();
+            } else if (verdict == TransactionCache.Verdict.REVERSAL_NOT_FOUND) {
+                responseCode = ResponseCode.UNABLE_TO_LOCATE_RECORD.getCode();
+            } else if (verdict == TransactionCache.Verdict.REVERSAL_MATCHED
+                    || verdict == TransactionCache.Verdict.REVERSAL_REPEAT
+                    || verdict == TransactionCache.Verdict.REVERSAL_UNAPPROVED) {
+                // El caché ya marcó el original como reversado: un reverso con original siempre se aprueba,
+                // sin overrides, reglas ni tasa de éxito, o el débito quedaría sin revertir para siempre
+                responseCode = ResponseCode.APPROVED.getCode();
+            } else {
+                responseCode = determineResponseCode(request);
+            }
+
+            // Con el libro de cuentas, una aprobación mueve saldo y puede terminar en 51.
+            // Un reverso repetido o de un original no aprobado se aprueba sin mover saldo.
+            AccountLedger.Posting posting = null;
+            if ("00".equals(responseCode) && accountLedger.isEnabled()
+                    && verdict != TransactionCache.Verdict.REVERSAL_REPEAT
+                    && verdict != TransactionCache.Verdict.REVERSAL_UNAPPROVED) {
+                posting = accountLedger.post(request);
+                if (posting != null) {
+                    responseCode = posting.getResponseCode();
+                }
+            }
             response.set(39, responseCode); // Response Code
+            if (verdict == TransactionCache.Verdict.NEW) {
+                transactionCache.complete(request, responseCode);
+            }
 
             // Campos adicionales basados en el código de respuesta
             if ("00".equals(responseCode)) {
                 // Transacción aprobada
                 response.set(38, generateAuthCode()); // Authorization Code
 
-                // Para consultas de saldo, agregar información de balance
-                if ("301099".equals(request.getString(3))) {
+                if (posting != null) {
+                    response.set(54, accountLedger.formatBalance(request, posting.getBalance())); // Saldo real
+                } else if ("301099".equals(request.getString(3))) {
+                    // Para consultas de saldo, agregar información de balance
                     response.set(54, generateBalanceInfo()); // Additional Amounts - Balance
                 }
 
                 // Para transacciones financieras, agregar balance
-                if ("0200".equals(requestMti) && !"301099".equals(request.getString(3))) {
+                if (posting == null && "0200".equals(requestMti) && !"301099".equals(request.getString(3))) {
                     response.set(54, "000C000000010000"); // Additional Amounts
                 }
             } else {
@@ -128,10 +218,6 @@ public class MessageSimulator {
                         responseCode, getResponseCodeDescription(responseCode));
             }
 
-            // Fecha/hora de transmisión actualizada
-            String currentDateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMddHHmmss"));
-            response.set(7, currentDateTime);
-
             logger.debug("Respuesta mock creada - MTI: {} -> {}, Response Code: {}, STAN: {}",
                     requestMti, responseMti, responseCode, response.getString(11));
 
@@ -148,70 +234,39 @@ public class MessageSimulator {
      */
     private String determineResponseCode(ISOMsg request) throws ISOException {
         try {
+            // Una sola lectura: todo el request se decide con el mismo escenario
+            MockScenario current = scenario.get();
             String pan = request.getString(2);
             String terminalId = request.getString(41);
-            String amount = request.getString(4);
             String processingCode = request.getString(3);
 
             // 1. Verificar overrides específicos por PAN
-            if (pan != null && panBasedResponses.containsKey(pan)) {
-                return panBasedResponses.get(pan);
+            String override = pan != null ? current.panResponse(pan) : null;
+            if (override != null) {
+                return override;
             }
 
             // 2. Verificar overrides por Terminal ID
-            if (terminalId != null && terminalBasedResponses.containsKey(terminalId)) {
-                return terminalBasedResponses.get(terminalId);
+            override = terminalId != null ? current.terminalResponse(terminalId) : null;
+            if (override != null) {
+                return override;
             }
 
             // 3. Verificar overrides por Processing Code
-            if (processingCode != null && responseCodeOverrides.containsKey(processingCode)) {
-                return responseCodeOverrides.get(processingCode);
+            override = processingCode != null ? current.getProcessingCodeResponses().get(processingCode) : null;
+            if (override != null) {
+                return override;
             }
 
-            // 4. Reglas de negocio simuladas
-            if (pan != null) {
-                // Simular fondos insuficientes para PAN que terminan en 51
-                if (pan.endsWith("51")) {
-                    return "51"; // Insufficient funds
-                }
-
-                // Simular tarjeta expirada para PAN que terminan en 54
-                if (pan.endsWith("54")) {
-                    return "54"; // Expired card
-                }
-
-                // Simular PIN incorrecto para PAN que terminan en 55
-                if (pan.endsWith("55")) {
-                    return "55"; // Incorrect PIN
-                }
-
-                // Simular tarjeta restringida para PAN que terminan en 62
-                if (pan.endsWith("62")) {
-                    return "62"; // Restricted card
-                }
-
-                // Simular transacción no permitida para PAN que terminan en 57
-                if (pan.endsWith("57")) {
-                    return "57"; // Transaction not permitted to cardholder
-                }
+            // 4. Reglas de negocio declarativas (config/mock-rules.yml o cargadas por API)
+            String ruleCode = ruleEngine.evaluate(request);
+            if (ruleCode != null) {
+                return ruleCode;
             }
 
-            // 5. Simular límites por monto
-            if (amount != null) {
-                try {
-                    long amountValue = Long.parseLong(amount);
-                    // Simular límite excedido para montos mayores a 50000 (500.00)
-                    if (amountValue > 5000000) { // 50000.00 en centavos
-                        return "61"; // Exceeds withdrawal amount limit
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignorar si el monto no es numérico
-                }
-            }
-
-            // 6. Usar tasa de éxito personalizable
-            if (useCustomResponseCodes) {
-                if (ThreadLocalRandom.current().nextDouble() >= customSuccessRate) {
+            // 5. Usar tasa de éxito personalizable
+            if (current.isUseCustomResponseCodes()) {
+                if (ThreadLocalRandom.current().nextDouble() >= current.getSuccessRate()) {
                     // Seleccionar código de error aleatorio
                     String[] errorCodes = {"05", "12", "13", "30", "51", "54", "55", "62", "91"};
                     return errorCodes[ThreadLocalRandom.current().nextInt(errorCodes.length)];
@@ -223,7 +278,7 @@ public class MessageSimulator {
                 }
             }
 
-            // 7. Default: transacción aprobada
+            // 6. Default: transacción aprobada
             return "00"; // Approved
 
         } catch (Exception e) {
@@ -236,11 +291,28 @@ public class MessageSimulator {
     // MÉTODOS DE CONFIGURACIÓN PERSONALIZABLE
     // ================================
 
+    /**
+     * Aplica varios cambios y los publica juntos: los requests en curso ven el escenario
+     * anterior o el resultante, nunca uno a medio aplicar. {@code changes} puede ejecutarse
+     * más de una vez si hay escrituras concurrentes, así que no debe tener efectos laterales.
+     */
+    public MockScenario updateScenario(Consumer<MockScenario.Builder> changes) {
+        return scenario.updateAndGet(current -> {
+            MockScenario.Builder builder = current.toBuilder();
+            changes.accept(builder);
+            return builder.build();
+        });
+    }
+
+    public MockScenario getScenario() {
+        return scenario.get();
+    }
+
     /**
      * Configura un código de respuesta específico para un Processing Code
      */
     public void setResponseCodeForProcessingCode(String processingCode, String responseCode) {
-        responseCodeOverrides.put(processingCode, responseCode);
+        updateScenario(builder -> builder.processingCodeResponse(processingCode, responseCode));
         logger.info("Configurado código de respuesta {} para Processing Code {}",
                 responseCode, processingCode);
     }
@@ -249,7 +321,7 @@ public class MessageSimulator {
      * Configura un código de respuesta específico para un PAN
      */
     public void setResponseCodeForPan(String pan, String responseCode) {
-        panBasedResponses.put(pan, responseCode);
+        updateScenario(builder -> builder.panResponse(pan, responseCode));
         logger.info("Configurado código de respuesta {} para PAN {}...{}",
                 responseCode, pan.substring(0, 6), pan.substring(pan.length()-4));
     }
@@ -258,7 +330,7 @@ public class MessageSimulator {
      * Configura un código de respuesta específico para un Terminal ID
      */
     public void setResponseCodeForTerminal(String terminalId, String responseCode) {
-        terminalBasedResponses.put(terminalId, responseCode);
+        updateScenario(builder -> builder.terminalResponse(terminalId, responseCode));
         logger.info("Configurado código de respuesta {} para Terminal {}",
                 responseCode, terminalId);
     }
@@ -267,8 +339,7 @@ public class MessageSimulator {
      * Configura la tasa de éxito personalizada
      */
     public void setCustomSuccessRate(double successRate) {
-        this.customSuccessRate = successRate;
-        this.useCustomResponseCodes = true;
+        updateScenario(builder -> builder.successRate(successRate).useCustomResponseCodes(true));
         logger.info("Configurada tasa de éxito personalizada: {}%", successRate * 100);
     }
 
@@ -276,20 +347,53 @@ public class MessageSimulator {
      * Habilita/deshabilita el uso de códigos de respuesta personalizados
      */
     public void setUseCustomResponseCodes(boolean useCustom) {
-        this.useCustomResponseCodes = useCustom;
+        updateScenario(builder -> builder.useCustomResponseCodes(useCustom));
         logger.info("Uso de códigos de respuesta personalizados: {}",
                 useCustom ? "HABILITADO" : "DESHABILITADO");
     }
 
+    /**
+     * Carga overrides masivos (PAN o Terminal ID) desde CSV o binario al índice compacto del escenario.
+     * El archivo se lee y se indexa fuera de la publicación; con {@code replace=false} se combina
+     * con el índice vigente y las claves del archivo ganan.
+     * Las claves que el índice no admite (PAN de 17-19 dígitos, terminal no codificable) se publican
+     * en la misma actualización como overrides individuales del escenario.
+     *
+     * @param unindexed recibe esas claves con su código
+     * @return el índice publicado
+     */
+    public OverrideIndex importOverrides(InputStream in, OverrideFileLoader.Kind kind,
+                                         OverrideFileLoader.Format format, long sizeHint,
+                                         boolean replace, Map<String, String> unindexed) throws IOException {
+        long start = System.nanoTime();
+        OverrideIndex loaded = OverrideFileLoader.load(in, kind, format, sizeHint, unindexed);
+
+        MockScenario published = updateScenario(builder -> {
+            OverrideIndex current = kind == OverrideFileLoader.Kind.PAN ? builder.panIndex() : builder.terminalIndex();
+            OverrideIndex merged = replace || current.size() == 0
+                    ? loaded
+                    : current.toBuilder(loaded.size()).putAll(loaded).build();
+            if (kind == OverrideFileLoader.Kind.PAN) {
+                builder.panIndex(merged);
+                unindexed.forEach(builder::panResponse);
+            } else {
+                builder.terminalIndex(merged);
+                unindexed.forEach(builder::terminalResponse);
+            }
+        });
+
+        OverrideIndex index = kind == OverrideFileLoader.Kind.PAN ? published.getPanIndex() : published.getTerminalIndex();
+        logger.info("📥 {} overrides por {} importados ({}) en {} ms: {} entradas activas, {} KB, {} fuera del índice",
+                loaded.size(), kind, format, (System.nanoTime() - start) / 1_000_000,
+                index.size(), index.footprintBytes() / 1024, unindexed.size());
+        return index;
+    }
+
     /**
      * Limpia todas las configuraciones personalizadas
      */
     public void clearCustomConfigurations() {
-        responseCodeOverrides.clear();
-        panBasedResponses.clear();
-        terminalBasedResponses.clear();
-        customSuccessRate = 0.95;
-        useCustomResponseCodes = false;
+        scenario.set(MockScenario.DEFAULT);
         logger.info("Configuraciones personalizadas limpiadas");
     }
 
@@ -297,12 +401,15 @@ public class MessageSimulator {
      * Obtiene las configuraciones actuales
      */
     public Map<String, Object> getCustomConfigurations() {
+        MockScenario current = scenario.get();
         Map<String, Object> config = new HashMap<>();
-        config.put("responseCodeOverrides", new HashMap<>(responseCodeOverrides));
-        config.put("panBasedResponses", maskPanResponses());
-        config.put("terminalBasedResponses", new HashMap<>(terminalBasedResponses));
-        config.put("customSuccessRate", customSuccessRate);
-        config.put("useCustomResponseCodes", useCustomResponseCodes);
+        config.put("responseCodeOverrides", new HashMap<>(current.getProcessingCodeResponses()));
+        config.put("panBasedResponses", maskPanResponses(current.getPanResponses()));
+        config.put("terminalBasedResponses", new HashMap<>(current.getTerminalResponses()));
+        config.put("bulkPanOverrides", describeIndex(current.getPanIndex()));
+        config.put("bulkTerminalOverrides", describeIndex(current.getTerminalIndex()));
+        config.put("customSuccessRate", current.getSuccessRate());
+        config.put("useCustomResponseCodes", current.isUseCustomResponseCodes());
         return config;
     }
 
@@ -321,9 +428,17 @@ public class MessageSimulator {
         */
     }
 
-    private Map<String, String> maskPanResponses() {
+    private Map<String, Object> describeIndex(OverrideIndex index) {
+        Map<String, Object> description = new HashMap<>();
+        description.put("entries", index.size());
+        description.put("footprintBytes", index.footprintBytes());
+        description.put("byResponseCode", index.countByResponseCode());
+        return description;
+    }
+
+    private Map<String, String> maskPanResponses(Map<String, String> panResponses) {
         Map<String, String> masked = new HashMap<>();
-        for (Map.Entry<String, String> entry : panBasedResponses.entrySet()) {
+        for (Map.Entry<String, String> entry : panResponses.entrySet()) {
             String pan = entry.getKey();
             String maskedPan = pan.length() >= 8 ?
                     pan.substring(0, 6) + "******" + pan.substring(pan.length()-4) : pan;
@@ -347,6 +462,8 @@ public class MessageSimulator {
             case "62": return "Restricted card";
             case "61": return "Exceeds withdrawal amount limit";
             case "91": return "Issuer or switch inoperative";
+            case "76": return "Unable to locate record on file";
+            case "94": return "Duplicate transmission";
             default: return "Unknown";
         }
     }
@@ -358,27 +475,6 @@ public class MessageSimulator {
     }
 
     // Métodos existentes sin cambios...
-    private String getResponseMti(String requestMti) {
-        switch (requestMti) {
-            case "0200": return "0210";
-            case "0400": return "0410";
-            case "0800": return "0810";
-            default:
-                try {
-                    int mti = Integer.parseInt(requestMti);
-                    return String.format("%04d", mti + 10);
-                } catch (NumberFormatException e) {
-                    return "0010";
-                }
-        }
-    }
-
-    private void copyFieldIfPresent(ISOMsg from, ISOMsg to, int fieldNumber) throws ISOException {
-        if (from.hasField(fieldNumber)) {
-            to.set(fieldNumber, from.getString(fieldNumber));
-        }
-    }
-
     private String generateAuthCode() {
         return String.format("%06d", ThreadLocalRandom.current().nextInt(100000, 999999));
     }
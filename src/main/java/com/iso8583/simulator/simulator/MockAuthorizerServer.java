@@ -0,0 +1,141 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import com.iso8583.simulator.core.connection.NioIsoServer;
+import com.iso8583.simulator.core.message.PackagerRegistry;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Expone el mock como autorizador TCP: los requests que llegan al puerto configurado se responden
+ * con las mismas reglas, overrides y latencias que {@link MessageSimulator} aplica en proceso.
+ * Permite usar el simulador como contraparte del switch al probar carga sobre un adquirente propio.
+ * Acá se aplican además las fallas de socket de {@link FaultInjector}: frames rotos, 0800 no solicitados y cierres.
+ */
+@Component
+public class MockAuthorizerServer implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockAuthorizerServer.class);
+
+    @Autowired
+    private SimulatorConfiguration config;
+
+    @Autowired
+    private PackagerRegistry packagerRegistry;
+
+    @Autowired
+    private MessageSimulator messageSimulator;
+
+    @Autowired
+    private FaultInjector faultInjector;
+
+    private NioIsoServer server;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!config.getMock().getServer().isEnabled()) {
+            return;
+        }
+        try {
+            start();
+        } catch (IOException e) {
+            // El resto del simulador funciona sin el servidor
+            logger.error("❌ No se pudo iniciar el autorizador mock en el puerto {}: {}",
+                    config.getMock().getServer().getPort(), e.getMessage());
+        }
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null && server.isRunning()) {
+            return;
+        }
+        SimulatorConfiguration.MockConfig.Server serverConfig = config.getMock().getServer();
+        server = new NioIsoServer("ISO8583-MockServer",
+                serverConfig.getBindAddress(), serverConfig.getPort(), serverConfig.getBacklog(),
+                serverConfig.getEventLoopThreads(), serverConfig.getWriteBatchSize(),
+                packagerRegistry.getDefault(),
+                serverConfig.isCompiledCodec() ? packagerRegistry.getDefaultCodec() : null,
+                this::handle);
+        server.start();
+    }
+
+    private CompletableFuture<ISOMsg> handle(ISOMsg request, NioIsoServer.ClientConnection connection)
+            throws ISOException {
+        FaultInjector.Decision decision = faultInjector.decide(request);
+        if (decision.getFault() == FaultInjector.Fault.DISCONNECT) {
+            logger.debug("Falla inyectada ({}): cierre de {}", decision.getProfile(), connection.getRemoteAddress());
+            connection.close();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<ISOMsg> response = messageSimulator.sendMessageAsync(request, decision);
+        switch (decision.getFault()) {
+            case DROP:
+                // Sobre el socket un descarte es no contestar: sin respuesta, no un error del servidor
+                return response.handle((msg, error) -> null);
+            case UNSOLICITED:
+                return response.thenApply(msg -> {
+                    sendUnsolicitedEcho(connection);
+                    return msg;
+                });
+            case TRUNCATE:
+            case GARBLE:
+                return response.thenApply(msg -> {
+                    sendBrokenFrame(connection, msg, decision.getFault());
+                    return null; // Ya se envió el frame roto
+                });
+            default:
+                return response;
+        }
+    }
+
+    private void sendUnsolicitedEcho(NioIsoServer.ClientConnection connection) {
+        try {
+            connection.send(faultInjector.unsolicitedEcho());
+        } catch (ISOException e) {
+            logger.warn("⚠️ No se pudo armar el 0800 no solicitado: {}", e.getMessage());
+        }
+    }
+
+    private void sendBrokenFrame(NioIsoServer.ClientConnection connection, ISOMsg response, FaultInjector.Fault fault) {
+        try {
+            connection.sendRaw(fault == FaultInjector.Fault.TRUNCATE
+                    ? faultInjector.truncatedFrame(response)
+                    : faultInjector.garbledFrame(response));
+        } catch (ISOException e) {
+            logger.warn("⚠️ No se pudo armar el frame {}: {}", fault, e.getMessage());
+        }
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null && server.isRunning();
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        if (server == null) {
+            return Map.of("running", false, "port", config.getMock().getServer().getPort());
+        }
+        return server.getStatistics();
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+}
@@ -0,0 +1,181 @@
+package com.iso8583.simulator.simulator;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuración completa del mock en un instante: overrides por PAN, terminal y processing code,
+ * más la tasa de éxito. Inmutable; los cambios se hacen sobre un {@link Builder} y se publican
+ * como una foto nueva, de modo que un request ve el escenario anterior o el nuevo, nunca una mezcla.
+ */
+public final class MockScenario {
+
+    static final double DEFAULT_SUCCESS_RATE = 0.95;
+
+    static final MockScenario DEFAULT = new Builder().build();
+
+    private final Map<String, String> panResponses;
+    private final Map<String, String> terminalResponses;
+    private final Map<String, String> processingCodeResponses;
+    private final OverrideIndex panIndex;
+    private final OverrideIndex terminalIndex;
+    private final double successRate;
+    private final boolean useCustomResponseCodes;
+
+    private MockScenario(Builder builder) {
+        this.panResponses = Collections.unmodifiableMap(new HashMap<>(builder.panResponses));
+        this.terminalResponses = Collections.unmodifiableMap(new HashMap<>(builder.terminalResponses));
+        this.processingCodeResponses = Collections.unmodifiableMap(new HashMap<>(builder.processingCodeResponses));
+        this.panIndex = builder.panIndex;
+        this.terminalIndex = builder.terminalIndex;
+        this.successRate = builder.successRate;
+        this.useCustomResponseCodes = builder.useCustomResponseCodes;
+    }
+
+    public Map<String, String> getPanResponses() { return panResponses; }
+
+    public Map<String, String> getTerminalResponses() { return terminalResponses; }
+
+    public Map<String, String> getProcessingCodeResponses() { return processingCodeResponses; }
+
+    public OverrideIndex getPanIndex() { return panIndex; }
+
+    public OverrideIndex getTerminalIndex() { return terminalIndex; }
+
+    public double getSuccessRate() { return successRate; }
+
+    public boolean isUseCustomResponseCodes() { return useCustomResponseCodes; }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Override por PAN: primero los configurados uno a uno, luego los cargados en lote
+     */
+    public String panResponse(String pan) {
+        String override = panResponses.get(pan);
+        return override != null ? override : panIndex.getPan(pan);
+    }
+
+    /**
+     * Override por Terminal ID: primero los configurados uno a uno, luego los cargados en lote
+     */
+    public String terminalResponse(String terminalId) {
+        String override = terminalResponses.get(terminalId);
+        return override != null ? override : terminalIndex.getTerminal(terminalId);
+    }
+
+    /**
+     * Acumula cambios sobre una copia; nada es visible hasta publicar el resultado de build().
+     * Los índices masivos son inmutables y se comparten entre fotos sin copiarse.
+     */
+    public static final class Builder {
+        private final Map<String, String> panResponses;
+        private final Map<String, String> terminalResponses;
+        private final Map<String, String> processingCodeResponses;
+        private OverrideIndex panIndex;
+        private OverrideIndex terminalIndex;
+        private double successRate;
+        private boolean useCustomResponseCodes;
+
+        private Builder() {
+            panResponses = new HashMap<>();
+            terminalResponses = new HashMap<>();
+            processingCodeResponses = new HashMap<>();
+            panIndex = OverrideIndex.EMPTY;
+            terminalIndex = OverrideIndex.EMPTY;
+            successRate = DEFAULT_SUCCESS_RATE;
+        }
+
+        private Builder(MockScenario scenario) {
+            panResponses = new HashMap<>(scenario.panResponses);
+            terminalResponses = new HashMap<>(scenario.terminalResponses);
+            processingCodeResponses = new HashMap<>(scenario.processingCodeResponses);
+            panIndex = scenario.panIndex;
+            terminalIndex = scenario.terminalIndex;
+            successRate = scenario.successRate;
+            useCustomResponseCodes = scenario.useCustomResponseCodes;
+        }
+
+        public Builder panResponse(String pan, String responseCode) {
+            panResponses.put(pan, responseCode);
+            return this;
+        }
+
+        public Builder removePanResponse(String pan) {
+            panResponses.remove(pan);
+            return this;
+        }
+
+        public Builder terminalResponse(String terminalId, String responseCode) {
+            terminalResponses.put(terminalId, responseCode);
+            return this;
+        }
+
+        public Builder removeTerminalResponse(String terminalId) {
+            terminalResponses.remove(terminalId);
+            return this;
+        }
+
+        public Builder processingCodeResponse(String processingCode, String responseCode) {
+            processingCodeResponses.put(processingCode, responseCode);
+            return this;
+        }
+
+        public Builder removeProcessingCodeResponse(String processingCode) {
+            processingCodeResponses.remove(processingCode);
+            return this;
+        }
+
+        public OverrideIndex panIndex() {
+            return panIndex;
+        }
+
+        public Builder panIndex(OverrideIndex panIndex) {
+            this.panIndex = panIndex != null ? panIndex : OverrideIndex.EMPTY;
+            return this;
+        }
+
+        public OverrideIndex terminalIndex() {
+            return terminalIndex;
+        }
+
+        public Builder terminalIndex(OverrideIndex terminalIndex) {
+            this.terminalIndex = terminalIndex != null ? terminalIndex : OverrideIndex.EMPTY;
+            return this;
+        }
+
+        public Builder successRate(double successRate) {
+            if (successRate < 0.0 || successRate > 1.0) {
+                throw new IllegalArgumentException("Success rate debe estar entre 0.0 y 1.0");
+            }
+            this.successRate = successRate;
+            return this;
+        }
+
+        public Builder useCustomResponseCodes(boolean useCustomResponseCodes) {
+            this.useCustomResponseCodes = useCustomResponseCodes;
+            return this;
+        }
+
+        /**
+         * Vuelve a los valores por defecto (sin overrides, tasa de éxito 95%)
+         */
+        public Builder clear() {
+            panResponses.clear();
+            terminalResponses.clear();
+            processingCodeResponses.clear();
+            panIndex = OverrideIndex.EMPTY;
+            terminalIndex = OverrideIndex.EMPTY;
+            successRate = DEFAULT_SUCCESS_RATE;
+            useCustomResponseCodes = false;
+            return this;
+        }
+
+        public MockScenario build() {
+            return new MockScenario(this);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.iso8583.simulator.simulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Lectura de archivos de overrides masivos hacia un {@link OverrideIndex}, en streaming.
+ *
+ * Formatos:
+ * <ul>
+ *   <li>CSV: una entrada por línea, {@code clave,código}. Se ignoran líneas vacías, comentarios
+ *       ({@code #}) y una cabecera opcional antes de la primera entrada: se reconoce porque la clave
+ *       no es un PAN numérico (archivos de PAN) o el código no es un código de respuesta
+ *       (archivos de terminal). Las claves que no caben en el índice (PAN de 17-19 dígitos,
+ *       terminal de más de 8 caracteres o no ASCII) se devuelven aparte para los mapas del escenario.</li>
+ *   <li>Binario: registros de 10 bytes, clave ya codificada en 8 bytes big-endian
+ *       ({@link OverrideIndex#encodePan} / {@link OverrideIndex#encodeTerminal}) seguida
+ *       del código de respuesta en 2 bytes ASCII.</li>
+ * </ul>
+ */
+public final class OverrideFileLoader {
+
+    public static final int BINARY_RECORD_SIZE = Long.BYTES + 2;
+
+    // Tamaño típico de una línea CSV "4000000000000051,51\n" para estimar la capacidad inicial
+    private static final int CSV_LINE_ESTIMATE = 20;
+
+    public enum Kind { PAN, TERMINAL }
+
+    public enum Format { CSV, BINARY }
+
+    private OverrideFileLoader() {
+    }
+
+    /**
+     * Formato según la extensión del archivo; CSV por defecto
+     */
+    public static Format formatFor(String filename) {
+        if (filename != null) {
+            String lower = filename.toLowerCase();
+            if (lower.endsWith(".bin") || lower.endsWith(".dat")) {
+                return Format.BINARY;
+            }
+        }
+        return Format.CSV;
+    }
+
+    /**
+     * Carga el contenido completo en un índice nuevo
+     *
+     * @param sizeHint tamaño del archivo en bytes (o -1 si se desconoce), solo para dimensionar el índice
+     * @param unindexed recibe clave → código de las entradas CSV que la codificación del índice no admite
+     */
+    public static OverrideIndex load(InputStream in, Kind kind, Format format, long sizeHint,
+                                     Map<String, String> unindexed) throws IOException {
+        OverrideIndex.Builder builder = new OverrideIndex.Builder(expectedEntries(format, sizeHint));
+        if (format == Format.BINARY) {
+            readBinary(in, builder);
+        } else {
+            readCsv(in, kind, builder, unindexed);
+        }
+        return builder.build();
+    }
+
+    private static int expectedEntries(Format format, long sizeHint) {
+        if (sizeHint <= 0) {
+            return 1024;
+        }
+        long entries = sizeHint / (format == Format.BINARY ? BINARY_RECORD_SIZE : CSV_LINE_ESTIMATE);
+        return (int) Math.min(entries, Integer.MAX_VALUE / 2);
+    }
+
+    private static void readCsv(InputStream in, Kind kind, OverrideIndex.Builder builder,
+                                Map<String, String> unindexed) throws IOException {
+        // UTF-8: un terminal no ASCII tiene que llegar entero al mapa del escenario
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        String line;
+        int lineNumber = 0;
+        boolean firstEntry = true;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int comma = line.indexOf(',');
+            String key = comma > 0 ? line.substring(0, comma).trim() : null;
+            String code = comma > 0 ? line.substring(comma + 1).trim() : null;
+            if (firstEntry) {
+                firstEntry = false;
+                if (isHeader(kind, key, code)) {
+                    continue;
+                }
+            }
+            if (key == null || key.isEmpty() || code == null || code.length() != 2) {
+                throw new IllegalArgumentException("Línea " + lineNumber + ": se esperaba clave,código de 2 caracteres");
+            }
+            long encoded = kind == Kind.PAN ? OverrideIndex.encodePan(key) : OverrideIndex.encodeTerminal(key);
+            if (encoded != OverrideIndex.NO_KEY) {
+                builder.put(encoded, code);
+            } else if (kind == Kind.TERMINAL || (isDigits(key) && key.length() <= 19)) {
+                unindexed.put(key, code);
+            } else {
+                throw new IllegalArgumentException("Línea " + lineNumber + ": PAN inválido " + key);
+            }
+        }
+    }
+
+    private static boolean isHeader(Kind kind, String key, String code) {
+        if (key == null || code == null) {
+            return true;
+        }
+        return kind == Kind.PAN ? !isDigits(key) : !isResponseCode(code);
+    }
+
+    private static boolean isDigits(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isResponseCode(String code) {
+        if (code.length() != 2) {
+            return false;
+        }
+        for (int i = 0; i < 2; i++) {
+            char c = code.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void readBinary(InputStream in, OverrideIndex.Builder builder) throws IOException {
+        InputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        ByteBuffer record = ByteBuffer.allocate(BINARY_RECORD_SIZE);
+        // Pocos códigos distintos: se crea un String por código, no por registro
+        String[] codes = new String[1 << 16];
+        long records = 0;
+        int read;
+        while ((read = buffered.readNBytes(record.array(), 0, BINARY_RECORD_SIZE)) > 0) {
+            if (read < BINARY_RECORD_SIZE) {
+                throw new IllegalArgumentException("Registro " + records + " incompleto: el archivo debe tener registros de "
+                        + BINARY_RECORD_SIZE + " bytes");
+            }
+            long key = record.getLong(0);
+            int codeBytes = record.getShort(Long.BYTES) & 0xFFFF;
+            String code = codes[codeBytes];
+            if (code == null) {
+                code = new String(record.array(), Long.BYTES, 2, StandardCharsets.US_ASCII);
+                codes[codeBytes] = code;
+            }
+            builder.put(key, code);
+            records++;
+        }
+    }
+}
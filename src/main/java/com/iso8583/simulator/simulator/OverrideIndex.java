@@ -0,0 +1,284 @@
+package com.iso8583.simulator.simulator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice compacto de overrides cargados en lote: clave {@code long} → código de respuesta en un {@code byte}.
+ * Direccionamiento abierto con sondeo lineal sobre dos arreglos primitivos; cada entrada ocupa
+ * 9 bytes más los slots libres: la capacidad es potencia de dos con carga máxima 0.8, así que según
+ * cuánto se llene la tabla son ~11 a ~22 bytes por entrada ({@link #footprintBytes()} da el valor real),
+ * frente a ~150 de un nodo HashMap&lt;String,String&gt;.
+ * Inmutable una vez construido, se publica dentro de {@link MockScenario}.
+ *
+ * Claves:
+ * <ul>
+ *   <li>PAN: BCD empaquetado de hasta 16 dígitos, alineado a la izquierda y rellenado con nibbles F</li>
+ *   <li>Terminal (campo 41): hasta 8 caracteres ASCII imprimibles, un byte por carácter</li>
+ * </ul>
+ * Lo que no cabe en la codificación (PAN de 17-19 dígitos, terminal no ASCII) va a los mapas del escenario.
+ */
+public final class OverrideIndex {
+
+    /** Clave imposible en ambas codificaciones: marca slot vacío y valor no codificable */
+    static final long NO_KEY = -1L;
+
+    private static final float LOAD_FACTOR = 0.8f;
+    private static final int MAX_CODES = 256;
+
+    public static final OverrideIndex EMPTY = new Builder(0).build();
+
+    private final long[] keys;
+    private final byte[] codes;
+    private final String[] codeTable;
+    private final int mask;
+    private final int size;
+
+    private OverrideIndex(long[] keys, byte[] codes, String[] codeTable, int size) {
+        this.keys = keys;
+        this.codes = codes;
+        this.codeTable = codeTable;
+        this.mask = keys.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * Código de respuesta para la clave, o null si no hay override
+     */
+    public String get(long key) {
+        if (key == NO_KEY || size == 0) {
+            return null;
+        }
+        int slot = slot(key, mask);
+        while (true) {
+            long candidate = keys[slot];
+            if (candidate == key) {
+                return codeTable[codes[slot] & 0xFF];
+            }
+            if (candidate == NO_KEY) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public String getPan(String pan) {
+        return get(encodePan(pan));
+    }
+
+    public String getTerminal(String terminalId) {
+        return get(encodeTerminal(terminalId));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bytes ocupados por los arreglos del índice (sin cabeceras de objeto)
+     */
+    public long footprintBytes() {
+        return (long) keys.length * (Long.BYTES + 1);
+    }
+
+    /**
+     * Conteo de entradas por código de respuesta
+     */
+    public Map<String, Integer> countByResponseCode() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != NO_KEY) {
+                counts.merge(codeTable[codes[i] & 0xFF], 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    public Builder toBuilder(int additional) {
+        return new Builder(size + additional).putAll(this);
+    }
+
+    // ================================
+    // CODIFICACIÓN DE CLAVES
+    // ================================
+
+    /**
+     * PAN a BCD empaquetado; {@link #NO_KEY} si no son 1-16 dígitos
+     */
+    public static long encodePan(String pan) {
+        if (pan == null) {
+            return NO_KEY;
+        }
+        int length = pan.length();
+        if (length == 0 || length > 16) {
+            return NO_KEY;
+        }
+        long packed = -1L;
+        for (int i = 0; i < length; i++) {
+            int digit = pan.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NO_KEY;
+            }
+            int shift = 60 - i * 4;
+            packed = (packed & ~(0xFL << shift)) | ((long) digit << shift);
+        }
+        return packed;
+    }
+
+    /**
+     * Terminal ID a 8 bytes ASCII; {@link #NO_KEY} si está vacío, excede 8 caracteres o no es ASCII imprimible
+     */
+    public static long encodeTerminal(String terminalId) {
+        if (terminalId == null) {
+            return NO_KEY;
+        }
+        int length = terminalId.length();
+        if (length == 0 || length > 8) {
+            return NO_KEY;
+        }
+        long packed = 0L;
+        for (int i = 0; i < 8; i++) {
+            int c = i < length ? terminalId.charAt(i) : 0;
+            if (i < length && (c < 0x20 || c > 0x7E)) {
+                return NO_KEY;
+            }
+            packed = (packed << 8) | c;
+        }
+        return packed;
+    }
+
+    private static int slot(long key, int mask) {
+        // fmix64 de MurmurHash3: los PAN de prueba comparten prefijos largos
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private static int capacityFor(int entries) {
+        int needed = (int) Math.ceil(Math.max(entries, 1) / LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(Math.max(needed, 2) - 1) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Demasiadas entradas para el índice: " + entries);
+        }
+        return capacity;
+    }
+
+    /**
+     * Acumula entradas; la última asignación de una clave gana. No es thread-safe.
+     */
+    public static final class Builder {
+        private long[] keys;
+        private byte[] codes;
+        private int size;
+        private final Map<String, Integer> codeIds = new HashMap<>();
+        private final String[] codeTable = new String[MAX_CODES];
+
+        public Builder(int expectedEntries) {
+            allocate(capacityFor(expectedEntries));
+        }
+
+        public Builder putPan(String pan, String responseCode) {
+            long key = encodePan(pan);
+            if (key == NO_KEY) {
+                throw new IllegalArgumentException("PAN no indexable (1-16 dígitos): " + pan);
+            }
+            return put(key, responseCode);
+        }
+
+        public Builder putTerminal(String terminalId, String responseCode) {
+            long key = encodeTerminal(terminalId);
+            if (key == NO_KEY) {
+                throw new IllegalArgumentException("Terminal no indexable (1-8 caracteres ASCII): " + terminalId);
+            }
+            return put(key, responseCode);
+        }
+
+        public Builder put(long key, String responseCode) {
+            if (key == NO_KEY) {
+                throw new IllegalArgumentException("Clave inválida");
+            }
+            byte code = codeId(responseCode);
+            if (size + 1 > keys.length * LOAD_FACTOR) {
+                rehash(keys.length << 1);
+            }
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != NO_KEY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == NO_KEY) {
+                keys[slot] = key;
+                size++;
+            }
+            codes[slot] = code;
+            return this;
+        }
+
+        public Builder putAll(OverrideIndex index) {
+            for (int i = 0; i < index.keys.length; i++) {
+                if (index.keys[i] != NO_KEY) {
+                    put(index.keys[i], index.codeTable[index.codes[i] & 0xFF]);
+                }
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public OverrideIndex build() {
+            OverrideIndex index = new OverrideIndex(keys, codes,
+                    Arrays.copyOf(codeTable, codeIds.size()), size);
+            // Los arreglos pasan al índice: el builder no puede seguir usándose
+            keys = null;
+            codes = null;
+            return index;
+        }
+
+        private byte codeId(String responseCode) {
+            if (responseCode == null || responseCode.isEmpty()) {
+                throw new IllegalArgumentException("Código de respuesta vacío");
+            }
+            Integer id = codeIds.get(responseCode);
+            if (id == null) {
+                if (codeIds.size() == MAX_CODES) {
+                    throw new IllegalArgumentException("Más de " + MAX_CODES + " códigos de respuesta distintos");
+                }
+                id = codeIds.size();
+                codeIds.put(responseCode, id);
+                codeTable[id] = responseCode;
+            }
+            return (byte) id.intValue();
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, NO_KEY);
+            codes = new byte[capacity];
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            byte[] oldCodes = codes;
+            allocate(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                long key = oldKeys[i];
+                if (key != NO_KEY) {
+                    int slot = slot(key, mask);
+                    while (keys[slot] != NO_KEY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                    codes[slot] = oldCodes[i];
+                }
+            }
+        }
+    }
+}
@@ -5,10 +5,9 @@ import com.iso8583.simulator.core.message.ISO8583MessageBuilder;
 import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
 import org.jpos.iso.packager.GenericPackager;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Random;
 
 @Component
@@ -16,17 +15,13 @@ public class ResponseGenerator {
 
     private final Random random = new Random();
 
-    public ISOMsg generateResponse(ISOMsg requestMessage, String responseCode) throws ISOException {
-        ISOMsg response = new ISOMsg();
-        response.setPackager(requestMessage.getPackager());
-
-        // Set response MTI
-        String requestMTI = requestMessage.getMTI();
-        String responseMTI = getResponseMTI(requestMTI);
-        response.setMTI(responseMTI);
+    @Autowired
+    private ResponseTemplates responseTemplates;
 
-        // Copy relevant fields from request
-        copyFieldsFromRequest(requestMessage, response);
+    public ISOMsg generateResponse(ISOMsg requestMessage, String responseCode) throws ISOException {
+        // Response MTI, copied fields and transmission date/time from the precompiled template
+        ISOMsg response = responseTemplates.planFor(requestMessage.getMTI())
+                .apply(requestMessage, requestMessage.getPackager());
 
         // Set response code
         response.set(39, responseCode);
@@ -58,27 +53,6 @@ public class ResponseGenerator {
         return generateResponse(requestMessage, errorCode.getCode());
     }
 
-    private String getResponseMTI(String requestMTI) {
-        if (requestMTI == null || requestMTI.length() != 4) {
-            return "0110"; // Default response
-        }
-
-        char[] mti = requestMTI.toCharArray();
-        mti[2] = '1'; // Change third digit to 1 for response
-        return new String(mti);
-    }
-
-    private void copyFieldsFromRequest(ISOMsg request, ISOMsg response) throws ISOException {
-        // Fields to copy from request to response
-        int[] fieldsToCopy = {2, 3, 7, 11, 12, 13, 14, 18, 22, 25, 32, 37, 41, 42, 43, 49, 102};
-
-        for (int fieldNumber : fieldsToCopy) {
-            if (request.hasField(fieldNumber)) {
-                response.set(fieldNumber, request.getString(fieldNumber));
-            }
-        }
-    }
-
     private void setResponseSpecificFields(ISOMsg response, String responseCode) throws ISOException {
         // Set action code (field 39) - already set above
 
@@ -92,11 +66,5 @@ public class ResponseGenerator {
                 }
             }
         }
-
-        // Set response timestamp if not present
-        if (!response.hasField(7)) {
-            SimpleDateFormat sdf = new SimpleDateFormat("MMddHHmmss");
-            response.set(7, sdf.format(new Date()));
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.iso8583.simulator.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Regla declarativa del mock: si todas las condiciones se cumplen, responde con {@code responseCode}.
+ * Se carga desde YAML/JSON; ante varias reglas que aplican gana la primera de la lista.
+ */
+public class ResponseRule {
+
+    private String id;
+    private String responseCode;
+    private List<Condition> when = new ArrayList<>();
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getResponseCode() { return responseCode; }
+    public void setResponseCode(String responseCode) { this.responseCode = responseCode; }
+
+    public List<Condition> getWhen() { return when; }
+    public void setWhen(List<Condition> when) { this.when = when; }
+
+    /**
+     * Condición sobre un campo ISO; se usa exactamente un operador:
+     * equals, in, prefix, bins (tabla de BINs), suffix, regex o min/max (rango numérico)
+     */
+    public static class Condition {
+        private int field;
+        private String equals;
+        private List<String> in;
+        private String prefix;
+        private List<String> bins;
+        private String suffix;
+        private String regex;
+        private Long min;
+        private Long max;
+
+        public int getField() { return field; }
+        public void setField(int field) { this.field = field; }
+
+        public String getEquals() { return equals; }
+        public void setEquals(String equals) { this.equals = equals; }
+
+        public List<String> getIn() { return in; }
+        public void setIn(List<String> in) { this.in = in; }
+
+        public String getPrefix() { return prefix; }
+        public void setPrefix(String prefix) { this.prefix = prefix; }
+
+        public List<String> getBins() { return bins; }
+        public void setBins(List<String> bins) { this.bins = bins; }
+
+        public String getSuffix() { return suffix; }
+        public void setSuffix(String suffix) { this.suffix = suffix; }
+
+        public String getRegex() { return regex; }
+        public void setRegex(String regex) { this.regex = regex; }
+
+        public Long getMin() { return min; }
+        public void setMin(Long min) { this.min = min; }
+
+        public Long getMax() { return max; }
+        public void setMax(Long max) { this.max = max; }
+    }
+
+    /**
+     * Archivo de reglas: {@code rules: [...]}
+     */
+    public static class RuleSet {
+        private List<ResponseRule> rules = new ArrayList<>();
+
+        public List<ResponseRule> getRules() { return rules; }
+        public void setRules(List<ResponseRule> rules) { this.rules = rules; }
+    }
+}
@@ -0,0 +1,124 @@
+package com.iso8583.simulator.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import org.jpos.iso.ISOMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Motor de reglas de códigos de respuesta del mock.
+ * Las reglas se compilan fuera del camino caliente y se publican de una vez: los requests
+ * en curso terminan con el conjunto anterior y los siguientes ven el nuevo, sin pausar tráfico.
+ */
+@Component
+public class ResponseRuleEngine implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseRuleEngine.class);
+
+    // YAML es superconjunto de JSON: el mismo parser sirve para ambos formatos
+    private final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+
+    @Autowired
+    private SimulatorConfiguration config;
+
+    private volatile CompiledRules rules = CompiledRules.EMPTY;
+    private volatile String source = "ninguna";
+    private volatile LocalDateTime loadedAt;
+
+    @Override
+    public void afterPropertiesSet() {
+        String rulesFile = config.getMock().getRulesFile();
+        if (rulesFile == null || rulesFile.isEmpty()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            // Sin reglas el mock sigue funcionando con overrides y tasa de éxito
+            logger.warn("No se pudieron cargar las reglas de {}: {}", rulesFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Código de respuesta de la primera regla que aplica, o null si ninguna aplica
+     */
+    public String evaluate(ISOMsg request) {
+        CompiledRules.Rule rule = rules.evaluate(request);
+        return rule != null ? rule.responseCode : null;
+    }
+
+    /**
+     * Vuelve a leer el archivo configurado en {@code iso8583.simulator.mock.rules-file}
+     */
+    public int reload() throws IOException {
+        String rulesFile = config.getMock().getRulesFile();
+        try (InputStream in = open(rulesFile)) {
+            return publish(mapper.readValue(in, ResponseRule.RuleSet.class), rulesFile);
+        }
+    }
+
+    /**
+     * Reemplaza las reglas con el contenido YAML o JSON recibido
+     */
+    public int load(String content) throws IOException {
+        return publish(mapper.readValue(content, ResponseRule.RuleSet.class), "api");
+    }
+
+    public void clear() {
+        rules = CompiledRules.EMPTY;
+        source = "ninguna";
+        loadedAt = LocalDateTime.now();
+        logger.info("Reglas de respuesta mock eliminadas");
+    }
+
+    private int publish(ResponseRule.RuleSet ruleSet, String from) {
+        if (ruleSet == null || ruleSet.getRules() == null) {
+            throw new IllegalArgumentException("Archivo de reglas vacío");
+        }
+        long start = System.nanoTime();
+        CompiledRules compiled = CompiledRules.compile(ruleSet.getRules());
+        rules = compiled;
+        source = from;
+        loadedAt = LocalDateTime.now();
+        logger.info("📋 {} reglas de respuesta compiladas desde {} en {} ms (campos indexados: {}, residuales: {})",
+                compiled.size(), from, (System.nanoTime() - start) / 1_000_000,
+                Arrays.toString(compiled.indexedFields()), compiled.residualSize());
+        return compiled.size();
+    }
+
+    public Map<String, Object> describe() {
+        CompiledRules current = rules;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("source", source);
+        result.put("loadedAt", loadedAt);
+        result.put("totalRules", current.size());
+        result.put("indexedFields", current.indexedFields());
+        result.put("residualRules", current.residualSize());
+        result.put("rules", current.describe());
+        return result;
+    }
+
+    private InputStream open(String location) throws IOException {
+        if (location.startsWith("classpath:")) {
+            InputStream in = getClass().getClassLoader().getResourceAsStream(location.substring("classpath:".length()));
+            if (in == null) {
+                throw new IOException("Recurso no encontrado: " + location);
+            }
+            return in;
+        }
+        return new FileInputStream(location);
+    }
+}
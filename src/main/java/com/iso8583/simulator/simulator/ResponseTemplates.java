@@ -0,0 +1,210 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import com.iso8583.simulator.core.message.CoarseClock;
+import org.jpos.iso.ISOComponent;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOField;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plantillas de respuesta por MTI del request, compiladas una sola vez a un {@link Plan}:
+ * arrays de campos a copiar, campos constantes ya construidos y generadores de fecha/hora.
+ * Las comparten {@link ResponseGenerator} y {@link MessageSimulator}, así ambos arman el
+ * esqueleto de la respuesta igual; los códigos de respuesta y el resto siguen a cargo de cada uno.
+ */
+@Component
+public class ResponseTemplates implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseTemplates.class);
+
+    static final String DEFAULT_TEMPLATE = "default";
+
+    // Campos que ambos generadores copiaban del request (unión de las dos listas históricas).
+    // El 7 se copia: es OutputKey del MUX y la respuesta tiene que traer el del request
+    private static final int[] DEFAULT_COPY = {2, 3, 4, 7, 11, 12, 13, 14, 18, 22, 25, 32, 37, 41, 42, 43, 49, 102};
+    private static final int[] NETWORK_COPY = {7, 11, 70};
+    private static final int TRANSMISSION_DATE_TIME_FIELD = 7;
+
+    /**
+     * Campos que se calculan al responder
+     */
+    public enum Generator {
+        TRANSMISSION_DATE_TIME("transmission-date-time", "MMddHHmmss"),
+        LOCAL_TIME("local-time", "HHmmss"),
+        LOCAL_DATE("local-date", "MMdd");
+
+        private final String configName;
+        private final String pattern;
+
+        Generator(String configName, String pattern) {
+            this.configName = configName;
+            this.pattern = pattern;
+        }
+
+        static Generator of(String configName) {
+            for (Generator generator : values()) {
+                if (generator.configName.equalsIgnoreCase(configName) || generator.name().equalsIgnoreCase(configName)) {
+                    return generator;
+                }
+            }
+            throw new IllegalArgumentException("Generador de campo desconocido: " + configName);
+        }
+    }
+
+    /**
+     * Plantilla compilada: todo lo que se puede resolver antes de ver el request ya está resuelto
+     */
+    public static final class Plan {
+        private final String responseMti;
+        private final int[] copy;
+        private final ISOField[] constants;
+        private final int[] generatedFields;
+        private final Generator[] generators;
+
+        Plan(String responseMti, SimulatorConfiguration.MockConfig.ResponseTemplate template, int[] defaultCopy) {
+            this.responseMti = responseMti;
+
+            int[] copy = template.getCopy() == null || template.getCopy().isEmpty()
+                    ? defaultCopy.clone()
+                    : template.getCopy().stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(copy);
+            this.copy = copy;
+
+            Map<Integer, String> constants = new TreeMap<>(template.getConstants());
+            this.constants = new ISOField[constants.size()];
+            int i = 0;
+            for (Map.Entry<Integer, String> constant : constants.entrySet()) {
+                this.constants[i++] = new ISOField(constant.getKey(), constant.getValue());
+            }
+
+            Map<Integer, String> generated = new TreeMap<>(template.getGenerated());
+            this.generatedFields = new int[generated.size()];
+            this.generators = new Generator[generated.size()];
+            i = 0;
+            for (Map.Entry<Integer, String> field : generated.entrySet()) {
+                generatedFields[i] = field.getKey();
+                generators[i++] = Generator.of(field.getValue());
+            }
+        }
+
+        public String getResponseMti() {
+            return responseMti;
+        }
+
+        /**
+         * Respuesta nueva con MTI, campos copiados, constantes y generados
+         */
+        public ISOMsg apply(ISOMsg request, ISOPackager packager) throws ISOException {
+            ISOMsg response = new ISOMsg();
+            response.setPackager(packager);
+            response.setMTI(responseMti);
+
+            for (int field : copy) {
+                ISOComponent component = request.getComponent(field);
+                if (component instanceof ISOField) {
+                    // Los ISOField no se modifican después de armados: se comparten sin copiar el valor
+                    response.set(component);
+                } else if (component != null) {
+                    response.set(field, request.getString(field));
+                }
+            }
+            for (ISOField constant : constants) {
+                response.set(constant);
+            }
+            for (int i = 0; i < generators.length; i++) {
+                // Reloj de un segundo de resolución: el mismo String para todas las respuestas de ese segundo
+                response.set(generatedFields[i], CoarseClock.SYSTEM.format(generators[i].pattern));
+            }
+            if (!response.hasField(TRANSMISSION_DATE_TIME_FIELD)) {
+                // Request sin campo 7: la respuesta igual lleva fecha/hora de transmisión
+                response.set(TRANSMISSION_DATE_TIME_FIELD,
+                        CoarseClock.SYSTEM.format(Generator.TRANSMISSION_DATE_TIME.pattern));
+            }
+            return response;
+        }
+    }
+
+    @Autowired
+    private SimulatorConfiguration config;
+
+    private final Map<String, SimulatorConfiguration.MockConfig.ResponseTemplate> templates = new HashMap<>();
+    // Un plan por MTI de request visto; los MTI son pocos y acotados a 4 dígitos
+    private final ConcurrentHashMap<String, Plan> plans = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        templates.put(DEFAULT_TEMPLATE, builtIn(null));
+        templates.put("0800", builtIn(NETWORK_COPY));
+        templates.putAll(config.getMock().getResponseTemplates());
+
+        // Compilar ahora los configurados: un error de configuración falla al arrancar, no con tráfico
+        for (String mti : templates.keySet()) {
+            if (!DEFAULT_TEMPLATE.equals(mti)) {
+                planFor(mti);
+            }
+        }
+        logger.info("Plantillas de respuesta mock: {}", templates.keySet());
+    }
+
+    /**
+     * Plan para el MTI del request: su plantilla si existe, si no la "default"
+     */
+    public Plan planFor(String requestMti) {
+        if (requestMti == null || requestMti.length() != 4) {
+            return compile(requestMti);
+        }
+        Plan plan = plans.get(requestMti);
+        return plan != null ? plan : plans.computeIfAbsent(requestMti, this::compile);
+    }
+
+    private Plan compile(String requestMti) {
+        SimulatorConfiguration.MockConfig.ResponseTemplate template = templates.get(requestMti);
+        if (template == null) {
+            template = templates.get(DEFAULT_TEMPLATE);
+        }
+        String responseMti = template.getResponseMti() != null && !template.getResponseMti().isEmpty()
+                ? template.getResponseMti() : responseMtiFor(requestMti);
+        return new Plan(responseMti, template, DEFAULT_COPY);
+    }
+
+    /**
+     * MTI de respuesta: 0200 -> 0210, 0420 -> 0430, 0800 -> 0810
+     */
+    static String responseMtiFor(String requestMti) {
+        if (requestMti == null) {
+            return "0010";
+        }
+        try {
+            return String.format("%04d", Integer.parseInt(requestMti) + 10);
+        } catch (NumberFormatException e) {
+            return "0010";
+        }
+    }
+
+    private static SimulatorConfiguration.MockConfig.ResponseTemplate builtIn(int[] copy) {
+        SimulatorConfiguration.MockConfig.ResponseTemplate template = new SimulatorConfiguration.MockConfig.ResponseTemplate();
+        if (copy != null) {
+            List<Integer> fields = new ArrayList<>();
+            for (int field : copy) {
+                fields.add(field);
+            }
+            template.setCopy(fields);
+        }
+        return template;
+    }
+}
@@ -0,0 +1,401 @@
+package com.iso8583.simulator.simulator;
+
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transacciones recientes del mock, para detectar retransmisiones (94) y casar reversos con su original.
+ * La clave es (campo 11, 37, 41, 7); en un reverso, STAN y fecha/hora del original salen del campo 90
+ * si viene. STAN + fecha/hora se guardan exactos en un long y RRN + terminal como hash de 64 bits.
+ *
+ * Particionado en segmentos con lock propio; cada segmento es un anillo en orden de llegada más un
+ * índice con direccionamiento abierto hacia el anillo. Como todas las entradas tienen el mismo TTL, las
+ * que vencen y las que se desalojan por tamaño son siempre las más viejas: ambas salen por la cola del
+ * anillo en O(1). Unos 41 bytes por entrada, sin objetos por transacción.
+ */
+@Component
+public class TransactionCache implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionCache.class);
+
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * Qué hacer con un request según lo visto antes
+     */
+    public enum Verdict {
+        /** Original nuevo: procesar normalmente */
+        NEW,
+        /** Original repetido dentro de la ventana: responder 94 */
+        DUPLICATE,
+        /** Reverso del original aprobado: aplicar */
+        REVERSAL_MATCHED,
+        /** El original ya fue reversado: aprobar sin volver a aplicar */
+        REVERSAL_REPEAT,
+        /** El original no fue aprobado: aprobar sin efecto */
+        REVERSAL_UNAPPROVED,
+        /** Sin original en la ventana: responder 76 */
+        REVERSAL_NOT_FOUND,
+        /** MTI no financiero o sin los campos de la clave */
+        NOT_TRACKED
+    }
+
+    private static final byte PENDING = 0;
+    private static final byte APPROVED = 1;
+    private static final byte DECLINED = 2;
+    private static final byte REVERSED = 3;
+
+    @Autowired
+    private SimulatorConfiguration config;
+
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong reversalsMatched = new AtomicLong();
+    private final AtomicLong reversalsNotFound = new AtomicLong();
+
+    private volatile boolean enabled;
+    private volatile Segment[] segments;
+    private volatile long ttlMillis;
+
+    @Override
+    public void afterPropertiesSet() {
+        SimulatorConfiguration.MockConfig.TransactionCache cacheConfig = config.getMock().getTransactionCache();
+        ttlMillis = cacheConfig.getTtlSeconds() * 1000L;
+        if (cacheConfig.isEnabled()) {
+            setEnabled(true);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && segments == null) {
+            allocate();
+        }
+        this.enabled = enabled;
+        logger.info("Detección de duplicados y reversos: {}", enabled ? "HABILITADA" : "DESHABILITADA");
+    }
+
+    public synchronized void clear() {
+        if (segments != null) {
+            allocate();
+        }
+        duplicates.set(0);
+        reversalsMatched.set(0);
+        reversalsNotFound.set(0);
+    }
+
+    private void allocate() {
+        int maxEntries = Math.max(SEGMENT_COUNT, config.getMock().getTransactionCache().getMaxEntries());
+        int perSegment = Integer.highestOneBit(Math.max(2, maxEntries / SEGMENT_COUNT) - 1) << 1;
+        Segment[] fresh = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            fresh[i] = new Segment(perSegment);
+        }
+        segments = fresh;
+        logger.info("Caché de transacciones: {} entradas, TTL {} s", perSegment * SEGMENT_COUNT, ttlMillis / 1000);
+    }
+
+    /**
+     * Registra el request y decide cómo tratarlo. Un original NEW debe cerrarse con {@link #complete}.
+     */
+    public Verdict admit(ISOMsg request) throws ISOException {
+        Segment[] current = segments;
+        String mti = request.getMTI();
+        if (!enabled || current == null || mti == null || mti.length() != 4) {
+            return Verdict.NOT_TRACKED;
+        }
+
+        boolean reversal = mti.charAt(1) == '4';
+        boolean original = mti.charAt(1) == '1' || mti.charAt(1) == '2';
+        if (!reversal && !original) {
+            return Verdict.NOT_TRACKED;
+        }
+
+        long timeKey = reversal ? reversalTimeKey(request) : timeKey(request.getString(11), request.getString(7));
+        if (timeKey < 0) {
+            return Verdict.NOT_TRACKED;
+        }
+        long refKey = refKey(request.getString(37), request.getString(41));
+        long hash = mix(timeKey ^ (refKey * 0x9E3779B97F4A7C15L));
+        Segment segment = current[(int) (hash >>> 60) & (SEGMENT_COUNT - 1)];
+        long now = System.currentTimeMillis();
+
+        if (original) {
+            if (segment.admitOriginal(timeKey, refKey, hash, now, ttlMillis)) {
+                return Verdict.NEW;
+            }
+            duplicates.incrementAndGet();
+            return Verdict.DUPLICATE;
+        }
+
+        Verdict verdict = segment.matchReversal(timeKey, refKey, hash, now, ttlMillis);
+        if (verdict == Verdict.REVERSAL_NOT_FOUND) {
+            reversalsNotFound.incrementAndGet();
+        } else if (verdict == Verdict.REVERSAL_MATCHED) {
+            reversalsMatched.incrementAndGet();
+        }
+        return verdict;
+    }
+
+    /**
+     * Guarda el resultado de un original admitido como NEW, para que su reverso sepa si hay algo que revertir
+     */
+    public void complete(ISOMsg request, String responseCode) {
+        Segment[] current = segments;
+        if (current == null) {
+            return;
+        }
+        long timeKey = timeKey(request.getString(11), request.getString(7));
+        if (timeKey < 0) {
+            return;
+        }
+        long refKey = refKey(request.getString(37), request.getString(41));
+        long hash = mix(timeKey ^ (refKey * 0x9E3779B97F4A7C15L));
+        current[(int) (hash >>> 60) & (SEGMENT_COUNT - 1)]
+                .complete(timeKey, refKey, hash, "00".equals(responseCode) ? APPROVED : DECLINED);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        Segment[] current = segments;
+        int size = 0;
+        int capacity = 0;
+        if (current != null) {
+            for (Segment segment : current) {
+                size += segment.size();
+                capacity += segment.capacity();
+            }
+        }
+        stats.put("entries", size);
+        stats.put("capacity", capacity);
+        stats.put("duplicates", duplicates.get());
+        stats.put("reversalsMatched", reversalsMatched.get());
+        stats.put("reversalsNotFound", reversalsNotFound.get());
+        return stats;
+    }
+
+    // ================================
+    // CLAVES
+    // ================================
+
+    /**
+     * STAN (6 dígitos) y fecha/hora de transmisión MMddhhmmss (10 dígitos) en un long exacto; -1 si faltan
+     */
+    private static long timeKey(String stan, String transmissionDateTime) {
+        long stanValue = digits(stan, 0, stan != null ? stan.length() : 0, 6);
+        long dateTime = digits(transmissionDateTime, 0, transmissionDateTime != null ? transmissionDateTime.length() : 0, 10);
+        if (stanValue < 0 || dateTime < 0) {
+            return -1;
+        }
+        return stanValue * 10_000_000_000L + dateTime;
+    }
+
+    /**
+     * Campo 90: MTI original (4) + STAN original (6) + fecha/hora original (10) + ...;
+     * sin campo 90 se asume que el reverso repite STAN y fecha/hora del original
+     */
+    private static long reversalTimeKey(ISOMsg request) {
+        String originalData = request.getString(90);
+        if (originalData != null && originalData.length() >= 20) {
+            long stanValue = digits(originalData, 4, 10, 6);
+            long dateTime = digits(originalData, 10, 20, 10);
+            if (stanValue >= 0 && dateTime >= 0) {
+                return stanValue * 10_000_000_000L + dateTime;
+            }
+        }
+        return timeKey(request.getString(11), request.getString(7));
+    }
+
+    private static long digits(String value, int from, int to, int maxDigits) {
+        if (value == null || to <= from || to - from > maxDigits) {
+            return -1;
+        }
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static long refKey(String rrn, String terminalId) {
+        long h = 0xcbf29ce484222325L; // FNV-1a
+        if (rrn != null) {
+            for (int i = 0; i < rrn.length(); i++) {
+                h = (h ^ rrn.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        h = (h ^ '|') * 0x100000001b3L;
+        if (terminalId != null) {
+            for (int i = 0; i < terminalId.length(); i++) {
+                h = (h ^ terminalId.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Anillo de entradas en orden de llegada + índice (hash -> posición en el anillo + 1, 0 = vacío)
+     */
+    private static final class Segment {
+        private final long[] timeKeys;
+        private final long[] refKeys;
+        private final long[] hashes;
+        private final long[] stamps;
+        private final byte[] states;
+        private final int ringMask;
+        private final int[] index;
+        private final int indexMask;
+        private int head;
+        private int size;
+
+        Segment(int capacity) {
+            timeKeys = new long[capacity];
+            refKeys = new long[capacity];
+            hashes = new long[capacity];
+            stamps = new long[capacity];
+            states = new byte[capacity];
+            ringMask = capacity - 1;
+            index = new int[capacity << 1]; // Factor de carga <= 0.5
+            indexMask = index.length - 1;
+        }
+
+        /**
+         * true si el original es nuevo (queda registrado como PENDING)
+         */
+        synchronized boolean admitOriginal(long timeKey, long refKey, long hash, long now, long ttl) {
+            expire(now, ttl);
+            if (find(timeKey, refKey, hash) >= 0) {
+                return false;
+            }
+            insert(timeKey, refKey, hash, now);
+            return true;
+        }
+
+        synchronized Verdict matchReversal(long timeKey, long refKey, long hash, long now, long ttl) {
+            expire(now, ttl);
+            int position = find(timeKey, refKey, hash);
+            if (position < 0) {
+                return Verdict.REVERSAL_NOT_FOUND;
+            }
+            switch (states[position]) {
+                case APPROVED:
+                    states[position] = REVERSED;
+                    return Verdict.REVERSAL_MATCHED;
+                case REVERSED:
+                    return Verdict.REVERSAL_REPEAT;
+                default:
+                    return Verdict.REVERSAL_UNAPPROVED;
+            }
+        }
+
+        synchronized void complete(long timeKey, long refKey, long hash, byte state) {
+            int position = find(timeKey, refKey, hash);
+            if (position >= 0 && states[position] == PENDING) {
+                states[position] = state;
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        int capacity() {
+            return ringMask + 1;
+        }
+
+        private int find(long timeKey, long refKey, long hash) {
+            int i = (int) hash & indexMask;
+            int entry;
+            while ((entry = index[i]) != 0) {
+                int position = entry - 1;
+                if (timeKeys[position] == timeKey && refKeys[position] == refKey) {
+                    return position;
+                }
+                i = (i + 1) & indexMask;
+            }
+            return -1;
+        }
+
+        private void insert(long timeKey, long refKey, long hash, long now) {
+            if (size == ringMask + 1) {
+                evictOldest(); // Anillo lleno: sale el más viejo aunque no haya vencido
+            }
+            int position = head;
+            head = (head + 1) & ringMask;
+            size++;
+            timeKeys[position] = timeKey;
+            refKeys[position] = refKey;
+            hashes[position] = hash;
+            stamps[position] = now;
+            states[position] = PENDING;
+
+            int i = (int) hash & indexMask;
+            while (index[i] != 0) {
+                i = (i + 1) & indexMask;
+            }
+            index[i] = position + 1;
+        }
+
+        private void expire(long now, long ttl) {
+            while (size > 0 && now - stamps[(head - size) & ringMask] > ttl) {
+                evictOldest();
+            }
+        }
+
+        private void evictOldest() {
+            int position = (head - size) & ringMask;
+            size--;
+            int i = (int) hashes[position] & indexMask;
+            while (index[i] != position + 1) {
+                i = (i + 1) & indexMask;
+            }
+            deleteAt(i);
+        }
+
+        /**
+         * Borrado con desplazamiento hacia atrás: mantiene las cadenas de sondeo sin tombstones
+         */
+        private void deleteAt(int hole) {
+            int i = (hole + 1) & indexMask;
+            while (index[i] != 0) {
+                int home = (int) hashes[index[i] - 1] & indexMask;
+                boolean reachable = hole <= i
+                        ? (home > hole && home <= i)
+                        : (home > hole || home <= i);
+                if (!reachable) {
+                    index[hole] = index[i];
+                    hole = i;
+                }
+                i = (i + 1) & indexMask;
+            }
+            index[hole] = 0;
+        }
+    }
+}
@@ -100,7 +100,13 @@ public class ConnectionController {
         response.put("socketInfo", status.getSocketInfo());
         response.put("channelType", status.getChannelType());
         response.put("pendingRequestsCount", status.getPendingRequestsCount());
+        response.put("poolSize", status.getPoolSize());
+        response.put("activeChannels", status.getActiveChannels());
+        response.put("timeoutCount", status.getTimeoutCount());
+        response.put("lateResponseCount", status.getLateResponseCount());
+        response.put("unmatchedResponseCount", status.getUnmatchedResponseCount());
         response.put("outputKeys", connectionManager.getOutputKeys());
+        response.put("pool", connectionManager.getPoolMetrics());
         response.put("timestamp", System.currentTimeMillis());
 
         return ResponseEntity.ok(response);
@@ -1,6 +1,17 @@
 package com.iso8583.simulator.web.controller;
 
+import com.iso8583.simulator.core.config.SimulatorConfiguration;
+import com.iso8583.simulator.simulator.AccountLedger;
+import com.iso8583.simulator.simulator.FaultInjector;
+import com.iso8583.simulator.simulator.LatencyProfiles;
 import com.iso8583.simulator.simulator.MessageSimulator;
+import com.iso8583.simulator.simulator.MockAuthorizerServer;
+import com.iso8583.simulator.simulator.MockScenario;
+import com.iso8583.simulator.simulator.OverrideFileLoader;
+import com.iso8583.simulator.simulator.OverrideIndex;
+import com.iso8583.simulator.simulator.ResponseRuleEngine;
+import com.iso8583.simulator.simulator.TransactionCache;
+import com.iso8583.simulator.web.dto.MockScenarioUpdate;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -9,10 +20,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,6 +44,24 @@ public class MockConfigurationController {
     @Autowired
     private MessageSimulator messageSimulator;
 
+    @Autowired
+    private LatencyProfiles latencyProfiles;
+
+    @Autowired
+    private ResponseRuleEngine ruleEngine;
+
+    @Autowired
+    private MockAuthorizerServer mockServer;
+
+    @Autowired
+    private AccountLedger accountLedger;
+
+    @Autowired
+    private TransactionCache transactionCache;
+
+    @Autowired
+    private FaultInjector faultInjector;
+
     // ================================
     // CONFIGURACIÓN DE CÓDIGOS DE RESPUESTA
     // ================================
@@ -231,6 +265,724 @@ public class MockConfigurationController {
         }
     }
 
+    @Operation(summary = "Aplicar cambios en lote al escenario",
+            description = "Aplica overrides, eliminaciones y tasa de éxito de forma atómica: " +
+                    "los requests en curso ven el escenario anterior o el nuevo, nunca una mezcla")
+    @PostMapping("/scenario")
+    public ResponseEntity<Map<String, Object>> updateScenario(@RequestBody MockScenarioUpdate update) {
+
+        try {
+            if (update.getSuccessRate() != null
+                    && (update.getSuccessRate() < 0.0 || update.getSuccessRate() > 1.0)) {
+                throw new IllegalArgumentException("Success rate debe estar entre 0.0 y 1.0");
+            }
+
+            MockScenario applied = messageSimulator.updateScenario(scenario -> applyUpdate(scenario, update));
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Escenario actualizado");
+            result.put("panOverrides", applied.getPanResponses().size());
+            result.put("terminalOverrides", applied.getTerminalResponses().size());
+            result.put("processingCodeOverrides", applied.getProcessingCodeResponses().size());
+            result.put("successRate", applied.getSuccessRate());
+            result.put("useCustomResponseCodes", applied.isUseCustomResponseCodes());
+            result.put("timestamp", LocalDateTime.now());
+
+            logger.info("Escenario mock actualizado en lote (replace={})", update.isReplace());
+
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error actualizando escenario: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error actualizando escenario");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    // ================================
+    // CARGA MASIVA DE OVERRIDES
+    // ================================
+
+    @Operation(summary = "Importar overrides por PAN en lote",
+            description = "CSV (pan,código) o binario (.bin/.dat: 8 bytes BCD + 2 bytes ASCII por registro). " +
+                    "PANs de hasta 16 dígitos en el índice; los de 17-19 dígitos (sólo CSV) como overrides individuales")
+    @PostMapping(value = "/bulk/pans", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> importPanOverrides(
+            @Parameter(description = "Archivo CSV o binario")
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "csv | binary (por defecto según la extensión)")
+            @RequestParam(required = false) String format,
+            @Parameter(description = "true para reemplazar los overrides masivos existentes")
+            @RequestParam(defaultValue = "false") boolean replace) {
+        return importOverrides(file, OverrideFileLoader.Kind.PAN, format, replace);
+    }
+
+    @Operation(summary = "Importar overrides por Terminal ID en lote",
+            description = "CSV (terminal,código) o binario (.bin/.dat: 8 bytes ASCII + 2 bytes ASCII por registro)")
+    @PostMapping(value = "/bulk/terminals", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> importTerminalOverrides(
+            @Parameter(description = "Archivo CSV o binario")
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "csv | binary (por defecto según la extensión)")
+            @RequestParam(required = false) String format,
+            @Parameter(description = "true para reemplazar los overrides masivos existentes")
+            @RequestParam(defaultValue = "false") boolean replace) {
+        return importOverrides(file, OverrideFileLoader.Kind.TERMINAL, format, replace);
+    }
+
+    @Operation(summary = "Importar overrides por PAN en lote desde el cuerpo del request",
+            description = "Mismo formato que la carga multipart, enviado como cuerpo crudo (text/csv o " +
+                    "application/octet-stream). Se lee en streaming, sin el límite de tamaño de multipart: " +
+                    "es la opción para archivos de millones de PANs (curl --data-binary @pans.csv)")
+    @PostMapping(value = "/bulk/pans", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> importPanOverridesStream(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            @Parameter(description = "csv | binary (por defecto csv)")
+            @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "true para reemplazar los overrides masivos existentes")
+            @RequestParam(defaultValue = "false") boolean replace) {
+        return importOverrides(body, contentLength, OverrideFileLoader.Kind.PAN, format, replace);
+    }
+
+    @Operation(summary = "Importar overrides por Terminal ID en lote desde el cuerpo del request",
+            description = "Mismo formato que la carga multipart, enviado como cuerpo crudo (text/csv o " +
+                    "application/octet-stream) y leído en streaming")
+    @PostMapping(value = "/bulk/terminals", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> importTerminalOverridesStream(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            @Parameter(description = "csv | binary (por defecto csv)")
+            @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "true para reemplazar los overrides masivos existentes")
+            @RequestParam(defaultValue = "false") boolean replace) {
+        return importOverrides(body, contentLength, OverrideFileLoader.Kind.TERMINAL, format, replace);
+    }
+
+    @Operation(summary = "Eliminar overrides masivos",
+            description = "Vacía los índices de PAN y Terminal ID cargados en lote")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<Map<String, Object>> clearBulkOverrides() {
+        messageSimulator.updateScenario(scenario -> scenario
+                .panIndex(OverrideIndex.EMPTY)
+                .terminalIndex(OverrideIndex.EMPTY));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Overrides masivos eliminados");
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<Map<String, Object>> importOverrides(MultipartFile file, OverrideFileLoader.Kind kind,
+                                                                String format, boolean replace) {
+        try {
+            if (file.isEmpty()) {
+                throw new IllegalArgumentException("Archivo vacío");
+            }
+            OverrideFileLoader.Format fileFormat = format != null
+                    ? OverrideFileLoader.Format.valueOf(format.toUpperCase())
+                    : OverrideFileLoader.formatFor(file.getOriginalFilename());
+
+            try (InputStream in = file.getInputStream()) {
+                return imported(in, file.getSize(), kind, fileFormat, replace);
+            }
+        } catch (Exception e) {
+            return importError(kind, e);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> importOverrides(InputStream body, Long contentLength,
+                                                                OverrideFileLoader.Kind kind,
+                                                                String format, boolean replace) {
+        try {
+            OverrideFileLoader.Format fileFormat = OverrideFileLoader.Format.valueOf(format.toUpperCase());
+            return imported(body, contentLength != null ? contentLength : -1, kind, fileFormat, replace);
+        } catch (Exception e) {
+            return importError(kind, e);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> imported(InputStream in, long size, OverrideFileLoader.Kind kind,
+                                                         OverrideFileLoader.Format fileFormat,
+                                                         boolean replace) throws IOException {
+        Map<String, String> unindexed = new HashMap<>();
+        OverrideIndex index = messageSimulator.importOverrides(in, kind, fileFormat, size, replace, unindexed);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Overrides importados");
+        result.put("kind", kind);
+        result.put("format", fileFormat);
+        result.put("entries", index.size());
+        result.put("footprintBytes", index.footprintBytes());
+        result.put("byResponseCode", index.countByResponseCode());
+        result.put("unindexedEntries", unindexed.size());
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<Map<String, Object>> importError(OverrideFileLoader.Kind kind, Exception e) {
+        logger.error("Error importando overrides por {}: {}", kind, e.getMessage());
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("message", "Error importando overrides");
+        error.put("error", e.getMessage());
+        error.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    // ================================
+    // PERFILES DE LATENCIA
+    // ================================
+
+    @Operation(summary = "Obtener perfiles de latencia",
+            description = "Perfiles definidos, perfil por defecto y asignación por MTI / processing code")
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> getLatencyProfiles() {
+        Map<String, Object> result = new HashMap<>(latencyProfiles.describe());
+        result.put("success", true);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Crear o reemplazar un perfil de latencia",
+            description = "type: fixed | uniform | normal | lognormal | pareto | histogram")
+    @PutMapping("/latency/profiles/{name}")
+    public ResponseEntity<Map<String, Object>> putLatencyProfile(
+            @Parameter(description = "Nombre del perfil")
+            @PathVariable String name,
+            @RequestBody SimulatorConfiguration.MockConfig.LatencyProfile profile) {
+
+        try {
+            latencyProfiles.putProfile(name, profile);
+
+            Map<String, Object> result = new HashMap<>(latencyProfiles.describe());
+            result.put("success", true);
+            result.put("message", "Perfil de latencia " + name + " configurado");
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error configurando perfil de latencia {}: {}", name, e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error configurando perfil de latencia");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    @Operation(summary = "Eliminar un perfil de latencia",
+            description = "El perfil no puede ser el de por defecto ni estar asignado a rutas")
+    @DeleteMapping("/latency/profiles/{name}")
+    public ResponseEntity<Map<String, Object>> deleteLatencyProfile(@PathVariable String name) {
+
+        try {
+            latencyProfiles.removeProfile(name);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Perfil de latencia " + name + " eliminado");
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error eliminando perfil de latencia {}: {}", name, e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error eliminando perfil de latencia");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    @Operation(summary = "Asignar perfil de latencia a MTI / processing code",
+            description = "Sin processing code el perfil aplica a todo el MTI")
+    @PostMapping("/latency/routes")
+    public ResponseEntity<Map<String, Object>> putLatencyRoute(
+            @Parameter(description = "MTI (ej: 0200)")
+            @RequestParam String mti,
+            @Parameter(description = "Processing code (campo 3), opcional")
+            @RequestParam(required = false) String processingCode,
+            @Parameter(description = "Nombre del perfil")
+            @RequestParam String profile) {
+
+        try {
+            latencyProfiles.putRoute(mti, processingCode, profile);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Perfil de latencia asignado");
+            result.put("mti", mti);
+            result.put("processingCode", processingCode);
+            result.put("profile", profile);
+            result.put("timestamp", LocalDateTime.now());
+
+            logger.info("Latencia para MTI {} / PC {}: perfil {}", mti, processingCode, profile);
+
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error asignando perfil de latencia: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error asignando perfil de latencia");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    @Operation(summary = "Quitar asignación de perfil de latencia",
+            description = "El MTI / processing code vuelve a usar el perfil por defecto")
+    @DeleteMapping("/latency/routes")
+    public ResponseEntity<Map<String, Object>> deleteLatencyRoute(
+            @RequestParam String mti,
+            @RequestParam(required = false) String processingCode) {
+
+        try {
+            boolean removed = latencyProfiles.removeRoute(mti, processingCode);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", removed);
+            result.put("message", removed ? "Asignación eliminada" : "No existía la asignación");
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error quitando perfil de latencia: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error quitando perfil de latencia");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    @Operation(summary = "Cambiar perfil de latencia por defecto",
+            description = "Aplica a todo request sin asignación específica")
+    @PostMapping("/latency/default")
+    public ResponseEntity<Map<String, Object>> setDefaultLatencyProfile(@RequestParam String profile) {
+
+        try {
+            latencyProfiles.setDefaultProfile(profile);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Perfil de latencia por defecto: " + profile);
+            result.put("timestamp", LocalDateTime.now());
+
+            logger.info("Perfil de latencia por defecto: {}", profile);
+
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error cambiando perfil de latencia por defecto: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error cambiando perfil de latencia por defecto");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    // ================================
+    // FALLAS INYECTADAS
+    // ================================
+
+    @Operation(summary = "Obtener perfiles de fallas",
+            description = "Perfiles definidos y cantidad de fallas inyectadas por tipo")
+    @GetMapping("/faults")
+    public ResponseEntity<Map<String, Object>> getFaultProfiles() {
+        Map<String, Object> result = new HashMap<>(faultInjector.describe());
+        result.put("success", true);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Crear o reemplazar un perfil de fallas",
+            description = "Tasas 0.0-1.0 de drop, late, reorder, unsolicited, truncate, garble y disconnect; "
+                    + "mtis / terminals vacíos aplican a todos")
+    @PutMapping("/faults/profiles/{name}")
+    public ResponseEntity<Map<String, Object>> putFaultProfile(
+            @Parameter(description = "Nombre del perfil")
+            @PathVariable String name,
+            @RequestBody SimulatorConfiguration.MockConfig.FaultProfile profile) {
+
+        try {
+            faultInjector.putProfile(name, profile);
+
+            Map<String, Object> result = new HashMap<>(faultInjector.describe());
+            result.put("success", true);
+            result.put("message", "Perfil de fallas " + name + " configurado");
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error configurando perfil de fallas {}: {}", name, e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error configurando perfil de fallas");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    @Operation(summary = "Eliminar un perfil de fallas")
+    @DeleteMapping("/faults/profiles/{name}")
+    public ResponseEntity<Map<String, Object>> deleteFaultProfile(@PathVariable String name) {
+        boolean removed = faultInjector.removeProfile(name);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", removed);
+        result.put("message", removed ? "Perfil de fallas " + name + " eliminado" : "Perfil de fallas " + name + " no existe");
+        result.put("timestamp", LocalDateTime.now());
+        return removed ? ResponseEntity.ok(result) : ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
+    }
+
+    @Operation(summary = "Eliminar todos los perfiles de fallas y reiniciar contadores")
+    @DeleteMapping("/faults")
+    public ResponseEntity<Map<String, Object>> clearFaultProfiles() {
+        faultInjector.clear();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Perfiles de fallas eliminados");
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    // ================================
+    // REGLAS DE CÓDIGOS DE RESPUESTA
+    // ================================
+
+    @Operation(summary = "Obtener reglas de respuesta",
+            description = "Reglas compiladas vigentes, origen y campos indexados")
+    @GetMapping("/rules")
+    public ResponseEntity<Map<String, Object>> getRules() {
+        Map<String, Object> result = new HashMap<>(ruleEngine.describe());
+        result.put("success", true);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Reemplazar reglas de respuesta",
+            description = "Recibe el conjunto completo en YAML o JSON ({rules: [...]}); se compila y publica sin pausar tráfico")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reglas compiladas y publicadas"),
+            @ApiResponse(responseCode = "400", description = "Reglas inválidas; se mantienen las anteriores")
+    })
+    @PutMapping("/rules")
+    public ResponseEntity<Map<String, Object>> putRules(@RequestBody String content) {
+
+        try {
+            int loaded = ruleEngine.load(content);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Reglas de respuesta actualizadas");
+            result.put("totalRules", loaded);
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error cargando reglas de respuesta: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error cargando reglas de respuesta");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    @Operation(summary = "Recargar reglas desde archivo",
+            description = "Vuelve a leer iso8583.simulator.mock.rules-file")
+    @PostMapping("/rules/reload")
+    public ResponseEntity<Map<String, Object>> reloadRules() {
+
+        try {
+            int loaded = ruleEngine.reload();
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Reglas de respuesta recargadas");
+            result.put("totalRules", loaded);
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error recargando reglas de respuesta: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error recargando reglas de respuesta");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    @Operation(summary = "Eliminar reglas de respuesta",
+            description = "Sin reglas sólo aplican los overrides y la tasa de éxito")
+    @DeleteMapping("/rules")
+    public ResponseEntity<Map<String, Object>> clearRules() {
+        ruleEngine.clear();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Reglas de respuesta eliminadas");
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    // ================================
+    // AUTORIZADOR MOCK TCP
+    // ================================
+
+    @Operation(summary = "Estado del autorizador mock TCP",
+            description = "Puerto, conexiones activas y contadores de requests/respuestas")
+    @GetMapping("/server")
+    public ResponseEntity<Map<String, Object>> getServerStatus() {
+        Map<String, Object> result = new HashMap<>(mockServer.getStatistics());
+        result.put("success", true);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Iniciar el autorizador mock TCP",
+            description = "Escucha en iso8583.simulator.mock.server.port y responde con las reglas del mock")
+    @PostMapping("/server/start")
+    public ResponseEntity<Map<String, Object>> startServer() {
+
+        try {
+            mockServer.start();
+
+            Map<String, Object> result = new HashMap<>(mockServer.getStatistics());
+            result.put("success", true);
+            result.put("message", "Autorizador mock iniciado");
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error iniciando autorizador mock: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error iniciando autorizador mock");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @Operation(summary = "Detener el autorizador mock TCP",
+            description = "Cierra el puerto y todas las conexiones de clientes")
+    @PostMapping("/server/stop")
+    public ResponseEntity<Map<String, Object>> stopServer() {
+        mockServer.stop();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Autorizador mock detenido");
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    // ================================
+    // LIBRO DE CUENTAS
+    // ================================
+
+    @Operation(summary = "Estado del libro de cuentas",
+            description = "Cuentas cargadas y contadores de débitos, créditos y rechazos por saldo")
+    @GetMapping("/ledger")
+    public ResponseEntity<Map<String, Object>> getLedger() {
+        Map<String, Object> result = new HashMap<>(accountLedger.getStatistics());
+        result.put("success", true);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Habilitar/Deshabilitar el libro de cuentas",
+            description = "Con el libro habilitado las aprobaciones mueven saldo y las consultas devuelven el saldo real")
+    @PostMapping("/ledger/toggle")
+    public ResponseEntity<Map<String, Object>> toggleLedger(
+            @Parameter(description = "true para habilitar, false para deshabilitar")
+            @RequestParam boolean enabled) {
+        accountLedger.setEnabled(enabled);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Libro de cuentas " + (enabled ? "habilitado" : "deshabilitado"));
+        result.put("enabled", enabled);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Consultar saldo de una cuenta",
+            description = "Cuenta = campo 102 o PAN; saldo en centavos")
+    @GetMapping("/ledger/accounts/{account}")
+    public ResponseEntity<Map<String, Object>> getAccountBalance(@PathVariable String account) {
+        Long balance = accountLedger.getBalance(account);
+        if (balance == null) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Cuenta no encontrada");
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("balance", balance);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Fijar saldo de una cuenta",
+            description = "Crea la cuenta si no existe; saldo en centavos")
+    @PutMapping("/ledger/accounts/{account}")
+    public ResponseEntity<Map<String, Object>> setAccountBalance(
+            @PathVariable String account,
+            @Parameter(description = "Saldo en centavos")
+            @RequestParam long balance) {
+        accountLedger.setBalance(account, balance);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Saldo configurado");
+        result.put("balance", balance);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Eliminar una cuenta del libro")
+    @DeleteMapping("/ledger/accounts/{account}")
+    public ResponseEntity<Map<String, Object>> removeAccount(@PathVariable String account) {
+        boolean removed = accountLedger.removeAccount(account);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", removed);
+        result.put("message", removed ? "Cuenta eliminada" : "Cuenta no encontrada");
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.status(removed ? HttpStatus.OK : HttpStatus.NOT_FOUND).body(result);
+    }
+
+    @Operation(summary = "Vaciar el libro de cuentas")
+    @DeleteMapping("/ledger")
+    public ResponseEntity<Map<String, Object>> clearLedger() {
+        accountLedger.clear();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Libro de cuentas vaciado");
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Guardar snapshot de saldos",
+            description = "Escribe todos los saldos en iso8583.simulator.mock.ledger.snapshot-file")
+    @PostMapping("/ledger/snapshot")
+    public ResponseEntity<Map<String, Object>> snapshotLedger() {
+
+        try {
+            int accounts = accountLedger.snapshot();
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Snapshot guardado");
+            result.put("accounts", accounts);
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error guardando snapshot de saldos: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error guardando snapshot");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @Operation(summary = "Cargar snapshot de saldos",
+            description = "Reemplaza el libro con el contenido de iso8583.simulator.mock.ledger.snapshot-file")
+    @PostMapping("/ledger/load")
+    public ResponseEntity<Map<String, Object>> loadLedger() {
+
+        try {
+            int accounts = accountLedger.load();
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "Snapshot cargado");
+            result.put("accounts", accounts);
+            result.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            logger.error("Error cargando snapshot de saldos: {}", e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error cargando snapshot");
+            error.put("error", e.getMessage());
+            error.put("timestamp", LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    // ================================
+    // DUPLICADOS Y REVERSOS
+    // ================================
+
+    @Operation(summary = "Estado de la detección de duplicados y reversos",
+            description = "Entradas en la ventana, duplicados (94) y reversos casados o sin original (76)")
+    @GetMapping("/transactions")
+    public ResponseEntity<Map<String, Object>> getTransactionCache() {
+        Map<String, Object> result = new HashMap<>(transactionCache.getStatistics());
+        result.put("success", true);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Habilitar/Deshabilitar la detección de duplicados y reversos",
+            description = "Clave (campo 11, 37, 41, 7); en reversos el original se toma del campo 90 si viene")
+    @PostMapping("/transactions/toggle")
+    public ResponseEntity<Map<String, Object>> toggleTransactionCache(
+            @Parameter(description = "true para habilitar, false para deshabilitar")
+            @RequestParam boolean enabled) {
+        transactionCache.setEnabled(enabled);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Detección de duplicados " + (enabled ? "habilitada" : "deshabilitada"));
+        result.put("enabled", enabled);
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Vaciar la ventana de transacciones")
+    @DeleteMapping("/transactions")
+    public ResponseEntity<Map<String, Object>> clearTransactionCache() {
+        transactionCache.clear();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Ventana de transacciones vaciada");
+        result.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(result);
+    }
+
     // ================================
     // CONSULTA Y GESTIÓN
     // ================================
@@ -296,20 +1048,17 @@ public class MockConfigurationController {
     public ResponseEntity<Map<String, Object>> setupTestScenarios() {
 
         try {
-            // Limpiar configuraciones existentes
-            messageSimulator.clearCustomConfigurations();
-
-            // Configurar escenarios de prueba
-            messageSimulator.setResponseCodeForPan("4000000000000051", "51"); // Insufficient funds
-            messageSimulator.setResponseCodeForPan("4000000000000054", "54"); // Expired card
-            messageSimulator.setResponseCodeForPan("4000000000000055", "55"); // Incorrect PIN
-            messageSimulator.setResponseCodeForPan("4000000000000062", "62"); // Restricted card
-            messageSimulator.setResponseCodeForPan("4000000000000057", "57"); // Transaction not permitted
-
-            messageSimulator.setResponseCodeForTerminal("TESTTERM", "91"); // Issuer inoperative
-            messageSimulator.setResponseCodeForTerminal("ERRORTERM", "96"); // System malfunction
-
-            messageSimulator.setUseCustomResponseCodes(true);
+            // Reemplaza la configuración existente en una sola publicación
+            messageSimulator.updateScenario(scenario -> scenario
+                    .clear()
+                    .panResponse("4000000000000051", "51") // Insufficient funds
+                    .panResponse("4000000000000054", "54") // Expired card
+                    .panResponse("4000000000000055", "55") // Incorrect PIN
+                    .panResponse("4000000000000062", "62") // Restricted card
+                    .panResponse("4000000000000057", "57") // Transaction not permitted
+                    .terminalResponse("TESTTERM", "91") // Issuer inoperative
+                    .terminalResponse("ERRORTERM", "96") // System malfunction
+                    .useCustomResponseCodes(true));
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -400,6 +1149,36 @@ public class MockConfigurationController {
     // MÉTODOS AUXILIARES
     // ================================
 
+    private void applyUpdate(MockScenario.Builder scenario, MockScenarioUpdate update) {
+        if (update.isReplace()) {
+            scenario.clear();
+        }
+        if (update.getRemovePans() != null) {
+            update.getRemovePans().forEach(scenario::removePanResponse);
+        }
+        if (update.getRemoveTerminals() != null) {
+            update.getRemoveTerminals().forEach(scenario::removeTerminalResponse);
+        }
+        if (update.getRemoveProcessingCodes() != null) {
+            update.getRemoveProcessingCodes().forEach(scenario::removeProcessingCodeResponse);
+        }
+        if (update.getPanResponses() != null) {
+            update.getPanResponses().forEach(scenario::panResponse);
+        }
+        if (update.getTerminalResponses() != null) {
+            update.getTerminalResponses().forEach(scenario::terminalResponse);
+        }
+        if (update.getProcessingCodeResponses() != null) {
+            update.getProcessingCodeResponses().forEach(scenario::processingCodeResponse);
+        }
+        if (update.getSuccessRate() != null) {
+            scenario.successRate(update.getSuccessRate());
+        }
+        if (update.getUseCustomResponseCodes() != null) {
+            scenario.useCustomResponseCodes(update.getUseCustomResponseCodes());
+        }
+    }
+
     private String getResponseCodeDescription(String responseCode) {
         switch (responseCode) {
             case "00": return "Approved";
@@ -0,0 +1,78 @@
+package com.iso8583.simulator.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "Cambios al escenario mock que se aplican juntos en una sola publicación")
+public class MockScenarioUpdate {
+
+    @JsonProperty("replace")
+    @Schema(description = "Si true, parte de la configuración por defecto en lugar de la actual", defaultValue = "false")
+    private boolean replace = false;
+
+    @JsonProperty("panResponses")
+    @Schema(description = "Códigos de respuesta por PAN")
+    private Map<String, String> panResponses;
+
+    @JsonProperty("terminalResponses")
+    @Schema(description = "Códigos de respuesta por Terminal ID")
+    private Map<String, String> terminalResponses;
+
+    @JsonProperty("processingCodeResponses")
+    @Schema(description = "Códigos de respuesta por Processing Code")
+    private Map<String, String> processingCodeResponses;
+
+    @JsonProperty("removePans")
+    @Schema(description = "PANs cuyo override se elimina")
+    private List<String> removePans;
+
+    @JsonProperty("removeTerminals")
+    @Schema(description = "Terminal IDs cuyo override se elimina")
+    private List<String> removeTerminals;
+
+    @JsonProperty("removeProcessingCodes")
+    @Schema(description = "Processing Codes cuyo override se elimina")
+    private List<String> removeProcessingCodes;
+
+    @JsonProperty("successRate")
+    @Schema(description = "Tasa de éxito entre 0.0 y 1.0", example = "0.8")
+    private Double successRate;
+
+    @JsonProperty("useCustomResponseCodes")
+    @Schema(description = "Habilita o deshabilita los códigos personalizados")
+    private Boolean useCustomResponseCodes;
+
+    // Constructors
+    public MockScenarioUpdate() {}
+
+    // Getters and Setters
+    public boolean isReplace() { return replace; }
+    public void setReplace(boolean replace) { this.replace = replace; }
+
+    public Map<String, String> getPanResponses() { return panResponses; }
+    public void setPanResponses(Map<String, String> panResponses) { this.panResponses = panResponses; }
+
+    public Map<String, String> getTerminalResponses() { return terminalResponses; }
+    public void setTerminalResponses(Map<String, String> terminalResponses) { this.terminalResponses = terminalResponses; }
+
+    public Map<String, String> getProcessingCodeResponses() { return processingCodeResponses; }
+    public void setProcessingCodeResponses(Map<String, String> processingCodeResponses) { this.processingCodeResponses = processingCodeResponses; }
+
+    public List<String> getRemovePans() { return removePans; }
+    public void setRemovePans(List<String> removePans) { this.removePans = removePans; }
+
+    public List<String> getRemoveTerminals() { return removeTerminals; }
+    public void setRemoveTerminals(List<String> removeTerminals) { this.removeTerminals = removeTerminals; }
+
+    public List<String> getRemoveProcessingCodes() { return removeProcessingCodes; }
+    public void setRemoveProcessingCodes(List<String> removeProcessingCodes) { this.removeProcessingCodes = removeProcessingCodes; }
+
+    public Double getSuccessRate() { return successRate; }
+    public void setSuccessRate(Double successRate) { this.successRate = successRate; }
+
+    public Boolean getUseCustomResponseCodes() { return useCustomResponseCodes; }
+    public void setUseCustomResponseCodes(Boolean useCustomResponseCodes) { this.useCustomResponseCodes = useCustomResponseCodes; }
+}
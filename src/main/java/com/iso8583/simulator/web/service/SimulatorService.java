@@ -17,6 +17,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -40,104 +41,118 @@ public class SimulatorService {
      * Envía un mensaje usando el modo configurado (Mock o Real)
      */
     public CompletableFuture<MessageResponse> sendMessage(MessageRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                logger.info("Enviando mensaje en modo: {} - MTI: {}", config.getMode(), request.getMessageType());
-
-                if (config.isMockMode()) {
-                    return sendMockMessage(request);
-                } else if (config.isRealMode()) {
-                    return sendRealMessage(request);
-                } else {
-                    throw new IllegalStateException("Modo de simulador no válido: " + config.getMode());
-                }
+        try {
+            logger.info("Enviando mensaje en modo: {} - MTI: {}", config.getMode(), request.getMessageType());
 
-            } catch (Exception e) {
-                logger.error("Error enviando mensaje: {}", e.getMessage(), e);
-                MessageResponse errorResponse = new MessageResponse(false);
-                errorResponse.setErrorMessage("Error interno: " + e.getMessage());
-                return errorResponse;
+            if (config.isMockMode()) {
+                return sendMockMessage(request);
+            } else if (config.isRealMode()) {
+                return sendRealMessage(request);
+            } else {
+                throw new IllegalStateException("Modo de simulador no válido: " + config.getMode());
             }
-        });
+
+        } catch (Exception e) {
+            logger.error("Error enviando mensaje: {}", e.getMessage(), e);
+            MessageResponse errorResponse = new MessageResponse(false);
+            errorResponse.setErrorMessage("Error interno: " + e.getMessage());
+            return CompletableFuture.completedFuture(errorResponse);
+        }
     }
 
     /**
-     * Envía mensaje en modo Mock
+     * Envía mensaje en modo Mock.
+     * La latencia sale del perfil configurado y se cumple en la rueda de timers:
+     * ningún thread queda dormido mientras tanto.
      */
-    private MessageResponse sendMockMessage(MessageRequest request) {
-        try {
-            logger.debug("Procesando mensaje en modo MOCK");
-
-            // Simular delay de red configurado
-            int responseTime = ThreadLocalRandom.current().nextInt(
-                    config.getMock().getMinResponseTime(),
-                    config.getMock().getMaxResponseTime()
-            );
-            Thread.sleep(responseTime);
+    private CompletableFuture<MessageResponse> sendMockMessage(MessageRequest request) {
+        logger.debug("Procesando mensaje en modo MOCK");
 
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<ISOMsg> isoResponse;
+        try {
             // Crear mensaje ISO8583 para el simulador mock
-            ISOMsg isoRequest = createISOMessage(request);
-            ISOMsg isoResponse = messageSimulator.sendMessage(isoRequest);
-
-            // Convertir respuesta ISO a DTO
-            MessageResponse response = convertToMessageResponse(isoResponse, request);
-            response.setResponseTime((long) responseTime);
-            response.setMockMode(true);
-
-            logger.debug("Mensaje MOCK procesado exitosamente en {}ms", responseTime);
-            return response;
-
+            isoResponse = messageSimulator.sendMessageAsync(createISOMessage(request));
         } catch (Exception e) {
-            logger.error("Error en modo mock: {}", e.getMessage(), e);
-            MessageResponse errorResponse = new MessageResponse(false);
-            errorResponse.setErrorMessage("Error mock: " + e.getMessage());
-            errorResponse.setMockMode(true);
-            return errorResponse;
+            isoResponse = new CompletableFuture<>();
+            isoResponse.completeExceptionally(e);
         }
+
+        return isoResponse
+                .thenApply(iso -> {
+                    long responseTime = System.currentTimeMillis() - startTime;
+
+                    // Convertir respuesta ISO a DTO
+                    MessageResponse response = convertToMessageResponse(iso, request);
+                    response.setResponseTime(responseTime);
+                    response.setMockMode(true);
+
+                    logger.debug("Mensaje MOCK procesado exitosamente en {}ms", responseTime);
+                    return response;
+                })
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    logger.error("Error en modo mock: {}", cause.getMessage(), cause);
+                    MessageResponse errorResponse = new MessageResponse(false);
+                    errorResponse.setErrorMessage("Error mock: " + cause.getMessage());
+                    errorResponse.setMockMode(true);
+                    return errorResponse;
+                });
     }
 
     /**
-     * Envía mensaje en modo Real (conexión al autorizador)
+     * Envía mensaje en modo Real (conexión al autorizador).
+     * Se encadena sobre el future del MUX en lugar de bloquear esperando la respuesta.
      */
-    private MessageResponse sendRealMessage(MessageRequest request) {
-        try {
-            logger.debug("Procesando mensaje en modo REAL - Host: {}:{}",
-                    config.getSwitch().getHost(), config.getSwitch().getPort());
-
-            long startTime = System.currentTimeMillis();
-
-            // Verificar conexión
-            if (!connectionManager.isConnected()) {
-                logger.warn("No hay conexión activa, intentando conectar...");
-                boolean connected = connectionManager.connect().get();
-                if (!connected) {
-                    throw new RuntimeException("No se pudo establecer conexión con el autorizador");
-                }
-            }
-
-            // Crear mensaje ISO8583
-            ISOMsg isoRequest = createISOMessage(request);
+    private CompletableFuture<MessageResponse> sendRealMessage(MessageRequest request) {
+        logger.debug("Procesando mensaje en modo REAL - Host: {}:{}",
+                config.getSwitch().getHost(), config.getSwitch().getPort());
 
-            // Enviar al autorizador real
-            ISOMsg isoResponse = connectionManager.sendMessage(isoRequest).get();
+        long startTime = System.currentTimeMillis();
 
-            long responseTime = System.currentTimeMillis() - startTime;
-
-            // Convertir respuesta ISO a DTO
-            MessageResponse response = convertToMessageResponse(isoResponse, request);
-            response.setResponseTime(responseTime);
-            response.setMockMode(false);
-
-            logger.debug("Mensaje REAL procesado exitosamente en {}ms", responseTime);
-            return response;
-
-        } catch (Exception e) {
-            logger.error("Error en modo real: {}", e.getMessage(), e);
-            MessageResponse errorResponse = new MessageResponse(false);
-            errorResponse.setErrorMessage("Error conexión real: " + e.getMessage());
-            errorResponse.setMockMode(false);
-            return errorResponse;
+        // Verificar conexión
+        CompletableFuture<Boolean> connection;
+        if (!connectionManager.isConnected()) {
+            logger.warn("No hay conexión activa, intentando conectar...");
+            connection = connectionManager.connect();
+        } else {
+            connection = CompletableFuture.completedFuture(true);
         }
+
+        return connection
+                .thenCompose(connected -> {
+                    if (!connected) {
+                        throw new RuntimeException("No se pudo establecer conexión con el autorizador");
+                    }
+
+                    try {
+                        // Crear mensaje ISO8583 y enviarlo al autorizador real
+                        return connectionManager.sendMessage(createISOMessage(request));
+                    } catch (ISOException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .thenApply(isoResponse -> {
+                    long responseTime = System.currentTimeMillis() - startTime;
+
+                    // Convertir respuesta ISO a DTO
+                    MessageResponse response = convertToMessageResponse(isoResponse, request);
+                    response.setResponseTime(responseTime);
+                    response.setMockMode(false);
+
+                    logger.debug("Mensaje REAL procesado exitosamente en {}ms", responseTime);
+                    return response;
+                })
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    logger.error("Error en modo real: {}", cause.getMessage(), cause);
+                    MessageResponse errorResponse = new MessageResponse(false);
+                    errorResponse.setErrorMessage("Error conexión real: " + cause.getMessage());
+                    errorResponse.setMockMode(false);
+                    return errorResponse;
+                });
     }
 
     /**